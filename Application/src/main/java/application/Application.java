@@ -16,6 +16,7 @@ import main.EntryPoint;
  */
 public class Application extends EntryPoint{
     private final WebDriverLoader webDriverLoader;
+    private JobScheduler jobScheduler;
     private static Application instance;
     
     private Application(){
@@ -24,6 +25,7 @@ public class Application extends EntryPoint{
             throw new RuntimeException("Cannot instantiate more than one instance of Application. Use Application.getInstance() instead");
         }
         webDriverLoader = new WebDriverLoader(this);
+        jobScheduler = null;
     }
     
     public static Application getInstance(){
@@ -37,6 +39,15 @@ public class Application extends EntryPoint{
         return webDriverLoader;
     }
     
+    /**
+     * 
+     * @return the scheduler running the job queue,
+     * or null if the job queue could not be loaded
+     */
+    public JobScheduler getJobScheduler(){
+        return jobScheduler;
+    }
+    
     @Override
     public void doRun(){
         try {
@@ -44,6 +55,14 @@ public class Application extends EntryPoint{
         } catch (IOException ex) {
             Logger.logError("Application.doRun", ex);
         }
+        try {
+            // jobs share browsers with the runs started from the GUI
+            jobScheduler = new JobScheduler(getResources(), webDriverLoader.getSessionPool())
+                .start(JobScheduler.DEFAULT_PARALLEL_JOBS);
+        } catch (IOException ex) {
+            Logger.logError("Application.doRun", "Unable to load the job queue:");
+            Logger.logError("Application.doRun", ex);
+        }
         ApplicationWindow w = new ApplicationWindow(this); //automatically listens to window
     }
     
@@ -0,0 +1,93 @@
+package application;
+
+import automationSamples.AccountBalanceAutomation;
+import automationSamples.BlanketPurchaseOrder;
+import automationSamples.GoogleSearch;
+import automationSamples.PurchaseOrderAutomation;
+import automationSamples.PurchaseOrderInfoAutomation;
+import automationSamples.RequisitionAutomation;
+import automationSamples.TableTest;
+import automationTools.AbstractAutomation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The AutomationRegistry lists every automation
+ * the program can run, so the GUI and the command line
+ * offer the same ones. To add a new automation,
+ * add its class to AUTOMATIONS.
+ * 
+ * @author Matt Crow
+ */
+public final class AutomationRegistry {
+    private static final List<Class<? extends AbstractAutomation>> AUTOMATIONS = Collections.unmodifiableList(Arrays.asList(
+        GoogleSearch.class,
+        TableTest.class,
+        AccountBalanceAutomation.class,
+        RequisitionAutomation.class,
+        PurchaseOrderAutomation.class,
+        PurchaseOrderInfoAutomation.class,
+        BlanketPurchaseOrder.class
+    ));
+    
+    public AutomationRegistry(){
+        throw new RuntimeException("AutomationRegistry is a static class, so you needn't instantiate it");
+    }
+    
+    public static List<Class<? extends AbstractAutomation>> getAutomations(){
+        return AUTOMATIONS;
+    }
+    
+    /**
+     * Creates one of each automation, such as
+     * to show their names and descriptions.
+     * 
+     * @return a new instance of each automation, in the order they were registered
+     */
+    public static AbstractAutomation[] createAll(){
+        AbstractAutomation[] ret = new AbstractAutomation[AUTOMATIONS.size()];
+        for(int i = 0; i < ret.length; i++){
+            ret[i] = create(AUTOMATIONS.get(i));
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @param aClass the class of an automation
+     * @return a new instance of that automation
+     * @throws IllegalArgumentException if the automation cannot be created
+     */
+    public static AbstractAutomation create(Class<? extends AbstractAutomation> aClass){
+        try {
+            return aClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new IllegalArgumentException("Cannot create " + aClass.getName() + ". It needs a public constructor which takes no parameters.", ex);
+        }
+    }
+    
+    /**
+     * Finds an automation by either its class name, such as
+     * "PurchaseOrderAutomation", or the name it shows in the GUI.
+     * Case, spaces, and punctuation are ignored.
+     * 
+     * @param name the name of the automation to find
+     * @return the automation's class, or null if no automation has that name
+     */
+    public static Class<? extends AbstractAutomation> find(String name){
+        String key = toKey(name);
+        Class<? extends AbstractAutomation> ret = null;
+        for(int i = 0; i < AUTOMATIONS.size() && ret == null; i++){
+            Class<? extends AbstractAutomation> aClass = AUTOMATIONS.get(i);
+            if(toKey(aClass.getSimpleName()).equals(key) || toKey(create(aClass).getName()).equals(key)){
+                ret = aClass;
+            }
+        }
+        return ret;
+    }
+    
+    private static String toKey(String name){
+        return name.replaceAll("[^a-zA-Z0-9]", "").toLowerCase();
+    }
+}
@@ -0,0 +1,576 @@
+package application;
+
+import automationTools.AbstractAutomation;
+import automationTools.AbstractPeopleSoftAutomation;
+import automationTools.AbstractQueryGatherAutomation;
+import automationTools.AutomationPipeline;
+import automationTools.QueryJournal;
+import automationTools.ResultCache;
+import automationTools.RunMetrics;
+import automationTools.StreamingResultSink;
+import io.FileSystem;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import logging.Logger;
+import main.EntryPoint;
+import util.Browser;
+import util.LaunchProfile;
+
+/**
+ * The CommandLineRunner runs one automation without
+ * any GUI, so runs can be scheduled, such as with cron,
+ * on machines nobody is watching. Queries are streamed
+ * from the input file, and results are written to the
+ * output file as they are read, so there are no prompts.
+ * 
+ * Only automations which take a query file can be run this way.
+ * Run with --help for the options.
+ * 
+ * Automations can be chained with --then, so each one
+ * runs queries for the rows the one before it reads,
+ * as they are read.
+ * 
+ * Runs can also be added to the job queue with --submit,
+ * and the queue can be run with --run-jobs, which
+ * exits once no jobs are left.
+ * 
+ * The program exits with 0 if every query succeeded,
+ * 1 if any failed or the automation crashed,
+ * and 2 if the arguments were invalid.
+ * With --run-jobs, it exits with 0 if every job it ran succeeded.
+ * 
+ * @author Matt Crow
+ */
+public class CommandLineRunner extends EntryPoint{
+    public static final int EXIT_SUCCESS = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+    
+    private static final String USAGE = String.join("\n",
+        "Usage: java -cp Application.jar application.CommandLineRunner --automation NAME --input FILE --output FILE [options]",
+        "       java -cp Application.jar application.CommandLineRunner --submit --automation NAME --input FILE --output FILE [options]",
+        "       java -cp Application.jar application.CommandLineRunner --run-jobs [--parallel N] [--driver FILE --browser BROWSER]",
+        "       java -cp Application.jar application.CommandLineRunner --jobs",
+        "",
+        "Required:",
+        "  --automation NAME   the automation to run, by class name or the name shown in the GUI. See --list",
+        "  --input FILE        the CSV file of queries",
+        "  --output FILE       the CSV file to write results to. It is overwritten",
+        "",
+        "Options:",
+        "  --browser BROWSER   CHROME, FIRE_FOX, or EDGE. Defaults to CHROME",
+        "  --driver FILE       the WebDriver executable for the browser, if it isn't saved in the program folder yet",
+        "  --workers N         how many browsers to run queries in at once. Defaults to 1",
+        "  --headless          don't show the browser windows. They are " + LaunchProfile.DEFAULT_WIDTH + "x" + LaunchProfile.DEFAULT_HEIGHT + " pixels",
+        "  --fast              headless, and don't load images, stylesheets, or fonts",
+        "  --http              PeopleSoft automations only: submit queries over HTTP instead of in the browser",
+        "  --concurrency N     with --http, how many queries to submit at once",
+        "  --resume            skip queries finished by the last run of this automation on the same input and output, if it didn't finish",
+        "  --cache HOURS       reuse the results of queries this automation ran in the last HOURS hours, instead of running them again.",
+        "                      Repeated queries are only run once either way",
+        "  --cache-size MB     with --cache, how big the cache can get before the least recently used results are deleted. Defaults to "
+            + FileSystem.RESULT_CACHE_CAP / 1024 / 1024,
+        "",
+        "Pipelines:",
+        "  --then NAME         run another automation at the same time, with each row the one before it reads as a query.",
+        "                      Can be given more than once. The last automation's results go to the output file",
+        "  --keep-intermediate with --then, also save the results of every automation but the last next to the output file",
+        "",
+        "Job queue:",
+        "  --submit            add the run to the job queue instead of running it now",
+        "  --priority N        jobs with higher priorities run first. Defaults to 0",
+        "  --attempts N        how many times to try the job before giving up. Defaults to 3",
+        "  --run-jobs          run the jobs in the queue, including ones submitted while running, then exit once none are left",
+        "  --parallel N        with --run-jobs, how many jobs to run at once. Defaults to 1",
+        "  --jobs              list the jobs in the queue, then exit",
+        "",
+        "  --list              list the automations which can be run, then exit",
+        "  --help              show this message, then exit"
+    );
+    
+    private final Options options;
+    private int exitCode;
+    private ResultCache resultCache;
+    
+    /**
+     * What the command line arguments ask for.
+     */
+    private static enum Mode {
+        /*
+        Run one automation now.
+        */
+        RUN,
+        /*
+        Add one automation to the job queue.
+        */
+        SUBMIT,
+        /*
+        Run the job queue until it is empty.
+        */
+        RUN_JOBS
+    }
+    
+    /**
+     * The values of the command line arguments.
+     */
+    private static class Options {
+        private Mode mode = Mode.RUN;
+        private Class<? extends AbstractAutomation> automation = null;
+        private Path input = null;
+        private Path output = null;
+        private Browser browser = Browser.CHROME;
+        private String driverPath = null;
+        private int workers = 1;
+        private LaunchProfile profile = new LaunchProfile();
+        private boolean http = false;
+        private int concurrency = AbstractPeopleSoftAutomation.DEFAULT_HTTP_CONCURRENCY;
+        private boolean resume = false;
+        private int priority = Job.DEFAULT_PRIORITY;
+        private int attempts = Job.DEFAULT_MAX_ATTEMPTS;
+        private int parallel = JobScheduler.DEFAULT_PARALLEL_JOBS;
+        private final List<Class<? extends AbstractAutomation>> then = new ArrayList<>();
+        private boolean keepIntermediate = false;
+        private int cacheHours = 0; // 0 means results are only reused within the run
+        private long cacheSize = FileSystem.RESULT_CACHE_CAP;
+        
+        private Job toJob(){
+            return new Job(automation, input, output, browser, profile, workers, http, concurrency, priority, attempts);
+        }
+    }
+    
+    private CommandLineRunner(Options options){
+        super();
+        this.options = options;
+        exitCode = EXIT_FAILURE;
+        resultCache = null;
+    }
+    
+    /**
+     * Names the log file after the automation and this process,
+     * so any number of runs can go at the same time, even of
+     * the same automation, without sharing a log file.
+     * 
+     * @return the name of the log file for this run
+     */
+    @Override
+    protected String getLogName(){
+        // the JVM's name is "pid@host" on every common platform
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        return getClass().getSimpleName() + "-" + ((options.mode == Mode.RUN_JOBS) ? "Jobs" : options.automation.getSimpleName()) + "-" + pid;
+    }
+    
+    @Override
+    public void doRun(){
+        WebDriverLoader drivers = new WebDriverLoader(this);
+        try {
+            drivers.init();
+            if(options.driverPath != null){
+                drivers.loadWebDriver(options.browser, options.driverPath);
+            }
+        } catch (IOException ex) {
+            Logger.logError("CommandLineRunner.doRun", ex);
+        }
+        
+        if(options.mode == Mode.RUN_JOBS){
+            runJobs(drivers.getSessionPool());
+            return;
+        }
+        if(!options.then.isEmpty()){
+            runPipeline();
+            return;
+        }
+        
+        try {
+            AbstractQueryGatherAutomation aa = options.toJob().createAutomation();
+            QueryJournal journal = attachJournal(aa);
+            attachCache(aa);
+            // no pool, so the browsers are closed once the run is done
+            aa.run(options.browser, options.profile, null);
+            journal.deleteIfFinished();
+            RunMetrics metrics = aa.getMetrics();
+            metrics.writeReport(getResources(), aa.getName());
+            exitCode = (metrics.getFailed() == 0) ? EXIT_SUCCESS : EXIT_FAILURE;
+        } catch (Exception ex) {
+            Logger.logError("CommandLineRunner.doRun", ex);
+            exitCode = EXIT_FAILURE;
+        }
+    }
+    
+    /**
+     * Runs the automation, and each automation after --then,
+     * all at once, with each one's results fed into the next
+     * as queries. Only the last one's results are written to
+     * the output file, unless --keep-intermediate is set.
+     */
+    private void runPipeline(){
+        List<AbstractQueryGatherAutomation> stages = new ArrayList<>();
+        try {
+            AbstractQueryGatherAutomation first = options.toJob().createAutomation();
+            // the output file is for the last stage, so close the one the job opened for the first
+            first.getResultSink().close();
+            attachCache(first);
+            stages.add(first);
+            AutomationPipeline pipeline = new AutomationPipeline(first);
+            AbstractQueryGatherAutomation last = first;
+            for(Class<? extends AbstractAutomation> aClass : options.then){
+                if(options.keepIntermediate){
+                    last.setResultSink(new StreamingResultSink(intermediateFile(last).toFile()));
+                } else {
+                    last.setResultSink(null);
+                }
+                AbstractQueryGatherAutomation next = (AbstractQueryGatherAutomation)AutomationRegistry.create(aClass);
+                next.setWorkerCount(options.workers);
+                if(next instanceof AbstractPeopleSoftAutomation && options.http){
+                    ((AbstractPeopleSoftAutomation)next)
+                        .setQueryMode(AbstractPeopleSoftAutomation.QueryMode.HTTP)
+                        .setHttpConcurrency(options.concurrency);
+                }
+                attachCache(next);
+                pipeline.then(next);
+                stages.add(next);
+                last = next;
+            }
+            last.setResultSink(new StreamingResultSink(options.output.toFile()));
+            
+            pipeline.run(options.browser, options.profile, null);
+            exitCode = EXIT_SUCCESS;
+        } catch (Exception ex) {
+            Logger.logError("CommandLineRunner.runPipeline", ex);
+            exitCode = EXIT_FAILURE;
+        }
+        for(AbstractQueryGatherAutomation stage : stages){
+            stage.getMetrics().writeReport(getResources(), stage.getName());
+            if(stage.getMetrics().getFailed() > 0){
+                exitCode = EXIT_FAILURE;
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @param stage a stage of the pipeline which isn't the last
+     * @return the file to keep its results in, next to the output file
+     */
+    private Path intermediateFile(AbstractQueryGatherAutomation stage){
+        String name = options.output.getFileName().toString().replaceFirst("\\.csv$", "");
+        return options.output.resolveSibling(name + "-" + stage.getClass().getSimpleName() + ".csv");
+    }
+    
+    /**
+     * Runs the job queue until there are no jobs left
+     * for this program to run. Jobs submitted while
+     * it runs are run too.
+     * 
+     * @param pool the pool the jobs share browsers from
+     */
+    private void runJobs(WebDriverPool pool){
+        try {
+            JobScheduler scheduler = new JobScheduler(getResources(), pool).start(options.parallel);
+            long startedAt = System.currentTimeMillis();
+            // the scheduler keeps checking the job file, so jobs submitted while this waits are run too
+            do {
+                Thread.sleep(JobScheduler.POLL_INTERVAL);
+            } while(scheduler.isBusy());
+            scheduler.stop();
+            scheduler.awaitTermination(JobScheduler.POLL_INTERVAL);
+            
+            boolean anyFailed = scheduler.getJobs().stream()
+                .filter((job)->job.getFinished() >= startedAt)
+                .anyMatch((job)->job.getStatus() == Job.Status.FAILED);
+            exitCode = (anyFailed) ? EXIT_FAILURE : EXIT_SUCCESS;
+        } catch (IOException | InterruptedException ex) {
+            Logger.logError("CommandLineRunner.runJobs", ex);
+            exitCode = EXIT_FAILURE;
+        }
+        pool.closeAll();
+    }
+    
+    /**
+     * Gives the automation a journal to record its progress in.
+     * The journal belongs to this automation, input file, and output file,
+     * so --resume only skips queries from an earlier run on the same files,
+     * and runs on other files don't touch it.
+     * 
+     * @param aa the automation to attach a journal to
+     * @return the journal
+     * @throws IOException if the journal cannot be read
+     */
+    private QueryJournal attachJournal(AbstractQueryGatherAutomation aa) throws IOException{
+        QueryJournal journal = new QueryJournal(getResources().getJournalPath(QueryJournal.getName(aa.getName(), options.input, options.output)));
+        boolean resume = options.resume && journal.canResume();
+        if(options.resume && !resume){
+            Logger.log("CommandLineRunner.attachJournal", "The last run of " + aa.getName() + " from " + options.input + " to " + options.output + " finished, so there is nothing to resume");
+        }
+        aa.setJournal(journal, resume);
+        return journal;
+    }
+    
+    /**
+     * With --cache, gives the automation the result cache
+     * in the cache folder, so queries run by earlier runs are skipped.
+     * Every automation in the run shares the same cache.
+     * 
+     * @param aa the automation to give the cache to
+     * @throws IOException if the cache folder cannot be created or read
+     */
+    private void attachCache(AbstractQueryGatherAutomation aa) throws IOException{
+        if(options.cacheHours == 0){
+            return;
+        }
+        if(resultCache == null){
+            resultCache = new ResultCache(
+                getResources().getResultCacheFolder(),
+                TimeUnit.HOURS.toMillis(options.cacheHours),
+                options.cacheSize,
+                ResultCache.DEFAULT_MEMORY_ENTRIES
+            );
+            resultCache.open();
+        }
+        aa.setResultCache(resultCache);
+    }
+    
+    /**
+     * 
+     * @param args the command line arguments
+     * @return the options they set
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    private static Options parse(String[] args){
+        Options ret = new Options();
+        boolean headless = false;
+        boolean fast = false;
+        for(int i = 0; i < args.length; i++){
+            String arg = args[i];
+            switch(arg){
+                case "--automation":
+                    ret.automation = findQueryAutomation(value(args, ++i, arg));
+                    break;
+                case "--then":
+                    ret.then.add(findQueryAutomation(value(args, ++i, arg)));
+                    break;
+                case "--keep-intermediate":
+                    ret.keepIntermediate = true;
+                    break;
+                case "--input":
+                    // absolute, since a submitted job may be run from another folder
+                    ret.input = Paths.get(value(args, ++i, arg)).toAbsolutePath();
+                    if(!ret.input.toFile().isFile()){
+                        throw new IllegalArgumentException("Input file " + ret.input + " does not exist");
+                    }
+                    break;
+                case "--output":
+                    ret.output = Paths.get(value(args, ++i, arg)).toAbsolutePath();
+                    break;
+                case "--browser":
+                    String browser = value(args, ++i, arg);
+                    try {
+                        ret.browser = Browser.valueOf(browser.toUpperCase());
+                    } catch(IllegalArgumentException ex){
+                        throw new IllegalArgumentException("Unknown browser: " + browser);
+                    }
+                    break;
+                case "--driver":
+                    ret.driverPath = value(args, ++i, arg);
+                    break;
+                case "--workers":
+                    ret.workers = intValue(args, ++i, arg);
+                    break;
+                case "--headless":
+                    headless = true;
+                    break;
+                case "--fast":
+                    fast = true;
+                    break;
+                case "--http":
+                    ret.http = true;
+                    break;
+                case "--concurrency":
+                    ret.concurrency = intValue(args, ++i, arg);
+                    break;
+                case "--resume":
+                    ret.resume = true;
+                    break;
+                case "--cache":
+                    ret.cacheHours = intValue(args, ++i, arg);
+                    break;
+                case "--cache-size":
+                    ret.cacheSize = intValue(args, ++i, arg) * 1024L * 1024L;
+                    break;
+                case "--submit":
+                    ret.mode = Mode.SUBMIT;
+                    break;
+                case "--priority":
+                    String priority = value(args, ++i, arg);
+                    try {
+                        ret.priority = Integer.parseInt(priority);
+                    } catch(NumberFormatException ex){
+                        throw new IllegalArgumentException(arg + " must be a number, not " + priority);
+                    }
+                    break;
+                case "--attempts":
+                    ret.attempts = intValue(args, ++i, arg);
+                    break;
+                case "--run-jobs":
+                    ret.mode = Mode.RUN_JOBS;
+                    break;
+                case "--parallel":
+                    ret.parallel = intValue(args, ++i, arg);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        // --fast is already headless, so the two can be given together, in either order
+        if(fast){
+            ret.profile = LaunchProfile.fast();
+        } else if(headless){
+            // headless browsers default to a tiny window, which can change how pages are laid out
+            ret.profile.setHeadless(true).setWindowSize(LaunchProfile.DEFAULT_WIDTH, LaunchProfile.DEFAULT_HEIGHT);
+        }
+        if(ret.mode != Mode.RUN_JOBS && (ret.automation == null || ret.input == null || ret.output == null)){
+            throw new IllegalArgumentException("--automation, --input, and --output are required");
+        }
+        if(!ret.then.isEmpty() && (ret.mode != Mode.RUN || ret.resume)){
+            throw new IllegalArgumentException("--then can't be used with --submit, --run-jobs, or --resume");
+        }
+        if(ret.cacheHours > 0 && ret.mode != Mode.RUN){
+            throw new IllegalArgumentException("--cache can't be used with --submit or --run-jobs");
+        }
+        return ret;
+    }
+    
+    private static Class<? extends AbstractAutomation> findQueryAutomation(String name){
+        Class<? extends AbstractAutomation> ret = AutomationRegistry.find(name);
+        if(ret == null){
+            throw new IllegalArgumentException("No automation is named " + name + ". Use --list to see them.");
+        }
+        if(!AbstractQueryGatherAutomation.class.isAssignableFrom(ret)){
+            throw new IllegalArgumentException(name + " doesn't take a query file, so it can only be run from the GUI");
+        }
+        return ret;
+    }
+    
+    private static String value(String[] args, int i, String flag){
+        if(i >= args.length){
+            throw new IllegalArgumentException(flag + " needs a value");
+        }
+        return args[i];
+    }
+    
+    private static int intValue(String[] args, int i, String flag){
+        String v = value(args, i, flag);
+        int ret;
+        try {
+            ret = Integer.parseInt(v);
+        } catch(NumberFormatException ex){
+            throw new IllegalArgumentException(flag + " must be a number, not " + v);
+        }
+        if(ret < 1){
+            throw new IllegalArgumentException(flag + " must be at least 1, not " + v);
+        }
+        return ret;
+    }
+    
+    private static void listAutomations(){
+        for(AbstractAutomation aa : AutomationRegistry.createAll()){
+            String note = (aa instanceof AbstractQueryGatherAutomation) ? "" : " (GUI only)";
+            System.out.println(String.format("%-30s %s%s", aa.getClass().getSimpleName(), aa.getName(), note));
+        }
+    }
+    
+    /**
+     * Adds the run described by the options to the job queue,
+     * without running it.
+     * 
+     * @param options the run to submit
+     * @return the exit code
+     */
+    private static int submit(Options options){
+        int ret = EXIT_FAILURE;
+        try {
+            JobScheduler scheduler = new JobScheduler(new FileSystem(), null);
+            Job job = options.toJob();
+            scheduler.submit(job);
+            System.out.println("Submitted job " + job.getId());
+            System.out.println("Run it with --run-jobs, or by opening the job queue in the GUI");
+            ret = EXIT_SUCCESS;
+        } catch (IOException ex) {
+            System.err.println("Failed to submit job:");
+            ex.printStackTrace();
+        }
+        return ret;
+    }
+    
+    private static int listJobs(){
+        int ret = EXIT_FAILURE;
+        try {
+            JobScheduler scheduler = new JobScheduler(new FileSystem(), null);
+            scheduler.refresh();
+            List<Job> jobs = scheduler.getJobs();
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+            System.out.println(String.format("%-8s  %-9s  %-8s  %-8s  %-16s  %-30s  %s", "ID", "STATUS", "PRIORITY", "ATTEMPTS", "SUBMITTED", "AUTOMATION", "INPUT"));
+            for(Job job : jobs){
+                System.out.println(String.format("%-8s  %-9s  %8d  %4d / %-3d  %-16s  %-30s  %s",
+                    job.getShortId(),
+                    job.getStatus(),
+                    job.getPriority(),
+                    job.getAttempts(),
+                    job.getMaxAttempts(),
+                    format.format(new Date(job.getSubmitted())),
+                    job.getAutomation().getSimpleName(),
+                    job.getInput()
+                ));
+                if(job.getLastError() != null){
+                    System.out.println("          last error: " + job.getLastError());
+                }
+            }
+            System.out.println(jobs.size() + " job(s)");
+            ret = EXIT_SUCCESS;
+        } catch (IOException ex) {
+            System.err.println("Failed to read the job queue:");
+            ex.printStackTrace();
+        }
+        return ret;
+    }
+    
+    public static void main(String[] args){
+        int exitCode;
+        if(args.length == 0 || args[0].equals("--help")){
+            System.out.println(USAGE);
+            exitCode = (args.length == 0) ? EXIT_USAGE : EXIT_SUCCESS;
+        } else if(args[0].equals("--list")){
+            listAutomations();
+            exitCode = EXIT_SUCCESS;
+        } else if(args[0].equals("--jobs")){
+            exitCode = listJobs();
+        } else {
+            Options options = null;
+            try {
+                options = parse(args);
+            } catch(IllegalArgumentException ex){
+                System.err.println(ex.getMessage());
+                System.err.println("Use --help to see the options.");
+            }
+            if(options == null){
+                exitCode = EXIT_USAGE;
+            } else if(options.mode == Mode.SUBMIT){
+                exitCode = submit(options);
+            } else {
+                CommandLineRunner runner = new CommandLineRunner(options);
+                runner.run();
+                exitCode = runner.exitCode;
+                // the log is named after this process, so nothing will add to it again
+                runner.archiveLog();
+            }
+        }
+        Logger.flush();
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,414 @@
+package application;
+
+import automationTools.AbstractAutomation;
+import automationTools.AbstractPeopleSoftAutomation;
+import automationTools.AbstractQueryGatherAutomation;
+import automationTools.StreamingResultSink;
+import csv.CsvParser;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import util.Browser;
+import util.LaunchProfile;
+
+/**
+ * A Job is one run of an automation which takes a query file,
+ * waiting in the JobScheduler's queue: which automation to run,
+ * which file to read queries from, where to write the results,
+ * and how to run it.
+ * 
+ * Jobs with a higher priority are run first. Jobs which fail
+ * are run again until they have been tried maxAttempts times.
+ * 
+ * Jobs are saved as JSON, so the queue outlives the program,
+ * and so jobs can be submitted from the command line.
+ * The settings of a job can't be changed once it is created,
+ * but its status can.
+ * 
+ * @see JobScheduler
+ * @author Matt Crow
+ */
+public class Job {
+    public static final int DEFAULT_PRIORITY = 0;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    
+    /**
+     * Where a job is in its life cycle.
+     */
+    public static enum Status {
+        /*
+        Waiting for a scheduler to run it, either for the first time or to retry it.
+        */
+        QUEUED,
+        /*
+        Being run by a scheduler.
+        */
+        RUNNING,
+        /*
+        Every query ran successfully.
+        */
+        SUCCEEDED,
+        /*
+        The last attempt failed, and there are no attempts left.
+        */
+        FAILED,
+        /*
+        The user removed the job from the queue before it ran.
+        */
+        CANCELLED;
+        
+        /**
+         * 
+         * @return whether or not a job with this status will never run again on its own
+         */
+        public boolean isFinished(){
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+    
+    private final String id;
+    private final Class<? extends AbstractAutomation> automation;
+    private final Path input;
+    private final Path output;
+    private final Browser browser;
+    private final LaunchProfile profile;
+    private final int workers;
+    private final boolean http;
+    private final int concurrency;
+    private final int priority;
+    private final int maxAttempts;
+    private final long submitted;
+    
+    private Status status;
+    private int attempts;
+    private String owner;
+    private String lastError;
+    private long finished;
+    
+    /**
+     * Creates a new job, which is queued.
+     * 
+     * @param automation the automation to run. It must be an AbstractQueryGatherAutomation
+     * @param input the CSV file of queries
+     * @param output the CSV file to write results to. It is overwritten
+     * @param browser the browser to run the automation in
+     * @param profile how to launch the browser
+     * @param workers how many browsers to run queries in at once
+     * @param priority jobs with higher priorities are run first
+     * @param maxAttempts how many times to try running the job before giving up
+     */
+    public Job(Class<? extends AbstractAutomation> automation, Path input, Path output, Browser browser, LaunchProfile profile, int workers, int priority, int maxAttempts){
+        this(automation, input, output, browser, profile, workers, false, AbstractPeopleSoftAutomation.DEFAULT_HTTP_CONCURRENCY, priority, maxAttempts);
+    }
+    
+    /**
+     * Creates a new job, which is queued.
+     * 
+     * @param automation the automation to run. It must be an AbstractQueryGatherAutomation
+     * @param input the CSV file of queries
+     * @param output the CSV file to write results to. It is overwritten
+     * @param browser the browser to run the automation in
+     * @param profile how to launch the browser
+     * @param workers how many browsers to run queries in at once
+     * @param http PeopleSoft automations only: whether to submit queries over HTTP instead of in the browser
+     * @param concurrency with http, how many queries to submit at once
+     * @param priority jobs with higher priorities are run first
+     * @param maxAttempts how many times to try running the job before giving up
+     */
+    public Job(Class<? extends AbstractAutomation> automation, Path input, Path output, Browser browser, LaunchProfile profile, int workers, boolean http, int concurrency, int priority, int maxAttempts){
+        this(UUID.randomUUID().toString(), automation, input, output, browser, profile, workers, http, concurrency, priority, maxAttempts, System.currentTimeMillis());
+    }
+    
+    private Job(String id, Class<? extends AbstractAutomation> automation, Path input, Path output, Browser browser, LaunchProfile profile, int workers, boolean http, int concurrency, int priority, int maxAttempts, long submitted){
+        if(!AbstractQueryGatherAutomation.class.isAssignableFrom(automation)){
+            throw new IllegalArgumentException(automation.getName() + " doesn't take a query file, so it can't be run as a job");
+        }
+        if(workers < 1 || concurrency < 1 || maxAttempts < 1){
+            throw new IllegalArgumentException(String.format("Workers, concurrency, and max attempts must be at least 1: workers=%d concurrency=%d maxAttempts=%d", workers, concurrency, maxAttempts));
+        }
+        this.id = id;
+        this.automation = automation;
+        this.input = input;
+        this.output = output;
+        this.browser = browser;
+        this.profile = profile.copy();
+        this.workers = workers;
+        this.http = http;
+        this.concurrency = concurrency;
+        this.priority = priority;
+        this.maxAttempts = maxAttempts;
+        this.submitted = submitted;
+        status = Status.QUEUED;
+        attempts = 0;
+        owner = null;
+        lastError = null;
+        finished = 0;
+    }
+    
+    public String getId(){
+        return id;
+    }
+    
+    public Class<? extends AbstractAutomation> getAutomation(){
+        return automation;
+    }
+    
+    public Path getInput(){
+        return input;
+    }
+    
+    public Path getOutput(){
+        return output;
+    }
+    
+    public Browser getBrowser(){
+        return browser;
+    }
+    
+    public LaunchProfile getLaunchProfile(){
+        return profile.copy();
+    }
+    
+    public int getPriority(){
+        return priority;
+    }
+    
+    public int getMaxAttempts(){
+        return maxAttempts;
+    }
+    
+    public long getSubmitted(){
+        return submitted;
+    }
+    
+    public synchronized Status getStatus(){
+        return status;
+    }
+    
+    public synchronized int getAttempts(){
+        return attempts;
+    }
+    
+    /**
+     * 
+     * @return the scheduler running this job, or null if none is
+     */
+    public synchronized String getOwner(){
+        return owner;
+    }
+    
+    /**
+     * 
+     * @return the reason the last attempt failed, or null if it didn't
+     */
+    public synchronized String getLastError(){
+        return lastError;
+    }
+    
+    /**
+     * 
+     * @return when the job succeeded, failed, or was cancelled, or 0 if it hasn't yet
+     */
+    public synchronized long getFinished(){
+        return finished;
+    }
+    
+    /**
+     * 
+     * @return whether or not another attempt may be made after this one fails
+     */
+    public synchronized boolean canRetry(){
+        return attempts < maxAttempts;
+    }
+    
+    /**
+     * Marks this job as being run by the given scheduler,
+     * and counts the attempt.
+     * 
+     * @param schedulerId the scheduler running this job
+     */
+    synchronized void start(String schedulerId){
+        status = Status.RUNNING;
+        owner = schedulerId;
+        attempts++;
+    }
+    
+    synchronized void succeed(){
+        status = Status.SUCCEEDED;
+        owner = null;
+        lastError = null;
+        finished = System.currentTimeMillis();
+    }
+    
+    /**
+     * Records why the last attempt failed, then either
+     * queues the job again, or fails it if it has no attempts left.
+     * 
+     * @param reason why the attempt failed
+     */
+    synchronized void fail(String reason){
+        lastError = reason;
+        owner = null;
+        if(canRetry()){
+            status = Status.QUEUED;
+        } else {
+            status = Status.FAILED;
+            finished = System.currentTimeMillis();
+        }
+    }
+    
+    synchronized void cancel(){
+        status = Status.CANCELLED;
+        owner = null;
+        finished = System.currentTimeMillis();
+    }
+    
+    /**
+     * Queues a finished job again, with all its attempts.
+     * Also used for jobs left RUNNING by a scheduler which crashed.
+     */
+    synchronized void requeue(){
+        status = Status.QUEUED;
+        owner = null;
+        attempts = 0;
+        finished = 0;
+    }
+    
+    /**
+     * Copies the status of another copy of this job,
+     * such as one read from the job file.
+     * 
+     * @param other a copy of this job
+     */
+    synchronized void copyStatus(Job other){
+        if(!id.equals(other.id)){
+            throw new IllegalArgumentException("Cannot copy the status of a different job");
+        }
+        synchronized(other){
+            status = other.status;
+            attempts = other.attempts;
+            owner = other.owner;
+            lastError = other.lastError;
+            finished = other.finished;
+        }
+    }
+    
+    /**
+     * Creates the automation this job runs, and sets it up
+     * to read queries from the input file, and write
+     * results to the output file as they are read.
+     * 
+     * @return the automation, ready to run
+     * @throws IOException if the input file cannot be read, or the output file cannot be created
+     */
+    public AbstractQueryGatherAutomation createAutomation() throws IOException{
+        AbstractQueryGatherAutomation aa = (AbstractQueryGatherAutomation)AutomationRegistry.create(automation);
+        aa.setQuerySource(CsvParser.read(input));
+        aa.setResultSink(new StreamingResultSink(output.toFile()));
+        aa.setWorkerCount(workers);
+        if(aa instanceof AbstractPeopleSoftAutomation && http){
+            ((AbstractPeopleSoftAutomation)aa)
+                .setQueryMode(AbstractPeopleSoftAutomation.QueryMode.HTTP)
+                .setHttpConcurrency(concurrency);
+        }
+        return aa;
+    }
+    
+    public synchronized JsonObject toJson(){
+        JsonObjectBuilder b = Json.createObjectBuilder()
+            .add("id", id)
+            .add("automation", automation.getName())
+            .add("input", input.toString())
+            .add("output", output.toString())
+            .add("browser", browser.toString())
+            .add("profile", Json.createObjectBuilder()
+                .add("headless", profile.isHeadless())
+                .add("blockImages", profile.blocksImages())
+                .add("blockStylesheets", profile.blocksStylesheets())
+                .add("blockFonts", profile.blocksFonts())
+                .add("disableExtensions", profile.disablesExtensions())
+                .add("windowWidth", profile.getWindowWidth())
+                .add("windowHeight", profile.getWindowHeight())
+            )
+            .add("workers", workers)
+            .add("http", http)
+            .add("concurrency", concurrency)
+            .add("priority", priority)
+            .add("maxAttempts", maxAttempts)
+            .add("submitted", submitted)
+            .add("status", status.toString())
+            .add("attempts", attempts)
+            .add("finished", finished);
+        if(owner != null){
+            b.add("owner", owner);
+        }
+        if(lastError != null){
+            b.add("lastError", lastError);
+        }
+        return b.build();
+    }
+    
+    /**
+     * 
+     * @param obj a job saved with toJson
+     * @return the job
+     * @throws IllegalArgumentException if the JSON isn't a valid job, such as if its automation no longer exists
+     */
+    public static Job fromJson(JsonObject obj){
+        Job ret;
+        try {
+            String className = obj.getString("automation");
+            Class<? extends AbstractAutomation> aClass = AutomationRegistry.getAutomations().stream()
+                .filter((c)->c.getName().equals(className))
+                .findFirst()
+                .orElseThrow(()->new IllegalArgumentException("No automation is named " + className));
+            JsonObject p = obj.getJsonObject("profile");
+            LaunchProfile profile = new LaunchProfile()
+                .setHeadless(p.getBoolean("headless"))
+                .setBlockImages(p.getBoolean("blockImages"))
+                .setBlockStylesheets(p.getBoolean("blockStylesheets"))
+                .setBlockFonts(p.getBoolean("blockFonts"))
+                .setDisableExtensions(p.getBoolean("disableExtensions"))
+                .setWindowSize(p.getInt("windowWidth"), p.getInt("windowHeight"));
+            ret = new Job(
+                obj.getString("id"),
+                aClass,
+                Paths.get(obj.getString("input")),
+                Paths.get(obj.getString("output")),
+                Browser.valueOf(obj.getString("browser")),
+                profile,
+                obj.getInt("workers"),
+                obj.getBoolean("http"),
+                obj.getInt("concurrency"),
+                obj.getInt("priority"),
+                obj.getInt("maxAttempts"),
+                obj.getJsonNumber("submitted").longValue()
+            );
+            ret.status = Status.valueOf(obj.getString("status"));
+            ret.attempts = obj.getInt("attempts");
+            ret.finished = obj.getJsonNumber("finished").longValue();
+            ret.owner = obj.getString("owner", null);
+            ret.lastError = obj.getString("lastError", null);
+        } catch(NullPointerException | ClassCastException ex){
+            throw new IllegalArgumentException("Invalid job: " + obj, ex);
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @return the first part of this job's ID, which is enough to tell jobs apart in a list
+     */
+    public String getShortId(){
+        return id.substring(0, 8);
+    }
+    
+    @Override
+    public String toString(){
+        return String.format("Job %s: %s on %s -> %s (priority %d, %s, attempt %d of %d)", getShortId(), automation.getSimpleName(), input.getFileName(), output.getFileName(), priority, getStatus(), getAttempts(), maxAttempts);
+    }
+}
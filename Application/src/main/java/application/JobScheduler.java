@@ -0,0 +1,467 @@
+package application;
+
+import automationTools.AbstractQueryGatherAutomation;
+import automationTools.QueryJournal;
+import io.FileSystem;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import logging.Logger;
+
+/**
+ * The JobScheduler runs the jobs in the job queue back to back,
+ * so many automations can be queued up and left to run.
+ * 
+ * A fixed number of worker threads take jobs from the queue,
+ * highest priority first, then oldest first. Every job
+ * leases its browsers from the same WebDriverPool, so each
+ * job after the first starts in an already open browser.
+ * A job fails if the automation crashes, or any of its queries
+ * fail. Failed jobs are queued again after RETRY_DELAY, until
+ * they run out of attempts, and each retry skips the queries
+ * earlier attempts already finished.
+ * 
+ * The queue is saved by a JobStore, and is checked for new
+ * jobs every few seconds, so jobs can be submitted from the
+ * command line while the GUI runs them. Before running a job,
+ * a scheduler claims it in the file, so when several programs
+ * are running jobs, each job is only run by one of them.
+ * If a program crashes while running a job, the job is left
+ * RUNNING until it is requeued.
+ * 
+ * @see Job
+ * @author Matt Crow
+ */
+public class JobScheduler {
+    public static final int DEFAULT_PARALLEL_JOBS = 1;
+    public static final long POLL_INTERVAL = 5000; // 5 seconds
+    public static final long RETRY_DELAY = 30000; // 30 seconds
+    
+    private final String id;
+    private final JobStore store;
+    private final FileSystem resources;
+    private final WebDriverPool pool;
+    private final LinkedHashMap<String, Job> jobs; // every job in the file, including those other programs are running
+    private final PriorityBlockingQueue<QueuedJob> queue;
+    private final Set<String> queuedIds;
+    private final Set<String> runningIds; // the jobs this scheduler is running
+    private final AtomicInteger taken; // jobs workers have taken from the queue, but not finished
+    private final AtomicLong sequence;
+    private ExecutorService workers;
+    private Timer poller;
+    private volatile boolean running;
+    private volatile boolean paused;
+    
+    /**
+     * A job waiting in this scheduler's queue.
+     * Jobs queued at the same priority run in the order they were queued,
+     * so a retried job waits behind the jobs which were already waiting.
+     */
+    private static class QueuedJob {
+        private static final Comparator<QueuedJob> ORDER = Comparator
+            .comparingInt((QueuedJob q)->-q.job.getPriority())
+            .thenComparingLong((q)->q.sequence);
+        
+        private final Job job;
+        private final long sequence;
+        
+        private QueuedJob(Job job, long sequence){
+            this.job = job;
+            this.sequence = sequence;
+        }
+    }
+    
+    /**
+     * 
+     * @param resources the file system to save the job queue, journals, and run reports in
+     * @param pool the pool every job leases its browsers from, or null to launch new browsers for each job
+     * @throws IOException if the job file's folder cannot be created
+     */
+    public JobScheduler(FileSystem resources, WebDriverPool pool) throws IOException{
+        id = UUID.randomUUID().toString();
+        store = new JobStore(resources.getJobQueuePath());
+        this.resources = resources;
+        this.pool = pool;
+        jobs = new LinkedHashMap<>();
+        queue = new PriorityBlockingQueue<>(16, QueuedJob.ORDER);
+        queuedIds = Collections.synchronizedSet(new HashSet<>());
+        runningIds = Collections.synchronizedSet(new HashSet<>());
+        sequence = new AtomicLong(0);
+        taken = new AtomicInteger(0);
+        workers = null;
+        poller = null;
+        running = false;
+        paused = false;
+    }
+    
+    /**
+     * Loads the job queue, then starts running jobs.
+     * 
+     * @param parallelJobs how many jobs to run at once
+     * @return this, for chaining purposes
+     */
+    public synchronized JobScheduler start(int parallelJobs){
+        if(parallelJobs < 1){
+            throw new IllegalArgumentException("Must run at least 1 job at once, not " + parallelJobs);
+        }
+        if(running){
+            throw new IllegalStateException("The JobScheduler is already running");
+        }
+        running = true;
+        refresh();
+        workers = Executors.newFixedThreadPool(parallelJobs, (r)->{
+            Thread t = new Thread(r, "Job worker");
+            t.setDaemon(true);
+            return t;
+        });
+        for(int i = 0; i < parallelJobs; i++){
+            workers.submit(this::work);
+        }
+        poller = new Timer("Job queue poller", true);
+        poller.schedule(new TimerTask(){
+            @Override
+            public void run(){
+                refresh();
+            }
+        }, POLL_INTERVAL, POLL_INTERVAL);
+        Logger.log("JobScheduler.start", String.format("Running %d job(s) at once from %s", parallelJobs, store.getFile()));
+        return this;
+    }
+    
+    /**
+     * Stops taking jobs from the queue.
+     * Jobs which are already running finish first.
+     */
+    public synchronized void stop(){
+        if(!running){
+            return;
+        }
+        running = false;
+        poller.cancel();
+        workers.shutdown();
+    }
+    
+    /**
+     * Waits for the jobs which are running to finish after stop is called.
+     * 
+     * @param millis the longest to wait
+     * @return whether or not every job finished
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long millis) throws InterruptedException{
+        ExecutorService w;
+        synchronized(this){
+            w = workers;
+        }
+        return w == null || w.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * While paused, jobs which are running finish,
+     * but no new ones are started.
+     * 
+     * @param paused whether or not to stop starting jobs
+     * @return this, for chaining purposes
+     */
+    public JobScheduler setPaused(boolean paused){
+        this.paused = paused;
+        Logger.log("JobScheduler.setPaused", (paused) ? "Paused the job queue" : "Resumed the job queue");
+        return this;
+    }
+    
+    public boolean isPaused(){
+        return paused;
+    }
+    
+    /**
+     * Adds a job to the end of the queue,
+     * behind the other jobs with the same priority.
+     * 
+     * @param job the job to run
+     * @throws IOException if the job cannot be saved
+     */
+    public void submit(Job job) throws IOException{
+        store.update((saved)->saved.put(job.getId(), job));
+        synchronized(this){
+            jobs.put(job.getId(), job);
+        }
+        enqueue(job);
+        Logger.log("JobScheduler.submit", "Submitted " + job);
+    }
+    
+    /**
+     * Removes a queued job from the queue.
+     * Jobs which are already running can't be cancelled.
+     * 
+     * @param jobId the ID of the job to cancel
+     * @return whether or not the job was cancelled
+     * @throws IOException if the job file cannot be updated
+     */
+    public boolean cancel(String jobId) throws IOException{
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        LinkedHashMap<String, Job> saved = store.update((all)->{
+            Job job = all.get(jobId);
+            if(job != null && job.getStatus() == Job.Status.QUEUED){
+                job.cancel();
+                cancelled.set(true);
+            }
+        });
+        merge(saved);
+        return cancelled.get();
+    }
+    
+    /**
+     * Queues a job which finished or failed again, with all of its attempts.
+     * This is also how to rerun a job left RUNNING by a program
+     * which crashed, so be sure no other program is still running it.
+     * 
+     * @param jobId the ID of the job to requeue
+     * @return whether or not the job was requeued
+     * @throws IOException if the job file cannot be updated
+     */
+    public boolean requeue(String jobId) throws IOException{
+        if(runningIds.contains(jobId)){
+            return false;
+        }
+        AtomicBoolean requeued = new AtomicBoolean(false);
+        LinkedHashMap<String, Job> saved = store.update((all)->{
+            Job job = all.get(jobId);
+            if(job != null && job.getStatus() != Job.Status.QUEUED){
+                job.requeue();
+                requeued.set(true);
+            }
+        });
+        merge(saved);
+        return requeued.get();
+    }
+    
+    /**
+     * Removes every job which succeeded, failed, or was
+     * cancelled from the job file.
+     * 
+     * @throws IOException if the job file cannot be updated
+     */
+    public void clearFinished() throws IOException{
+        merge(store.update((all)->all.values().removeIf((job)->job.getStatus().isFinished())));
+    }
+    
+    /**
+     * 
+     * @return every job in the queue, including finished ones, in the order they were submitted
+     */
+    public synchronized List<Job> getJobs(){
+        return new ArrayList<>(jobs.values());
+    }
+    
+    /**
+     * 
+     * @return whether or not this scheduler has jobs waiting or running
+     */
+    public boolean isBusy(){
+        return !queuedIds.isEmpty() || taken.get() > 0;
+    }
+    
+    /**
+     * Reads the job file, picking up jobs submitted
+     * or changed by other programs.
+     */
+    public void refresh(){
+        try {
+            merge(store.read());
+        } catch (IOException ex) {
+            Logger.logError("JobScheduler.refresh", ex);
+        }
+    }
+    
+    /**
+     * Updates this scheduler's jobs to match the job file,
+     * queueing any jobs which are waiting to run.
+     * 
+     * @param saved the jobs in the job file
+     */
+    private void merge(LinkedHashMap<String, Job> saved){
+        List<Job> toQueue = new ArrayList<>();
+        synchronized(this){
+            // jobs this scheduler is running keep their own status until they finish
+            jobs.keySet().removeIf((jobId)->!saved.containsKey(jobId) && !runningIds.contains(jobId));
+            saved.values().forEach((job)->{
+                if(runningIds.contains(job.getId())){
+                    return;
+                }
+                Job known = jobs.get(job.getId());
+                if(known == null){
+                    jobs.put(job.getId(), job);
+                    known = job;
+                } else {
+                    known.copyStatus(job);
+                }
+                if(known.getStatus() == Job.Status.QUEUED){
+                    toQueue.add(known);
+                }
+            });
+        }
+        toQueue.forEach(this::enqueue);
+    }
+    
+    private void enqueue(Job job){
+        if(queuedIds.add(job.getId())){
+            queue.add(new QueuedJob(job, sequence.getAndIncrement()));
+        }
+    }
+    
+    /**
+     * Run by each worker thread: takes jobs
+     * from the queue until the scheduler is stopped.
+     */
+    private void work(){
+        QueuedJob next;
+        while(running){
+            next = null;
+            try {
+                if(paused){
+                    Thread.sleep(1000);
+                } else {
+                    next = queue.poll(1, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException ex) {
+                break;
+            }
+            if(next != null){
+                // counted before leaving queuedIds, so the job is never in neither
+                taken.incrementAndGet();
+                queuedIds.remove(next.job.getId());
+                try {
+                    if(claim(next.job)){
+                        runJob(next.job);
+                    }
+                } finally {
+                    taken.decrementAndGet();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Marks the job as RUNNING in the job file,
+     * unless another scheduler already has, or it
+     * has been cancelled or removed.
+     * 
+     * @param job the job to claim
+     * @return whether or not this scheduler should run the job
+     */
+    private boolean claim(Job job){
+        AtomicBoolean claimed = new AtomicBoolean(false);
+        try {
+            LinkedHashMap<String, Job> saved = store.update((all)->{
+                Job current = all.get(job.getId());
+                if(current != null && current.getStatus() == Job.Status.QUEUED){
+                    current.start(id);
+                    claimed.set(true);
+                }
+            });
+            Job current = saved.get(job.getId());
+            if(current != null){
+                job.copyStatus(current);
+            }
+            if(claimed.get()){
+                runningIds.add(job.getId());
+            }
+        } catch (IOException ex) {
+            Logger.logError("JobScheduler.claim", "Failed to claim " + job + ", so it will be tried later:");
+            Logger.logError("JobScheduler.claim", ex);
+        }
+        return claimed.get();
+    }
+    
+    private void runJob(Job job){
+        Logger.log("JobScheduler.runJob", "Starting " + job);
+        String error = null;
+        Path journalPath = null;
+        try {
+            AbstractQueryGatherAutomation aa = job.createAutomation();
+            journalPath = resources.getJournalPath("Job_" + job.getId());
+            QueryJournal journal = new QueryJournal(journalPath);
+            // the journal belongs to this job, so an unfinished one is from an earlier attempt, whose queries can be skipped
+            aa.setJournal(journal, journal.canResume());
+            aa.run(job.getBrowser(), job.getLaunchProfile(), pool);
+            aa.getMetrics().writeReport(resources, aa.getName());
+            long failed = aa.getMetrics().getFailed();
+            if(failed > 0){
+                error = failed + " queries failed";
+            }
+        } catch (Exception ex) {
+            Logger.logError("JobScheduler.runJob", ex);
+            error = ex.toString();
+        }
+        
+        if(error == null){
+            job.succeed();
+            deleteJournal(journalPath);
+        } else {
+            job.fail(error);
+        }
+        Logger.log("JobScheduler.runJob", "Finished " + job + ((error == null) ? "" : ": " + error));
+        try {
+            store.update((all)->all.put(job.getId(), job));
+        } catch (IOException ex) {
+            Logger.logError("JobScheduler.runJob", "Failed to save the status of " + job + ":");
+            Logger.logError("JobScheduler.runJob", ex);
+        }
+        runningIds.remove(job.getId());
+        if(job.getStatus() == Job.Status.QUEUED){
+            retryLater(job);
+        }
+    }
+    
+    /**
+     * Queues a failed job again once RETRY_DELAY has passed,
+     * so problems which go away on their own, such as a
+     * website being down, have time to.
+     * 
+     * @param job the job to retry
+     */
+    private void retryLater(Job job){
+        // counted as queued while waiting, so isBusy doesn't think this is done
+        queuedIds.add(job.getId());
+        synchronized(this){
+            if(running){
+                poller.schedule(new TimerTask(){
+                    @Override
+                    public void run(){
+                        queue.add(new QueuedJob(job, sequence.getAndIncrement()));
+                    }
+                }, RETRY_DELAY);
+            } else {
+                // still queued in the job file, so it will be retried the next time jobs are run
+                queuedIds.remove(job.getId());
+            }
+        }
+    }
+    
+    private void deleteJournal(Path journalPath){
+        if(journalPath != null){
+            try {
+                Files.deleteIfExists(journalPath);
+            } catch (IOException ex) {
+                Logger.logError("JobScheduler.deleteJournal", ex);
+            }
+        }
+    }
+}
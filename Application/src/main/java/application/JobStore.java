@@ -0,0 +1,126 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+import javax.json.stream.JsonGenerator;
+import logging.Logger;
+
+/**
+ * The JobStore saves the job queue to a JSON file,
+ * so jobs outlive the program, and so a job submitted
+ * from the command line can be run by the GUI.
+ * 
+ * Several programs may use the file at once, so every change
+ * is made while holding a lock on it: the file is read,
+ * changed, then written to a temporary file which replaces it.
+ * Readers never see a half-written file.
+ * 
+ * @author Matt Crow
+ */
+class JobStore {
+    // FileLocks are held by the whole program, so threads must take turns getting them
+    private static final Object THREAD_LOCK = new Object();
+    
+    private final Path file;
+    private final Path lockFile;
+    private final Path tempFile;
+    
+    JobStore(Path file){
+        this.file = file;
+        lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+    
+    Path getFile(){
+        return file;
+    }
+    
+    /**
+     * 
+     * @return every job in the file, by ID, in the order they were submitted
+     * @throws IOException if the file exists, but cannot be read
+     */
+    LinkedHashMap<String, Job> read() throws IOException{
+        LinkedHashMap<String, Job> ret = new LinkedHashMap<>();
+        if(!Files.exists(file)){
+            return ret;
+        }
+        JsonArray arr;
+        try(
+            Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            JsonReader reader = Json.createReader(in)
+        ){
+            arr = reader.readArray();
+        } catch(JsonException ex){
+            throw new IOException("Job file " + file + " is corrupt", ex);
+        }
+        Job job;
+        for(JsonValue v : arr){
+            try {
+                job = Job.fromJson((JsonObject)v);
+                ret.put(job.getId(), job);
+            } catch(IllegalArgumentException | ClassCastException ex){
+                Logger.logError("JobStore.read", "Skipping invalid job:");
+                Logger.logError("JobStore.read", ex);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Reads the jobs, lets the caller change them,
+     * then writes them back, all while holding the lock on
+     * the file, so no other program changes it in between.
+     * 
+     * @param change adds, removes, or changes the status of jobs. The map is in submission order
+     * @return the jobs as they were saved
+     * @throws IOException if the file cannot be locked, read, or written
+     */
+    LinkedHashMap<String, Job> update(Consumer<LinkedHashMap<String, Job>> change) throws IOException{
+        LinkedHashMap<String, Job> jobs;
+        synchronized(THREAD_LOCK){
+            try(FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)){
+                FileLock lock = lockChannel.lock();
+                try {
+                    jobs = read();
+                    change.accept(jobs);
+                    write(jobs);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+        return jobs;
+    }
+    
+    private void write(LinkedHashMap<String, Job> jobs) throws IOException{
+        JsonArrayBuilder arr = Json.createArrayBuilder();
+        jobs.values().forEach((job)->arr.add(job.toJson()));
+        try(
+            Writer out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8);
+            JsonWriter writer = Json.createWriterFactory(Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true)).createWriter(out)
+        ){
+            writer.writeArray(arr.build());
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
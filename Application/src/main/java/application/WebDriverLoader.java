@@ -10,6 +10,7 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
 import logging.Logger;
+import main.EntryPoint;
 import util.Browser;
 
 /**
@@ -18,12 +19,24 @@ import util.Browser;
  */
 public final class WebDriverLoader {
     public static final String DRIVER_FOLDER_PATH = FileSystem.APP_FOLDER_PATH + File.separator + "webdrivers";
-    private final Application forApp;
+    private final EntryPoint forApp;
     private final HashMap<Browser, String> driverPaths;
+    private final WebDriverPool sessionPool;
     
-    public WebDriverLoader(Application app){
+    public WebDriverLoader(EntryPoint app){
         forApp = app;
         driverPaths = new HashMap<>();
+        sessionPool = new WebDriverPool();
+    }
+    
+    /**
+     * Automations should lease their WebDrivers from
+     * this pool, so that browsers can be reused between runs.
+     * 
+     * @return the pool of open browser sessions
+     */
+    public WebDriverPool getSessionPool(){
+        return sessionPool;
     }
     
     /**
@@ -211,5 +224,7 @@ public final class WebDriverLoader {
     public void init() throws IOException{
         this.forApp.getResources().createIfAbsent(DRIVER_FOLDER_PATH);
         loadSavedWebDrivers();
+        // otherwise, idle browsers stay open after the program exits
+        Runtime.getRuntime().addShutdownHook(new Thread(sessionPool::closeAll));
     }
 }
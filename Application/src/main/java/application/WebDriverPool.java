@@ -0,0 +1,302 @@
+package application;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import logging.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import util.Browser;
+import util.LaunchProfile;
+
+/**
+ * The WebDriverPool keeps browsers open between automation runs,
+ * so that running several automations back to back doesn't
+ * have to wait for a new browser to launch each time.
+ * 
+ * Automations lease a WebDriver from the pool, then release
+ * it once they are done. Released drivers have their cookies
+ * and navigation state reset before they are leased again.
+ * Drivers which sit idle for longer than the idle timeout,
+ * or which no longer respond, are quit.
+ * 
+ * Since a browser's launch profile can't be changed once it
+ * is running, drivers are only reused for the same browser
+ * and profile they were launched with.
+ * 
+ * @author Matt Crow
+ */
+public final class WebDriverPool {
+    public static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000; // 5 minutes
+    public static final int DEFAULT_MAX_IDLE = 4;
+    
+    private final HashMap<SessionType, LinkedList<IdleSession>> idleSessions;
+    private final IdentityHashMap<WebDriver, SessionType> leased;
+    private final Timer evictionTimer;
+    private long idleTimeout;
+    private int maxIdle;
+    
+    /**
+     * The browser and launch profile a driver was launched with.
+     * Only drivers of the same type are interchangeable.
+     */
+    private static class SessionType {
+        private final Browser browser;
+        private final LaunchProfile profile;
+        
+        private SessionType(Browser b, LaunchProfile p){
+            browser = b;
+            // copy, so changing the caller's profile doesn't change this' hash code
+            profile = p.copy();
+        }
+        
+        @Override
+        public boolean equals(Object obj){
+            return obj instanceof SessionType
+                && browser == ((SessionType)obj).browser
+                && profile.equals(((SessionType)obj).profile);
+        }
+        
+        @Override
+        public int hashCode(){
+            return Objects.hash(browser, profile);
+        }
+        
+        @Override
+        public String toString(){
+            return browser.getName() + " (" + profile + ")";
+        }
+    }
+    
+    /**
+     * A WebDriver sitting in the pool,
+     * waiting to be leased.
+     */
+    private static class IdleSession {
+        private final WebDriver driver;
+        private final long idleSince;
+        
+        private IdleSession(WebDriver d){
+            driver = d;
+            idleSince = System.currentTimeMillis();
+        }
+    }
+    
+    public WebDriverPool(){
+        idleSessions = new HashMap<>();
+        leased = new IdentityHashMap<>();
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        maxIdle = DEFAULT_MAX_IDLE;
+        
+        // daemon, so idle browsers don't keep the program open
+        evictionTimer = new Timer("WebDriverPool eviction", true);
+        evictionTimer.schedule(new TimerTask(){
+            @Override
+            public void run(){
+                evictIdle();
+            }
+        }, 30 * 1000, 30 * 1000);
+    }
+    
+    /**
+     * Sets how long a WebDriver may sit unused in the pool
+     * before it is quit.
+     * 
+     * @param millis the number of milliseconds before idle drivers are quit
+     * @return this, for chaining purposes
+     */
+    public synchronized WebDriverPool setIdleTimeout(long millis){
+        if(millis < 0){
+            throw new IllegalArgumentException("Idle timeout cannot be negative");
+        }
+        idleTimeout = millis;
+        return this;
+    }
+    
+    public synchronized long getIdleTimeout(){
+        return idleTimeout;
+    }
+    
+    /**
+     * Sets how many unused WebDrivers the pool will
+     * keep open for each browser and launch profile. Drivers released
+     * once the pool is full are quit instead.
+     * 
+     * @param max the number of idle drivers to keep per browser and launch profile
+     * @return this, for chaining purposes
+     */
+    public synchronized WebDriverPool setMaxIdle(int max){
+        if(max < 0){
+            throw new IllegalArgumentException("Max idle drivers cannot be negative");
+        }
+        maxIdle = max;
+        return this;
+    }
+    
+    /**
+     * Gives the caller a WebDriver for the given browser,
+     * launched with the default launch profile.
+     * 
+     * @see WebDriverPool#lease(util.Browser, util.LaunchProfile) 
+     * @param b the browser to get a WebDriver for
+     * @return a WebDriver for the given browser
+     * @throws Exception if no driver is available and a new one cannot be launched
+     */
+    public WebDriver lease(Browser b) throws Exception{
+        return lease(b, new LaunchProfile());
+    }
+    
+    /**
+     * Gives the caller a WebDriver for the given browser,
+     * reusing one launched with the same profile from the pool
+     * if possible. Once the caller is done with the driver,
+     * it should return it using release.
+     * 
+     * @param b the browser to get a WebDriver for
+     * @param profile how the browser should be launched
+     * @return a WebDriver for the given browser
+     * @throws Exception if no driver is available and a new one cannot be launched
+     */
+    public WebDriver lease(Browser b, LaunchProfile profile) throws Exception{
+        SessionType type = new SessionType(b, profile);
+        WebDriver ret = null;
+        IdleSession session = pollIdle(type);
+        while(ret == null && session != null){
+            if(isAlive(session.driver)){
+                ret = session.driver;
+                Logger.log("WebDriverPool.lease", "Reusing " + type + " session");
+            } else {
+                Logger.log("WebDriverPool.lease", "Discarding broken " + type + " session");
+                quietlyQuit(session.driver);
+                session = pollIdle(type);
+            }
+        }
+        if(ret == null){
+            Logger.log("WebDriverPool.lease", "Launching new " + type + " session");
+            ret = b.createDriver(profile);
+        }
+        synchronized(this){
+            leased.put(ret, type);
+        }
+        return ret;
+    }
+    
+    /**
+     * Returns a WebDriver obtained from lease to the pool,
+     * so that it can be leased again later. The driver's cookies
+     * are deleted, and it navigates away from whatever page it was on.
+     * If the driver cannot be reset, or the pool is full, it is quit.
+     * 
+     * @param d the WebDriver to release
+     */
+    public void release(WebDriver d){
+        SessionType type;
+        synchronized(this){
+            type = leased.remove(d);
+        }
+        if(type == null){
+            throw new IllegalArgumentException("Cannot release a WebDriver which was not leased from this pool");
+        }
+        
+        boolean reset = false;
+        try {
+            d.manage().deleteAllCookies();
+            d.get("about:blank");
+            reset = true;
+        } catch(WebDriverException ex){
+            Logger.logError("WebDriverPool.release", "Failed to reset " + type + " session, so it will be quit");
+            Logger.logError("WebDriverPool.release", ex);
+        }
+        
+        boolean pooled = false;
+        if(reset){
+            synchronized(this){
+                LinkedList<IdleSession> sessions = idleSessions.computeIfAbsent(type, (k)->new LinkedList<>());
+                if(sessions.size() < maxIdle){
+                    sessions.addLast(new IdleSession(d));
+                    pooled = true;
+                }
+            }
+        }
+        if(!pooled){
+            quietlyQuit(d);
+        }
+    }
+    
+    /**
+     * Quits every WebDriver which has been idle for
+     * longer than the idle timeout.
+     */
+    public void evictIdle(){
+        LinkedList<WebDriver> expired = new LinkedList<>();
+        long now = System.currentTimeMillis();
+        synchronized(this){
+            idleSessions.values().forEach((sessions)->{
+                Iterator<IdleSession> iter = sessions.iterator();
+                IdleSession session;
+                while(iter.hasNext()){
+                    session = iter.next();
+                    if(now - session.idleSince >= idleTimeout){
+                        iter.remove();
+                        expired.add(session.driver);
+                    }
+                }
+            });
+        }
+        if(!expired.isEmpty()){
+            Logger.log("WebDriverPool.evictIdle", "Quitting " + expired.size() + " idle session(s)");
+        }
+        expired.forEach(this::quietlyQuit);
+    }
+    
+    /**
+     * Quits every idle WebDriver in the pool.
+     * Leased drivers are quit once they are released.
+     */
+    public void closeAll(){
+        LinkedList<WebDriver> toQuit = new LinkedList<>();
+        synchronized(this){
+            idleSessions.values().forEach((sessions)->{
+                sessions.forEach((session)->toQuit.add(session.driver));
+                sessions.clear();
+            });
+            maxIdle = 0; // drivers released after this point are quit instead of pooled
+        }
+        toQuit.forEach(this::quietlyQuit);
+    }
+    
+    private synchronized IdleSession pollIdle(SessionType type){
+        LinkedList<IdleSession> sessions = idleSessions.get(type);
+        return (sessions == null || sessions.isEmpty()) ? null : sessions.removeLast();
+    }
+    
+    /**
+     * Checks if the given driver still has a browser
+     * on the other end. Browsers can be closed by the user,
+     * or crash, while sitting in the pool.
+     * 
+     * @param d the driver to check
+     * @return whether or not the driver can still be used
+     */
+    private boolean isAlive(WebDriver d){
+        boolean ret = false;
+        try {
+            ret = !d.getWindowHandles().isEmpty();
+        } catch(WebDriverException ex){
+            ret = false;
+        }
+        return ret;
+    }
+    
+    private void quietlyQuit(WebDriver d){
+        try {
+            d.quit();
+        } catch(WebDriverException ex){
+            Logger.logError("WebDriverPool.quietlyQuit", ex);
+        }
+    }
+}
@@ -4,11 +4,10 @@ import automationTools.AbstractPeopleSoftAutomation;
 import csv.CsvFile;
 import csv.CsvFileRequirements;
 import csv.CsvRow;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.openqa.selenium.By;
-import util.HtmlTable;
 
 /**
  *
@@ -34,6 +33,18 @@ public class AccountBalanceAutomation extends AbstractPeopleSoftAutomation{
         PROJ_HEADER
     };
     
+    // the name of each form input, and the header of the column to put in it
+    private static final LinkedHashMap<String, String> NAME_TO_HEADER = new LinkedHashMap<>();
+    static {
+        NAME_TO_HEADER.put("BusinessUnit", BU_HEADER);
+        NAME_TO_HEADER.put("Account", ACCT_HEADER);
+        NAME_TO_HEADER.put("Fund", FND_HEADER);
+        NAME_TO_HEADER.put("ORG", ORG_HEADER);
+        NAME_TO_HEADER.put("Program", PROG_HEADER);
+        NAME_TO_HEADER.put("SubClass", SUBCLS_HEADER);
+        NAME_TO_HEADER.put("ProjectGrant", PROJ_HEADER);
+    }
+    
     private static final CsvFileRequirements FILE_REQ = new CsvFileRequirements(
         "Input files must be in CSV format, "
         + "and should contain the following columns: "
@@ -51,26 +62,25 @@ public class AccountBalanceAutomation extends AbstractPeopleSoftAutomation{
     }
     @Override
     public void inputQuery(CsvRow query) {
-        HashMap<String, String> nameToHeader = new HashMap<>();
-        nameToHeader.put("BusinessUnit", BU_HEADER);
-        nameToHeader.put("Account", ACCT_HEADER);
-        nameToHeader.put("Fund", FND_HEADER);
-        nameToHeader.put("ORG", ORG_HEADER);
-        nameToHeader.put("Program", PROG_HEADER);
-        nameToHeader.put("SubClass", SUBCLS_HEADER);
-        nameToHeader.put("ProjectGrant", PROJ_HEADER);
-        
-        nameToHeader.forEach((name, header)->{
-            awaitFindElement(By.name(name)).sendKeys(query.get(header));
+        NAME_TO_HEADER.forEach((name, header)->{
+            fillInput(By.name(name), query.get(header));
         });
         
         awaitFindElement(By.name("Query")).click();
     }
+    
+    @Override
+    protected By getInputFormLocator(){
+        return By.name("Query");
+    }
 
     @Override
-    public void readQueryResult(CsvFile saveFile) {
-        HtmlTable table = new HtmlTable(awaitFindElement(By.xpath("//table[@border=1]")));
-        CsvFile tableCsv = table.toCsvFile();
-        saveFile.concatinateWith(tableCsv);
+    protected Map<String, String> getQueryParameters(CsvRow query){
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        NAME_TO_HEADER.forEach((name, header)->{
+            params.put(name, query.get(header));
+        });
+        params.put("Query", "Query");
+        return params;
     }
 }
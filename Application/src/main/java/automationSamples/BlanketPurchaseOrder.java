@@ -7,6 +7,8 @@ import csv.CsvParser;
 import csv.CsvRow;
 import io.FileReaderUtil;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import logging.Logger;
 import org.openqa.selenium.By;
 import util.HtmlTable;
@@ -51,12 +53,25 @@ public class BlanketPurchaseOrder extends AbstractPeopleSoftAutomation{
     
     @Override
     public void inputQuery(CsvRow query) {
-        awaitFindElement(By.xpath("//input[@name='PurchaseOrderNumber']")).sendKeys(query.get(BPO_HEADER));
+        fillInput(By.xpath("//input[@name='PurchaseOrderNumber']"), query.get(BPO_HEADER));
         awaitFindElement(By.name("B1")).click();
     }
+    
+    @Override
+    protected By getInputFormLocator(){
+        return By.xpath("//input[@name='PurchaseOrderNumber']");
+    }
+
+    @Override
+    protected Map<String, String> getQueryParameters(CsvRow query){
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("PurchaseOrderNumber", query.get(BPO_HEADER));
+        params.put("B1", "Submit");
+        return params;
+    }
 
     @Override
-    public void readQueryResult(CsvFile saveFile) {
+    protected void processResultTable(HtmlTable t, CsvFile saveFile) {
         /*
         
         The table contains the following columns:
@@ -66,7 +81,6 @@ public class BlanketPurchaseOrder extends AbstractPeopleSoftAutomation{
         
         since it doesn't contain Blanket Purchase order, we will need some way of converting PO Number to the BPO name
         */
-        HtmlTable t = new HtmlTable(awaitFindElement(By.xpath("//table[@border=1]")));
         CsvFile tableCsv = t.toCsvFile().getSubfile(new String[]{"PO Balance", "PO Number"});
         
         // Blanket purchase order, Funds Remaining (From PS Purchase Order Balance Information ), BPO ID, Cust Number, Web Order Address, Account Log-In
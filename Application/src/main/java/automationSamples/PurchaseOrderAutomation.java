@@ -1,14 +1,16 @@
 package automationSamples;
 
 import automationTools.AbstractPeopleSoftAutomation;
+import automationTools.NavigationStrategy;
 import csv.CsvFile;
 import csv.CsvFileRequirements;
 import csv.CsvRow;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import logging.Logger;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
-import util.HtmlTable;
 
 /**
  *
@@ -36,13 +38,20 @@ public class PurchaseOrderAutomation extends AbstractPeopleSoftAutomation{
             FILE_REQ,
             "https://psreports.losrios.edu/PO_HistoryQ.asp"
         );
+        // readQueryResult follows the expand link, so going back only gets to the unexpanded result page
+        setNavigationStrategy(NavigationStrategy.RELOAD);
     }
 
     @Override
     public void inputQuery(CsvRow query) {
-        awaitFindElement(By.name("PO_ID_Input")).sendKeys(query.get(PO_HEADER));
+        fillInput(By.name("PO_ID_Input"), query.get(PO_HEADER));
         awaitFindElement(By.name("Query")).click();
     }
+    
+    @Override
+    protected By getInputFormLocator(){
+        return By.name("PO_ID_Input");
+    }
 
     @Override
     public void readQueryResult(CsvFile saveFile) {
@@ -62,11 +71,26 @@ public class PurchaseOrderAutomation extends AbstractPeopleSoftAutomation{
             
         }
         if(expand){
-            awaitFindElement(By.xpath("//a[@href='/PO_HistoryQ.asp?POID_History_PagingMove=ALL']")).click();
+            awaitFindElement(By.xpath("//a[@href='" + getExpandPath() + "']")).click();
         }
         Logger.log("PurchaseOrderAutomation.readQueryResult", (expand) ? "I should probably expand this." : "Don't bother expanding");
-        HtmlTable t = new HtmlTable(awaitFindElement(By.xpath("//table[@border=1]")));
-        CsvFile tableCsv = t.toCsvFile();
-        saveFile.concatinateWith(tableCsv);
+        processResultTable(readResultTable(), saveFile);
+    }
+    
+    @Override
+    protected Map<String, String> getQueryParameters(CsvRow query){
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("PO_ID_Input", query.get(PO_HEADER));
+        params.put("Query", "Query");
+        return params;
+    }
+    
+    /**
+     * 
+     * @return the link readQueryResult clicks to show every result
+     */
+    @Override
+    protected String getExpandPath(){
+        return "/PO_HistoryQ.asp?POID_History_PagingMove=ALL";
     }
 }
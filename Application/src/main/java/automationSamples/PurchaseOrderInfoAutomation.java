@@ -4,9 +4,9 @@ import automationTools.AbstractPeopleSoftAutomation;
 import csv.CsvFile;
 import csv.CsvFileRequirements;
 import csv.CsvRow;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.openqa.selenium.By;
-import util.HtmlTable;
 
 /**
  *
@@ -37,15 +37,22 @@ public class PurchaseOrderInfoAutomation extends AbstractPeopleSoftAutomation{
 
     @Override
     public void inputQuery(CsvRow query) {
-        awaitFindElement(By.xpath("//input[@name='PurchaseOrderNumber']")).sendKeys(query.get(PO_HEADER));
-        awaitFindElement(By.xpath("//input[@name='RequisitionNumber']")).sendKeys(query.get(REQ_HEADER));
+        fillInput(By.xpath("//input[@name='PurchaseOrderNumber']"), query.get(PO_HEADER));
+        fillInput(By.xpath("//input[@name='RequisitionNumber']"), query.get(REQ_HEADER));
         awaitFindElement(By.name("B1")).click();
     }
+    
+    @Override
+    protected By getInputFormLocator(){
+        return By.xpath("//input[@name='PurchaseOrderNumber']");
+    }
 
     @Override
-    public void readQueryResult(CsvFile saveFile) {
-        HtmlTable t = new HtmlTable(awaitFindElement(By.xpath("//table[@border=1]")));
-        CsvFile tableCsv = t.toCsvFile();
-        saveFile.concatinateWith(tableCsv);
+    protected Map<String, String> getQueryParameters(CsvRow query){
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("PurchaseOrderNumber", query.get(PO_HEADER));
+        params.put("RequisitionNumber", query.get(REQ_HEADER));
+        params.put("B1", "Submit");
+        return params;
     }
 }
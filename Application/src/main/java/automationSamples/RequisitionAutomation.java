@@ -1,15 +1,16 @@
 package automationSamples;
 
 import automationTools.AbstractPeopleSoftAutomation;
+import automationTools.NavigationStrategy;
 import csv.CsvFile;
 import csv.CsvFileRequirements;
 import csv.CsvRow;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import logging.Logger;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import util.HtmlTable;
 
 /**
  *
@@ -36,14 +37,21 @@ public class RequisitionAutomation extends AbstractPeopleSoftAutomation{
             FILE_REQ,
             "https://psreports.losrios.edu/REQ_HistoryQ.asp"
         );
+        // readQueryResult follows the expand link, so going back only gets to the unexpanded result page
+        setNavigationStrategy(NavigationStrategy.RELOAD);
     }
 
     @Override
     public void inputQuery(CsvRow query) {
-        awaitFindElement(By.name("REQUESTOR_ID")).sendKeys(query.get(REQUESTOR_HEADER));
-        awaitFindElement(By.name("REQ_NO")).sendKeys(query.get(REQUISITION_HEADER));
+        fillInput(By.name("REQUESTOR_ID"), query.get(REQUESTOR_HEADER));
+        fillInput(By.name("REQ_NO"), query.get(REQUISITION_HEADER));
         awaitFindElement(By.name("Query")).click();
     }
+    
+    @Override
+    protected By getInputFormLocator(){
+        return By.name("REQ_NO");
+    }
 
     @Override
     public void readQueryResult(CsvFile saveFile) {
@@ -64,13 +72,28 @@ public class RequisitionAutomation extends AbstractPeopleSoftAutomation{
             
         }
         if(expand){
-            awaitFindElement(By.xpath("//a[@href='/REQ_HistoryQ.asp?REQ_History_PagingMove=ALL']")).click();
+            awaitFindElement(By.xpath("//a[@href='" + getExpandPath() + "']")).click();
         }
         Logger.log("RequisitionAutomation.readQueryResult", (expand) ? "I should probably expand this." : "Don't bother expanding");
         
-        WebElement e = awaitFindElement(By.xpath("//table[@border=1]"));
-        HtmlTable t = new HtmlTable(e);
-        CsvFile tableCsv = t.toCsvFile();
-        saveFile.concatinateWith(tableCsv);
+        processResultTable(readResultTable(), saveFile);
+    }
+    
+    @Override
+    protected Map<String, String> getQueryParameters(CsvRow query){
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("REQUESTOR_ID", query.get(REQUESTOR_HEADER));
+        params.put("REQ_NO", query.get(REQUISITION_HEADER));
+        params.put("Query", "Query");
+        return params;
+    }
+    
+    /**
+     * 
+     * @return the link readQueryResult clicks to show every result
+     */
+    @Override
+    protected String getExpandPath(){
+        return "/REQ_HistoryQ.asp?REQ_History_PagingMove=ALL";
     }
 }
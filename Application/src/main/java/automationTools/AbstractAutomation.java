@@ -1,12 +1,16 @@
 package automationTools;
 
+import application.WebDriverPool;
 import java.util.List;
 import logging.Logger;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import util.Browser;
+import util.LaunchProfile;
 
 /**
  * The AbstractAutomation class serves as
@@ -23,9 +27,14 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 public abstract class AbstractAutomation {
     private final String name;
     private final String desc;
-    private WebDriver driver;
-    private WebDriverWait wait;
-    private boolean running;
+    private final ThreadLocal<WebDriver> driver;
+    private final ThreadLocal<WebDriverWait> wait;
+    private Class<? extends WebDriver> driverClass;
+    private Browser browser;
+    private LaunchProfile launchProfile;
+    private WebDriverPool driverPool;
+    private WaitPolicy waitPolicy;
+    private volatile boolean running;
     
     /**
      * 
@@ -36,8 +45,13 @@ public abstract class AbstractAutomation {
     public AbstractAutomation(String autoName, String description){
         name = autoName;
         desc = description;
-        driver = null;
-        wait = null;
+        driver = new ThreadLocal<>();
+        wait = new ThreadLocal<>();
+        driverClass = null;
+        browser = null;
+        launchProfile = null;
+        driverPool = null;
+        waitPolicy = new AdaptiveWaitPolicy();
         running = false;
     }
     
@@ -59,13 +73,17 @@ public abstract class AbstractAutomation {
      * being used to perform automation,
      * if any.
      * 
+     * Each thread working on this automation
+     * has its own WebDriver, so this returns
+     * the driver attached to the calling thread.
+     * 
      * @return this' driver.
      */
     public final WebDriver getDriver(){
         if(!running){
             throw new NullPointerException("Automation is not being run, so the driver is not set");
         }
-        return driver;
+        return driver.get();
     }
     
     /**
@@ -75,13 +93,129 @@ public abstract class AbstractAutomation {
      * the WebDriver being used to run the
      * automation.
      * 
+     * Note that this wait always times out after 10 seconds,
+     * and doesn't use this' wait policy. Prefer await.
+     * 
      * @return the wait associated with this' driver.
      */
     public final WebDriverWait getWait(){
         if(!running){
             throw new NullPointerException("Automation is not being run, so the wait is not set");
         }
-        return wait;
+        return wait.get();
+    }
+    
+    /**
+     * Sets how this automation waits for pages.
+     * The policy is shared by every worker,
+     * and keeps what it learns between runs.
+     * 
+     * @param policy the policy to use for await, awaitFindElement, and awaitFindElements
+     * @return this, for chaining purposes
+     */
+    public final AbstractAutomation setWaitPolicy(WaitPolicy policy){
+        if(policy == null){
+            throw new NullPointerException("Wait policy cannot be null");
+        }
+        waitPolicy = policy;
+        return this;
+    }
+    
+    /**
+     * 
+     * @return the policy this uses to wait for pages.
+     * Its stats show how long each wait has been taking.
+     */
+    public final WaitPolicy getWaitPolicy(){
+        return waitPolicy;
+    }
+    
+    /**
+     * Waits for a condition using this' wait policy,
+     * and the driver attached to the calling thread.
+     * 
+     * @param <T> the type the condition returns
+     * @param key what is being waited for, such as a URL.
+     * The wait policy learns how long each key takes.
+     * @param condition the condition to wait for
+     * @return the condition's result
+     * @throws org.openqa.selenium.TimeoutException if the condition isn't met in time
+     */
+    public final <T> T await(String key, ExpectedCondition<T> condition){
+        if(driver.get() == null){
+            throw new NullPointerException("process is not running, so the WebDriver isn't set");
+        }
+        return waitPolicy.until(driver.get(), key, condition);
+    }
+    
+    /**
+     * Gets a WebDriver of the same type, and with the same
+     * launch profile, as the one this automation is being run with.
+     * If this automation was run with a WebDriverPool,
+     * the driver is leased from that pool. Otherwise,
+     * a new driver is launched.
+     * The caller must pass the returned driver to
+     * releaseDriver once it is done with it.
+     * 
+     * @return a WebDriver
+     * @throws Exception if the WebDriver cannot be launched
+     */
+    protected final WebDriver launchDriver() throws Exception{
+        if(!running){
+            throw new UnsupportedOperationException("Cannot launch a WebDriver while the automation is not running");
+        }
+        WebDriver ret;
+        if(driverPool != null){
+            Logger.log("AbstractAutomation.launchDriver", "Attempting to lease WebDriver for " + browser.getName() + " (" + launchProfile + ")");
+            ret = driverPool.lease(browser, launchProfile);
+        } else if(browser != null){
+            Logger.log("AbstractAutomation.launchDriver", "Attempting to launch " + browser.getName() + " (" + launchProfile + ")");
+            ret = browser.createDriver(launchProfile);
+        } else {
+            Logger.log("AbstractAutomation.launchDriver", "Attempting to create WebDriver from " + driverClass.getName());
+            ret = driverClass.newInstance();
+        }
+        return ret;
+    }
+    
+    /**
+     * Call this once done with a WebDriver
+     * obtained from launchDriver. Pooled drivers
+     * are returned to their pool, while others
+     * are quit.
+     * 
+     * @param d the WebDriver to release 
+     */
+    protected final void releaseDriver(WebDriver d){
+        if(driverPool == null){
+            d.quit();
+        } else {
+            driverPool.release(d);
+        }
+    }
+    
+    /**
+     * Makes the given WebDriver the driver used
+     * by the calling thread, giving it its own
+     * WebDriverWait. After calling this method,
+     * getDriver, getWait, and the awaitFind methods
+     * will use the given driver when invoked from
+     * the calling thread.
+     * 
+     * @param d the WebDriver the calling thread should use
+     */
+    protected final void attachDriver(WebDriver d){
+        driver.set(d);
+        wait.set(new WebDriverWait(d, 10));
+    }
+    
+    /**
+     * Removes the WebDriver attached to the calling thread,
+     * if any. Note that this does not quit the driver.
+     */
+    protected final void detachDriver(){
+        driver.remove();
+        wait.remove();
     }
     
     /**
@@ -97,10 +231,7 @@ public abstract class AbstractAutomation {
      * @return the WebElement found by the "by" parameter.
      */
     public final WebElement awaitFindElement(By by){
-        if(wait == null || driver == null){
-            throw new NullPointerException("process is not running, so the WebDriver isn't set");
-        }
-        return wait.until(ExpectedConditions.presenceOfElementLocated(by));
+        return await(by.toString(), ExpectedConditions.presenceOfElementLocated(by));
     }
     
     /**
@@ -116,14 +247,26 @@ public abstract class AbstractAutomation {
      * @return the WebElements found by the "by" parameter.
      */
     public final List<WebElement> awaitFindElements(By by){
-        if(wait == null || driver == null){
-            throw new NullPointerException("process is not running, so the WebDriver isn't set");
-        }
-        return wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(by));
+        return await(by.toString(), ExpectedConditions.presenceOfAllElementsLocatedBy(by));
+    }
+    
+    /**
+     * Waits for an input element to load, then replaces
+     * its contents with the given text. Use this instead of
+     * sendKeys when the form may still hold the last query,
+     * such as after navigating back to it.
+     * 
+     * @param by the locator used to find the input
+     * @param text the text to type into the input
+     */
+    public final void fillInput(By by, String text){
+        WebElement input = awaitFindElement(by);
+        input.clear();
+        input.sendKeys(text);
     }
     
     /**
-     * Shuts down the WebDriver and wait used
+     * Releases the WebDriver and wait used
      * by this automation. Only works if the
      * automation is currently being run. Note
      * that this method sets the 'running' flag
@@ -132,12 +275,21 @@ public abstract class AbstractAutomation {
      * @return this, for chaining purposes. 
      */
     private AbstractAutomation finish(){
-        Logger.log("AbstractAutomation.finish", "Done running, quitting browser.");
-        if(driver != null){
-            driver.quit();
-            driver = null;
+        List<WaitStats> waitStats = waitPolicy.getStats();
+        if(!waitStats.isEmpty()){
+            StringBuilder waits = new StringBuilder("Wait times:");
+            waitStats.forEach((stats)->waits.append("\n").append(stats));
+            Logger.log("AbstractAutomation.finish", waits.toString());
         }
-        wait = null;
+        Logger.log("AbstractAutomation.finish", "Done running, releasing browser.");
+        if(driver.get() != null){
+            releaseDriver(driver.get());
+        }
+        detachDriver();
+        driverClass = null;
+        browser = null;
+        launchProfile = null;
+        driverPool = null;
         
         running = false;
         
@@ -156,15 +308,53 @@ public abstract class AbstractAutomation {
      * @throws java.lang.Exception if an error occurs during either launching the WebDriver or running the automation
      */
     public final AbstractAutomation run(Class<? extends WebDriver> driverClass) throws Exception{
+        return run(driverClass, null, null, null);
+    }
+    
+    /**
+     * Performs the automation, using WebDrivers
+     * leased from the given pool rather than launching
+     * new ones. The drivers are returned to the pool
+     * afterwards, so later runs can reuse them.
+     * 
+     * @param browser the browser to run the automation in
+     * @param pool the pool to lease WebDrivers from
+     * @return this, for chaining purposes
+     * @throws java.lang.Exception if an error occurs during either leasing the WebDriver or running the automation
+     */
+    public final AbstractAutomation run(Browser browser, WebDriverPool pool) throws Exception{
+        return run(browser, new LaunchProfile(), pool);
+    }
+    
+    /**
+     * Performs the automation in browsers launched
+     * with the given profile, such as headless browsers.
+     * 
+     * @param browser the browser to run the automation in
+     * @param profile how to launch the browser
+     * @param pool the pool to lease WebDrivers from, or null to launch new ones, which are quit afterwards
+     * @return this, for chaining purposes
+     * @throws java.lang.Exception if an error occurs during either launching the WebDriver or running the automation
+     */
+    public final AbstractAutomation run(Browser browser, LaunchProfile profile, WebDriverPool pool) throws Exception{
+        if(browser == null || profile == null){
+            throw new NullPointerException("Cannot run with a null browser or launch profile");
+        }
+        return run(browser.getDriverClass(), browser, profile, pool);
+    }
+    
+    private AbstractAutomation run(Class<? extends WebDriver> driverClass, Browser browser, LaunchProfile profile, WebDriverPool pool) throws Exception{
         if(running){
             throw new UnsupportedOperationException("Cannot run automation, as it is already running");
         }
         running = true;
+        this.driverClass = driverClass;
+        this.browser = browser;
+        launchProfile = profile;
+        driverPool = pool;
         Logger.log("AbstractAutomation.run", "Running " + getClass().getName());
-        Logger.log("AbstractAutomation.run", "Attempting to create WebDriver from " + driverClass.getName());
         try{
-            driver = driverClass.newInstance();
-            wait = new WebDriverWait(driver, 10);
+            attachDriver(launchDriver());
             Logger.log("AbstractAutomation.run", "Driver created successfully.");
             doRun();
             Logger.log("AbstractAutomation.run", "Automation completed successfully");
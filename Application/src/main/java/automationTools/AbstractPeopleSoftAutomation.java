@@ -1,19 +1,88 @@
 package automationTools;
 
+import csv.CsvFile;
 import csv.CsvFileRequirements;
+import csv.CsvRow;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import logging.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import util.HtmlTable;
+import util.HttpQueryClient;
 
 /**
- * This class currently serves no purpose,
- * as all the functionality is handled in
- * superclasses. However, the subclasses of
- * this class may require special behavior
- * such as logging in the user or expanding search results,
- * so later versions may include these added behaviors.
+ * Most of the functionality of this class is handled in
+ * superclasses. The subclasses of this class may require
+ * special behavior such as logging in the user or
+ * expanding search results, so later versions may include
+ * these added behaviors.
+ * 
+ * For now, this handles reading the result table
+ * which every PeopleSoft report page has.
+ * 
+ * Since the report pages are plain forms, which
+ * submit to a result page containing a plain table,
+ * these automations can also skip the browser entirely,
+ * and submit queries over HTTP: see setQueryMode.
+ * 
+ * In the browser, these automations go back to the
+ * input form after each query instead of reloading it,
+ * so subclasses should override getInputFormLocator.
  * 
  * @see AbstractQueryGatherAutomation
  * @author Matt Crow
  */
 public abstract class AbstractPeopleSoftAutomation extends AbstractQueryGatherAutomation{
+    /**
+     * How readResultTable reads the result table.
+     */
+    public static enum TableReadMode {
+        /*
+        Ask the browser for each cell.
+        Slow for large tables, but always reads exactly what the browser shows.
+        */
+        ELEMENTS,
+        /*
+        Ask the browser for the page source once, then read the table out of it.
+        Falls back to ELEMENTS if the table cannot be found in the source.
+        */
+        PAGE_SOURCE
+    }
+    
+    /**
+     * How queries are run.
+     */
+    public static enum QueryMode {
+        /*
+        Fill out and submit the form in the browser, as any other AbstractQueryGatherAutomation.
+        */
+        BROWSER,
+        /*
+        Use the browser to log in, then submit the form directly over HTTP
+        using the browser's cookies, reading each response without rendering it.
+        Queries are submitted httpConcurrency at a time.
+        */
+        HTTP
+    }
+    
+    public static final int DEFAULT_HTTP_CONCURRENCY = 8;
+    
+    private static final By RESULT_TABLE = By.xpath("//table[@border=1]");
+    
+    private TableReadMode tableReadMode;
+    private QueryMode queryMode;
+    private int httpConcurrency;
     
     public AbstractPeopleSoftAutomation(String autoName, String description, String inputUrl, CsvFileRequirements reqs, String resultUrl) {
         super(
@@ -23,5 +92,263 @@ public abstract class AbstractPeopleSoftAutomation extends AbstractQueryGatherAu
             reqs,
             resultUrl
         );
+        tableReadMode = TableReadMode.PAGE_SOURCE;
+        queryMode = QueryMode.BROWSER;
+        httpConcurrency = DEFAULT_HTTP_CONCURRENCY;
+        // the report forms are static pages, so the browser can restore them from its history.
+        // Subclasses whose result page is more than one step from the form should use RELOAD.
+        setNavigationStrategy(NavigationStrategy.BACK);
+    }
+    
+    /**
+     * 
+     * @param mode how this automation should read result tables
+     * @return this, for chaining purposes
+     */
+    public AbstractPeopleSoftAutomation setTableReadMode(TableReadMode mode){
+        if(mode == null){
+            throw new NullPointerException("Table read mode cannot be null");
+        }
+        tableReadMode = mode;
+        return this;
+    }
+    
+    public TableReadMode getTableReadMode(){
+        return tableReadMode;
+    }
+    
+    /**
+     * 
+     * @param mode how this automation should run queries
+     * @return this, for chaining purposes
+     */
+    public AbstractPeopleSoftAutomation setQueryMode(QueryMode mode){
+        if(mode == null){
+            throw new NullPointerException("Query mode cannot be null");
+        }
+        queryMode = mode;
+        return this;
+    }
+    
+    public QueryMode getQueryMode(){
+        return queryMode;
+    }
+    
+    /**
+     * 
+     * @param count how many queries to submit at once in HTTP mode. Must be at least 1.
+     * @return this, for chaining purposes
+     */
+    public AbstractPeopleSoftAutomation setHttpConcurrency(int count){
+        if(count < 1){
+            throw new IllegalArgumentException("HTTP concurrency must be at least 1, not " + count);
+        }
+        httpConcurrency = count;
+        return this;
+    }
+    
+    public int getHttpConcurrency(){
+        return httpConcurrency;
+    }
+    
+    /**
+     * Waits for the result table
+     * (the table with border=1) to load,
+     * then reads it according to this'
+     * table read mode.
+     * 
+     * @return the result table
+     */
+    protected final HtmlTable readResultTable(){
+        WebElement element = awaitFindElement(RESULT_TABLE);
+        HtmlTable ret = null;
+        if(tableReadMode == TableReadMode.PAGE_SOURCE){
+            try {
+                ret = HtmlTable.fromPageSource(getDriver().getPageSource(), "border", "1");
+            } catch(WebDriverException ex){
+                Logger.logError("AbstractPeopleSoftAutomation.readResultTable", ex);
+            }
+            if(ret == null){
+                Logger.logError("AbstractPeopleSoftAutomation.readResultTable", "Couldn't find the result table in the page source, so reading it from the browser instead");
+            }
+        }
+        if(ret == null){
+            ret = new HtmlTable(element);
+        }
+        return ret;
+    }
+    
+    /**
+     * Reads the result table, and passes it to processResultTable.
+     * Subclasses which need to do something to the result page
+     * before reading it, such as expanding it, should override this.
+     * 
+     * @param saveFile a file with the same headers as this' result file
+     */
+    @Override
+    public void readQueryResult(CsvFile saveFile){
+        processResultTable(readResultTable(), saveFile);
+    }
+    
+    /**
+     * Stores the contents of the result table for a query.
+     * This is used in both query modes, so it should only
+     * use the table, not the browser.
+     * By default, adds every row of the table to saveFile.
+     * 
+     * @param table the result table for a query
+     * @param saveFile a file with the same headers as this' result file
+     */
+    protected void processResultTable(HtmlTable table, CsvFile saveFile){
+        saveFile.concatinateWith(table.toCsvFile());
+    }
+    
+    /**
+     * Used in HTTP mode to submit a query
+     * without filling out the form in the browser.
+     * This should match what inputQuery types into the form.
+     * 
+     * @param query the next row from the CSV data source file
+     * @return the name and value of each form input to submit for the query
+     */
+    protected abstract Map<String, String> getQueryParameters(CsvRow query);
+    
+    /**
+     * 
+     * @return the URL to submit query parameters to in HTTP mode.
+     * By default, this is the result URL.
+     */
+    protected String getQuerySubmitUrl(){
+        return getResultUrl();
+    }
+    
+    /**
+     * Some result pages only show the first page of results,
+     * with a link to show the rest. In HTTP mode, that link
+     * is followed after the query, like readQueryResult does
+     * in the browser.
+     * 
+     * @return the href of the link to show every result, or null if this' results aren't paged.
+     * By default, this is null.
+     */
+    protected String getExpandPath(){
+        return null;
+    }
+    
+    @Override
+    protected void runAllQueries(){
+        if(queryMode == QueryMode.HTTP){
+            runQueriesOverHttp();
+        } else {
+            super.runAllQueries();
+        }
+    }
+    
+    /**
+     * Submits queries httpConcurrency at a time, using
+     * the browser's session. Response pages are parsed on
+     * a separate pool of threads, so the request threads can
+     * send the next query while the last one is parsed.
+     * If the parsers fall behind, request threads parse their
+     * own responses until the parsers catch up, so responses
+     * don't pile up in memory.
+     * 
+     * @throws RuntimeException the first exception which stopped a request thread,
+     * once every thread is done, so the run doesn't look like it succeeded
+     */
+    private void runQueriesOverHttp(){
+        // make sure the browser has a session with the site before copying its cookies
+        getDriver().get(getInputUrl());
+        HttpQueryClient client = HttpQueryClient.fromDriver(getDriver());
+        String url = getQuerySubmitUrl();
+        Logger.log("AbstractPeopleSoftAutomation.runQueriesOverHttp", String.format("Submitting queries to %s, %d at a time", url, httpConcurrency));
+        if(getExpandPath() != null && httpConcurrency > 1){
+            Logger.log("AbstractPeopleSoftAutomation.runQueriesOverHttp", "The site remembers which results to expand in the session, so only one query is submitted at a time. Responses are still read in parallel.");
+        }
+        
+        int parserCount = Math.min(httpConcurrency, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor parsers = new ThreadPoolExecutor(
+            parserCount,
+            parserCount,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(httpConcurrency),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        ExecutorService requesters = Executors.newFixedThreadPool(httpConcurrency);
+        List<Future<?>> requests = new ArrayList<>();
+        for(int i = 0; i < httpConcurrency; i++){
+            requests.add(requesters.submit(()->{
+                CsvRow q = pollQuery();
+                while(q != null){
+                    CsvRow query = q;
+                    long start = System.currentTimeMillis();
+                    try {
+                        String html = (getExpandPath() == null)
+                            ? client.post(url, getQueryParameters(query))
+                            : client.postAndExpand(url, getQueryParameters(query), getExpandPath());
+                        lap(RunMetrics.Phase.WAIT_FOR_RESULT, start);
+                        parsers.execute(()->parseResponse(query, html, start));
+                    } catch(IOException | RuntimeException ex){
+                        failQuery(query, "Failed to submit query", ex);
+                    }
+                    q = pollQuery();
+                }
+            }));
+        }
+        
+        requesters.shutdown();
+        awaitTermination(requesters);
+        parsers.shutdown();
+        awaitTermination(parsers);
+        
+        RuntimeException firstError = null;
+        for(Future<?> request : requests){
+            try {
+                request.get();
+            } catch (InterruptedException ex) {
+                Logger.logError("AbstractPeopleSoftAutomation.runQueriesOverHttp", ex);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                Logger.logError("AbstractPeopleSoftAutomation.runQueriesOverHttp", "A request thread stopped early:");
+                Logger.logError("AbstractPeopleSoftAutomation.runQueriesOverHttp", (ex.getCause() instanceof Exception) ? (Exception)ex.getCause() : ex);
+                if(firstError == null){
+                    firstError = (ex.getCause() instanceof RuntimeException) ? (RuntimeException)ex.getCause() : new RuntimeException(ex.getCause());
+                }
+            }
+        }
+        if(firstError != null){
+            throw firstError;
+        }
+    }
+    
+    private void parseResponse(CsvRow query, String html, long start){
+        try {
+            long time = System.currentTimeMillis();
+            HtmlTable table = HtmlTable.fromPageSource(html, "border", "1");
+            if(table == null){
+                // most likely the session expired, and this is a login or error page
+                failQuery(query, "The response had no result table", null);
+            } else {
+                CsvFile queryResult = newQueryResult();
+                processResultTable(table, queryResult);
+                lap(RunMetrics.Phase.READ, time);
+                finishQuery(query, queryResult, start);
+            }
+        } catch(RuntimeException ex){
+            failQuery(query, "Failed to read the response", ex);
+        }
+    }
+    
+    private static void awaitTermination(ExecutorService pool){
+        try {
+            while(!pool.awaitTermination(1, TimeUnit.MINUTES)){
+                Logger.log("AbstractPeopleSoftAutomation.awaitTermination", "Still waiting on queries...");
+            }
+        } catch (InterruptedException ex) {
+            Logger.logError("AbstractPeopleSoftAutomation.awaitTermination", ex);
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 }
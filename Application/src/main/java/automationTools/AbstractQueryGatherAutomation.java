@@ -2,11 +2,26 @@ package automationTools;
 
 import csv.CsvFile;
 import csv.CsvFileRequirements;
+import csv.CsvLayout;
+import csv.CsvReader;
 import csv.CsvRow;
+import csv.CsvWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import logging.Logger;
+import org.openqa.selenium.By;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 
 /**
@@ -18,14 +33,53 @@ import org.openqa.selenium.support.ui.ExpectedConditions;
  *  b. read and store the result of the query<br>
  * 3. save the completed result to a file<br>
  * 
+ * Step 2 can be split between several browsers at once:
+ * see setWorkerCount.
+ * 
+ * By default, results are kept in memory until step 3.
+ * To write them to a file as they are read instead,
+ * see setResultSink.
+ * 
+ * To be able to pick up where a run left off if it
+ * crashes, give the automation a QueryJournal: see setJournal.
+ * 
+ * Queries which come up more than once are usually only run once,
+ * and the rows read for the first are reused for the rest:
+ * see QueryCache for how many are remembered.
+ * To also reuse the results of earlier runs, give the
+ * automation a ResultCache: see setResultCache.
+ * 
+ * By default, the input page is loaded before every query.
+ * Automations which can recognize their input form can
+ * skip some of those page loads: see setNavigationStrategy.
+ * 
+ * Each phase of each query is timed, and the timings
+ * of the current or last run can be read with getMetrics.
+ * 
  * @author Matt Crow
  */
 public abstract class AbstractQueryGatherAutomation extends AbstractAutomation implements QueryingAutomation, ReadingAutomation{
     private final CsvFileRequirements fileReqs;
     private CsvFile queryFile;
+    private CsvReader querySource;
+    private QueryPipe queryPipe;
+    private QueryQueue queryQueue;
     private final CsvFile resultFile;
+    private final MemoryResultSink memorySink;
+    private ResultSink resultSink;
     private final String inputUrl;
     private final String resultUrl;
+    private final Object queryLock;
+    private int workerCount;
+    private NavigationStrategy navigation;
+    private final AtomicInteger inputLoadsSkipped;
+    private volatile RunMetrics metrics;
+    private QueryJournal journal;
+    private boolean resume;
+    private HashMap<String, Integer> finishedQueries;
+    private ResultCache resultCache;
+    private QueryCache runCache;
+    private HashMap<String, List<CsvRow>> duplicates; // queries waiting on a query with the same key which is running
     
     public AbstractQueryGatherAutomation(String autoName, String description, String inputUrl, CsvFileRequirements reqs, String resultUrl) {
         super(autoName, description);
@@ -33,7 +87,93 @@ public abstract class AbstractQueryGatherAutomation extends AbstractAutomation i
         this.inputUrl = inputUrl;
         this.resultUrl = resultUrl;
         queryFile = null;
-        resultFile = new CsvFile();
+        querySource = null;
+        queryPipe = null;
+        queryQueue = null;
+        // results can be large, so store them by column
+        resultFile = new CsvFile(CsvLayout.COLUMNS);
+        memorySink = new MemoryResultSink(resultFile);
+        resultSink = memorySink;
+        queryLock = new Object();
+        workerCount = 1;
+        navigation = NavigationStrategy.RELOAD;
+        inputLoadsSkipped = new AtomicInteger(0);
+        metrics = new RunMetrics();
+        journal = null;
+        resume = false;
+        finishedQueries = new HashMap<>();
+        resultCache = null;
+        runCache = new QueryCache();
+        duplicates = new HashMap<>();
+    }
+    
+    /**
+     * Sets how many browsers this automation should
+     * use to run queries. Each worker has its own
+     * WebDriver and WebDriverWait, and they all pull
+     * queries from the same query file until it is empty.
+     * 
+     * @param count the number of browsers to run queries in. Must be at least 1.
+     * @return this, for chaining purposes
+     */
+    public final AbstractQueryGatherAutomation setWorkerCount(int count){
+        if(count < 1){
+            throw new IllegalArgumentException("Worker count must be at least 1, not " + count);
+        }
+        workerCount = count;
+        return this;
+    }
+    
+    /**
+     * 
+     * @return the number of browsers this automation runs queries in.
+     */
+    public final int getWorkerCount(){
+        return workerCount;
+    }
+    
+    /**
+     * Sets how this automation gets back to the input form
+     * after each query. Strategies other than RELOAD only
+     * work if getInputFormLocator is overridden.
+     * 
+     * @param strategy how to get back to the input form
+     * @return this, for chaining purposes
+     */
+    public final AbstractQueryGatherAutomation setNavigationStrategy(NavigationStrategy strategy){
+        if(strategy == null){
+            throw new NullPointerException("Navigation strategy cannot be null");
+        }
+        navigation = strategy;
+        return this;
+    }
+    
+    public final NavigationStrategy getNavigationStrategy(){
+        return navigation;
+    }
+    
+    /**
+     * Used to check if the input form is on the current page,
+     * so navigation strategies other than RELOAD can tell
+     * whether or not they need to reload the input page.
+     * Subclasses should override this to return a locator
+     * for an element of their input form, such as the submit button.
+     * 
+     * @return a locator for the input form, or null if this automation can't recognize it
+     */
+    protected By getInputFormLocator(){
+        return null;
+    }
+    
+    /**
+     * The metrics are replaced at the start of each run,
+     * so hold on to the returned object to read a run's
+     * metrics after the next run starts.
+     * 
+     * @return the timings of the current run, or the last run if this isn't running
+     */
+    public final RunMetrics getMetrics(){
+        return metrics;
     }
     
     // methods inherited from QueryingAutomation
@@ -65,6 +205,9 @@ public abstract class AbstractQueryGatherAutomation extends AbstractAutomation i
     @Override
     public void setQueryFile(CsvFile file){
         queryFile = file;
+        querySource = null;
+        queryPipe = null;
+        queryQueue = (file == null) ? null : new QueryQueue(file);
     }
     
     /**
@@ -76,6 +219,53 @@ public abstract class AbstractQueryGatherAutomation extends AbstractAutomation i
         return queryFile;
     }
     
+    /**
+     * 
+     * @param source the reader to stream queries from. This automation closes it once it is done running.
+     */
+    @Override
+    public void setQuerySource(CsvReader source){
+        fileReqs.validateHeaders(source.getHeaders());
+        querySource = source;
+        queryFile = null;
+        queryPipe = null;
+        queryQueue = new QueryQueue(source);
+    }
+    
+    /**
+     * Feeds queries to this automation from another automation,
+     * as it reads them. This replaces any query file or source.
+     * 
+     * @see AutomationPipeline
+     * @param pipe the pipe the other automation writes its results to
+     * @throws csv.MissingHeaderException if the pipe doesn't pass along the headers required by getQueryFileReqs
+     */
+    public void setQueryPipe(QueryPipe pipe){
+        fileReqs.validateHeaders(pipe.getQueryHeaders());
+        queryPipe = pipe;
+        queryFile = null;
+        querySource = null;
+        queryQueue = new QueryQueue(pipe);
+    }
+    
+    /**
+     * 
+     * @return the pipe feeding queries into this automation, or null if they come from a file or source instead
+     */
+    public QueryPipe getQueryPipe(){
+        return queryPipe;
+    }
+    
+    @Override
+    public CsvReader getQuerySource(){
+        return querySource;
+    }
+    
+    @Override
+    public QueryQueue getQueryQueue(){
+        return queryQueue;
+    }
+    
     
     @Override
     public final String getResultUrl(){
@@ -86,31 +276,607 @@ public abstract class AbstractQueryGatherAutomation extends AbstractAutomation i
         return resultFile;
     }
     
+    /**
+     * Sets where this automation should put the rows it reads.
+     * The sink is closed once this is done running, so set a new
+     * sink before each run. Passing null goes back to keeping
+     * results in the result file.
+     * 
+     * If the sink is not the default, the result file only holds
+     * the headers and rows added by initResult, which are written
+     * to the sink before the first query.
+     * 
+     * @param sink the sink to write results to, or null to keep them in memory
+     * @return this, for chaining purposes
+     */
+    public final AbstractQueryGatherAutomation setResultSink(ResultSink sink){
+        resultSink = (sink == null) ? memorySink : sink;
+        return this;
+    }
+    
+    public final ResultSink getResultSink(){
+        return resultSink;
+    }
+    
+    /**
+     * Sets the journal this automation records its progress in.
+     * After each query, the query and the rows read for it are
+     * recorded in the journal. In resume mode, the rows for each
+     * query in the journal are written to the result sink before
+     * running any queries, and those queries are skipped.
+     * Queries are identified by their values for the required headers.
+     * 
+     * The journal is closed once this is done running.
+     * 
+     * @param journal the journal to record progress in, or null to not record progress
+     * @param resume whether to resume the run recorded in the journal, or start a new one
+     * @return this, for chaining purposes
+     */
+    public final AbstractQueryGatherAutomation setJournal(QueryJournal journal, boolean resume){
+        this.journal = journal;
+        this.resume = journal != null && resume;
+        return this;
+    }
+    
+    public final QueryJournal getJournal(){
+        return journal;
+    }
+    
+    /**
+     * Sets the cache this automation looks up queries in before
+     * running them, if they weren't already run this run.
+     * If a query is in the cache, the cached rows are
+     * written to the result sink, and the query is marked as skipped.
+     * Every query which is run is added to the cache.
+     * Open the cache before running this.
+     * 
+     * Whether or not there is a result cache, queries repeated
+     * within a run are only run once. Cache hits and misses are
+     * counted in the run metrics.
+     * 
+     * @param cache the cache to share results with other runs through, or null to not share them
+     * @return this, for chaining purposes
+     */
+    public final AbstractQueryGatherAutomation setResultCache(ResultCache cache){
+        resultCache = cache;
+        return this;
+    }
+    
+    public final ResultCache getResultCache(){
+        return resultCache;
+    }
+    
+    /**
+     * If the result sink writes to a file, the results
+     * are already saved, so this just logs where they are.
+     * If the results are kept in the result file,
+     * asks the user where to save it. Otherwise, the results were
+     * passed along to somewhere else, such as another automation.
+     */
+    @Override
+    public void saveResultToFile(){
+        File f = resultSink.getFile();
+        if(resultSink == memorySink){
+            ReadingAutomation.super.saveResultToFile();
+        } else if(f == null){
+            Logger.log("AbstractQueryGatherAutomation.saveResultToFile", resultSink.getRowCount() + " rows were passed along");
+        } else {
+            Logger.log("AbstractQueryGatherAutomation.saveResultToFile", resultSink.getRowCount() + " rows were written to " + f.getAbsolutePath());
+        }
+    }
+    
     @Override
     public void doRun() {
-        WebDriver driver = getDriver();
+        metrics = new RunMetrics();
         CsvFile result = getResultFile();
         result.clear();
         initResult();
-        CsvRow q;
-        while(!hasNoMoreQueries()){
-            driver.get(getInputUrl());
-            ExpectedCondition<Boolean> e  = ExpectedConditions.urlMatches(getInputUrl());
-            getWait().until(e);
+        try{
+            if(resultSink != memorySink){
+                resultSink.write(result);
+            }
+            openJournal();
+            openCache();
+            runAllQueries();
+            if(queryQueue != null){
+                Logger.log("AbstractQueryGatherAutomation.doRun", "Done running queries: " + queryQueue);
+            }
+            if(metrics.getCacheHits() > 0){
+                Logger.log("AbstractQueryGatherAutomation.doRun", String.format("Reused the results of %d queries instead of running them again", metrics.getCacheHits()));
+            }
+            if(navigation != NavigationStrategy.RELOAD){
+                Logger.log("AbstractQueryGatherAutomation.doRun", String.format("Skipped %d input page loads using %s navigation", inputLoadsSkipped.get(), navigation));
+            }
+        } catch(IOException ex){
+            Logger.logError("AbstractQueryGatherAutomation.doRun", ex);
+        } finally {
+            metrics.stop();
+            closeJournal();
+            closeCache();
+            closeQuerySource();
+            closeResultSink();
+        }
+        Logger.log("AbstractQueryGatherAutomation.doRun", "Run metrics: " + metrics);
+        saveResultToFile();
+    }
+    
+    private void openJournal() throws IOException{
+        finishedQueries = new HashMap<>();
+        if(journal == null){
+            return;
+        }
+        if(resume){
+            finishedQueries = journal.replay(resultSink);
+        }
+        journal.open(resume);
+    }
+    
+    private void openCache(){
+        runCache = new QueryCache(resultCache, getName(), getInputUrl());
+        duplicates = new HashMap<>();
+    }
+    
+    private void closeCache(){
+        // so the results don't stay in memory until the next run
+        runCache = new QueryCache();
+        if(resultCache != null){
+            Logger.log("AbstractQueryGatherAutomation.closeCache", "Result cache: " + resultCache);
+        }
+    }
+    
+    /**
+     * Closes the journal. If every query was run successfully,
+     * the journal is marked as finished first, so it won't
+     * be offered for resuming.
+     */
+    private void closeJournal(){
+        if(journal == null){
+            return;
+        }
+        if(queryQueue != null && queryQueue.isEmpty() && queryQueue.getFailed() == 0){
+            journal.recordFinished();
+        }
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            Logger.logError("AbstractQueryGatherAutomation.closeJournal", ex);
+        }
+    }
+    
+    private void closeResultSink(){
+        try {
+            resultSink.close();
+        } catch (IOException ex) {
+            Logger.logError("AbstractQueryGatherAutomation.closeResultSink", ex);
+        }
+    }
+    
+    private void closeQuerySource(){
+        if(queryPipe != null){
+            // so the automation feeding the pipe doesn't wait on this if it stopped early
+            queryPipe.discard();
+        }
+        if(querySource != null){
+            try {
+                querySource.close();
+            } catch (IOException ex) {
+                Logger.logError("AbstractQueryGatherAutomation.closeQuerySource", ex);
+            }
+        }
+    }
+    
+    /**
+     * Runs every query in the query queue.
+     * By default, this runs queries in the browser,
+     * using workerCount browsers at once.
+     * 
+     * Subclasses can override this to run queries some other way.
+     * They should take queries from pollQuery until it returns null,
+     * start each query's result with newQueryResult, then report
+     * how each query went with finishQuery or failQuery,
+     * so the result sink, journal, and query queue stay up to date.
+     */
+    protected void runAllQueries(){
+        if(workerCount == 1){
+            runQueries();
+        } else {
+            runWorkers();
+        }
+    }
+    
+    /**
+     * Runs queries in workerCount browsers at once.
+     * The first worker reuses the driver this automation
+     * was started with, while the rest get their own from launchDriver.
+     * If a worker's browser fails, the remaining workers
+     * finish off the rest of the queries.
+     */
+    private void runWorkers(){
+        WebDriver primary = getDriver();
+        ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+        List<Future<?>> workers = new ArrayList<>();
+        for(int i = 0; i < workerCount; i++){
+            boolean isPrimary = i == 0;
+            workers.add(pool.submit(()->{
+                WebDriver d = (isPrimary) ? primary : launchDriver();
+                attachDriver(d);
+                try{
+                    runQueries();
+                } finally {
+                    detachDriver();
+                    if(!isPrimary){
+                        releaseDriver(d);
+                    }
+                }
+                return null;
+            }));
+        }
+        pool.shutdown();
+        
+        for(Future<?> worker : workers){
+            try {
+                worker.get();
+            } catch (InterruptedException ex) {
+                Logger.logError("AbstractQueryGatherAutomation.runWorkers", ex);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                Logger.logError("AbstractQueryGatherAutomation.runWorkers", "A worker stopped early:");
+                Logger.logError("AbstractQueryGatherAutomation.runWorkers", (ex.getCause() instanceof Exception) ? (Exception)ex.getCause() : ex);
+            }
+        }
+        if(!hasNoMoreQueries()){
+            Logger.logError("AbstractQueryGatherAutomation.runWorkers", "Every worker stopped before all queries were run");
+        }
+    }
+    
+    /**
+     * Takes queries from the query file and runs them
+     * using the driver attached to the calling thread,
+     * until there are no queries left.
+     */
+    private void runQueries(){
+        CsvRow q = pollQuery();
+        while(q != null){
+            runQuery(q);
+            q = pollQuery();
+        }
+    }
+    
+    /**
+     * Since workers share the query file or source,
+     * they need to check and dequeue in one step.
+     * When resuming, queries finished in the previous run are skipped.
+     * Queries which are cached, or which have the same key as
+     * a query which is running, are skipped as well.
+     * 
+     * @return the next query, or null if there are none left.
+     */
+    protected final CsvRow pollQuery(){
+        synchronized(queryLock){
+            CsvRow ret = null;
+            while(ret == null && !hasNoMoreQueries()){
+                ret = getNextQuery();
+                if(skipFinished(ret) || skipCached(ret)){
+                    ret = null;
+                }
+            }
+            return ret;
+        }
+    }
+    
+    /**
+     * Checks the cache for the given query. If it is cached, its
+     * rows are used as its result. If a query with the same key is
+     * running, the given query waits for that one's result instead.
+     * Otherwise, the query needs to be run.
+     * Only call this while holding the query lock.
+     * 
+     * @param q the query to check
+     * @return whether or not q should be skipped
+     */
+    private boolean skipCached(CsvRow q){
+        if(q == null){
+            return false;
+        }
+        boolean ret = true;
+        String key = QueryCache.getKey(q, fileReqs.getReqHeaders());
+        if(duplicates.containsKey(key)){
+            duplicates.get(key).add(q);
+        } else {
+            CsvFile rows = runCache.get(key);
+            if(rows == null){
+                // so duplicates polled while this is running wait for it
+                duplicates.put(key, new ArrayList<>());
+                metrics.recordCacheMiss();
+                ret = false;
+            } else {
+                reuseResult(q, rows);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Uses rows read for another query with the same key
+     * as the result of the given query.
+     * 
+     * @param q the query which was skipped
+     * @param rows the rows read for a query with the same key
+     */
+    private void reuseResult(CsvRow q, CsvFile rows){
+        mergeResult(rows);
+        if(journal != null){
+            journal.recordDone(getQueryKey(q), rows);
+        }
+        queryQueue.markSkipped();
+        metrics.recordCacheHit();
+    }
+    
+    /**
+     * Called once a query is done running, so the
+     * queries waiting on it can stop waiting.
+     * 
+     * @param q the query which is done
+     * @return the queries which were waiting on q
+     */
+    private List<CsvRow> releaseDuplicates(CsvRow q){
+        synchronized(queryLock){
+            List<CsvRow> ret = duplicates.remove(QueryCache.getKey(q, fileReqs.getReqHeaders()));
+            return (ret == null) ? new ArrayList<>() : ret;
+        }
+    }
+    
+    /**
+     * Fails the queries waiting on the given query.
+     * Since they would most likely fail the same way,
+     * they aren't run again.
+     * 
+     * @param q the query which failed
+     */
+    private void failDuplicates(CsvRow q){
+        int failed = releaseDuplicates(q).size();
+        for(int i = 0; i < failed; i++){
+            queryQueue.markFailed();
+            metrics.recordFailed();
+        }
+        if(failed > 0){
+            Logger.logError("AbstractQueryGatherAutomation.failDuplicates", failed + " more copies of that query failed with it");
+        }
+    }
+    
+    /**
+     * When resuming, checks if the given query
+     * was already finished in the previous run.
+     * 
+     * @param q the query to check
+     * @return whether or not q should be skipped
+     */
+    private boolean skipFinished(CsvRow q){
+        boolean ret = false;
+        if(!finishedQueries.isEmpty()){
+            String key = getQueryKey(q);
+            int timesFinished = finishedQueries.getOrDefault(key, 0);
+            if(timesFinished > 0){
+                ret = true;
+                queryQueue.markSkipped();
+                if(timesFinished == 1){
+                    finishedQueries.remove(key);
+                } else {
+                    finishedQueries.put(key, timesFinished - 1);
+                }
+                Logger.log("AbstractQueryGatherAutomation.skipFinished", "Skipping query finished in previous run: " + q);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @param q a query
+     * @return the query's values for each required header, as a CSV record
+     */
+    private String getQueryKey(CsvRow q){
+        StringBuilder b = new StringBuilder();
+        String[] reqHeaders = fileReqs.getReqHeaders();
+        for(int i = 0; i < reqHeaders.length; i++){
+            if(i != 0){
+                b.append(',');
+            }
+            CsvWriter.appendField(b, q.get(reqHeaders[i]));
+        }
+        return b.toString();
+    }
+    
+    private void runQuery(CsvRow q){
+        long start = System.currentTimeMillis();
+        try {
+            WebElement formPage = navigateToInput();
             
-            q = getNextQuery();
+            long time = System.currentTimeMillis();
             inputQuery(q);
+            time = lap(RunMetrics.Phase.INPUT, time);
             
-            e = ExpectedConditions.urlMatches(getResultUrl());
             try{
-                getWait().until(e); 
-                readQueryResult(result);
+                if(formPage != null){
+                    // the form was on the result page, so wait for it to be replaced rather than for the URL to change
+                    await("resubmit " + getResultUrl(), ExpectedConditions.stalenessOf(formPage));
+                }
+                await(getResultUrl(), ExpectedConditions.urlMatches(getResultUrl()));
+                time = lap(RunMetrics.Phase.WAIT_FOR_RESULT, time);
+                CsvFile queryResult = newQueryResult();
+                readQueryResult(queryResult);
+                lap(RunMetrics.Phase.READ, time);
+                finishQuery(q, queryResult, start);
             } catch(TimeoutException timeOut){
-                Logger.logError("AbstractQueryGatherAutomation.doRun", "Did not transition to result page after inputting query: [" + q + "]");
-                Logger.logError("AbstractQueryGatherAutomation.doRun", timeOut);
+                failQuery(q, "Did not transition to result page after inputting query", timeOut);
+            }
+        } catch(RuntimeException ex){
+            // the query is lost along with this worker, so don't mark the journal as finished
+            queryQueue.markFailed();
+            metrics.recordFailed();
+            failDuplicates(q);
+            throw ex;
+        }
+    }
+    
+    /**
+     * Records how long a phase of a query took.
+     * 
+     * @param phase the phase which just ended
+     * @param since when the phase started, from System.currentTimeMillis
+     * @return the current time, for timing the next phase
+     */
+    protected final long lap(RunMetrics.Phase phase, long since){
+        long now = System.currentTimeMillis();
+        metrics.record(phase, now - since);
+        return now;
+    }
+    
+    /**
+     * Gets the browser attached to the calling thread
+     * to the input form, using this' navigation strategy.
+     * Falls back to loading the input page if the form isn't
+     * where the strategy expects it.
+     * 
+     * @return the root element of the current page if the
+     * form is being resubmitted from the result page, otherwise null
+     */
+    private WebElement navigateToInput(){
+        WebDriver driver = getDriver();
+        WebElement ret = null;
+        boolean formFound = false;
+        // falling back to a reload navigates twice, so add the times up and record them once
+        long navigateTime = 0;
+        long waitTime = 0;
+        long time = System.currentTimeMillis();
+        long now;
+        if(navigation != NavigationStrategy.RELOAD && getInputFormLocator() != null && isOnResultPage(driver)){
+            if(navigation == NavigationStrategy.BACK){
+                driver.navigate().back();
+            } else {
+                ret = driver.findElement(By.tagName("html"));
+            }
+            now = System.currentTimeMillis();
+            navigateTime += now - time;
+            time = now;
+            formFound = isInputFormPresent(driver);
+            now = System.currentTimeMillis();
+            waitTime += now - time;
+            time = now;
+            if(formFound){
+                inputLoadsSkipped.incrementAndGet();
+            } else {
+                Logger.log("AbstractQueryGatherAutomation.navigateToInput", "Input form not found after " + navigation + " navigation, so reloading the input page");
+                ret = null;
+            }
+        }
+        if(!formFound){
+            driver.get(getInputUrl());
+            now = System.currentTimeMillis();
+            navigateTime += now - time;
+            time = now;
+            await(getInputUrl(), ExpectedConditions.urlMatches(getInputUrl()));
+            waitTime += System.currentTimeMillis() - time;
+        }
+        metrics.record(RunMetrics.Phase.NAVIGATE, navigateTime);
+        metrics.record(RunMetrics.Phase.WAIT_FOR_INPUT, waitTime);
+        return ret;
+    }
+    
+    private boolean isOnResultPage(WebDriver driver){
+        boolean ret = false;
+        try {
+            ret = driver.getCurrentUrl().matches(".*" + getResultUrl() + ".*");
+        } catch(WebDriverException ex){
+            ret = false;
+        }
+        return ret;
+    }
+    
+    /**
+     * Checks if the input form is on the current page,
+     * without waiting for it.
+     * 
+     * @param driver the browser to check
+     * @return whether or not the element from getInputFormLocator is on the page
+     */
+    private boolean isInputFormPresent(WebDriver driver){
+        boolean ret = false;
+        try {
+            ret = !driver.findElements(getInputFormLocator()).isEmpty();
+        } catch(WebDriverException ex){
+            ret = false;
+        }
+        return ret;
+    }
+    
+    /**
+     * Writes the result of a query to the result sink,
+     * and records it as done. The result is cached, and
+     * used as the result of the queries waiting on this one.
+     * 
+     * @param q the query which was run
+     * @param queryResult the rows read for q, in a file from newQueryResult
+     * @param startTime when q was started, from System.currentTimeMillis
+     */
+    protected final void finishQuery(CsvRow q, CsvFile queryResult, long startTime){
+        long time = System.currentTimeMillis();
+        mergeResult(queryResult);
+        if(journal != null){
+            journal.recordDone(getQueryKey(q), queryResult);
+        }
+        queryQueue.markCompleted();
+        lap(RunMetrics.Phase.MERGE, time);
+        metrics.recordCompleted(System.currentTimeMillis() - startTime, queryResult.getRowCount());
+        
+        runCache.put(QueryCache.getKey(q, fileReqs.getReqHeaders()), queryResult);
+        for(CsvRow dup : releaseDuplicates(q)){
+            reuseResult(dup, queryResult);
+        }
+    }
+    
+    /**
+     * Records that a query could not be run.
+     * 
+     * @param q the query which failed
+     * @param reason what went wrong
+     * @param ex the exception which caused the failure, or null if there wasn't one
+     */
+    protected final void failQuery(CsvRow q, String reason, Exception ex){
+        queryQueue.markFailed();
+        metrics.recordFailed();
+        Logger.logError("AbstractQueryGatherAutomation.failQuery", reason + ": [" + q + "]");
+        if(ex != null){
+            Logger.logError("AbstractQueryGatherAutomation.failQuery", ex);
+        }
+        failDuplicates(q);
+    }
+    
+    /**
+     * Each query is read into its own CsvFile,
+     * so workers needn't share the result file while
+     * reading the page. The new file starts with the
+     * same headers as the result file, so readQueryResult
+     * can treat it the same as the result file.
+     * Both are columnar, so merging copies whole columns at once.
+     * 
+     * @return an empty CsvFile with the result sink's headers
+     */
+    protected final CsvFile newQueryResult(){
+        synchronized(resultFile){
+            return new CsvFile(resultSink.getHeaders().toArray(new String[0]), CsvLayout.COLUMNS);
+        }
+    }
+    
+    private void mergeResult(CsvFile queryResult){
+        synchronized(resultFile){
+            try {
+                resultSink.write(queryResult);
+            } catch (IOException ex) {
+                Logger.logError("AbstractQueryGatherAutomation.mergeResult", "Failed to write result: " + queryResult.getRowCount() + " rows were lost");
+                Logger.logError("AbstractQueryGatherAutomation.mergeResult", ex);
             }
         }
-        saveResultToFile();
     }
     
     /**
@@ -137,9 +903,12 @@ public abstract class AbstractQueryGatherAutomation extends AbstractAutomation i
     /**
      * Parse the web page specified by this' result URL.
      * This method should then use data from the webpage to
-     * change this' result file.
+     * change saveFile, which is merged into this' result file
+     * afterwards. Since several browsers may be reading results
+     * at once, implementations should only use saveFile and the
+     * driver returned by getDriver.
      * 
-     * @param saveFile the result file for this automation
+     * @param saveFile a file with the same headers as this' result file
      */
     public abstract void readQueryResult(CsvFile saveFile);
 }
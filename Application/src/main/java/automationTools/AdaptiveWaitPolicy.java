@@ -0,0 +1,189 @@
+package automationTools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import util.LatencyHistogram;
+
+/**
+ * The AdaptiveWaitPolicy checks conditions often at first,
+ * then less and less often, so fast pages are noticed
+ * right away without flooding slow pages with requests.
+ * 
+ * It also learns how long each key usually takes.
+ * Until a key has been waited for minSamples times,
+ * waits time out after defaultTimeout. After that, they
+ * time out after timeoutMultiplier times the 99th percentile
+ * of the recent waits for that key, kept between minTimeout
+ * and maxTimeout. So a page which usually loads in half a
+ * second fails in seconds when the site stops responding,
+ * while a page which is slow but working gets more time.
+ * A timed out wait counts as taking the full timeout,
+ * so repeated timeouts raise the timeout.
+ * 
+ * @author Matt Crow
+ */
+public class AdaptiveWaitPolicy implements WaitPolicy {
+    private long initialPollInterval;
+    private long maxPollInterval;
+    private double backoff;
+    private long defaultTimeout;
+    private long minTimeout;
+    private long maxTimeout;
+    private double timeoutMultiplier;
+    private int minSamples;
+    private final ConcurrentHashMap<String, KeyStats> stats;
+    
+    private static class KeyStats {
+        private final LatencyHistogram latency;
+        private long timeouts;
+        
+        private KeyStats(){
+            latency = new LatencyHistogram();
+            timeouts = 0;
+        }
+    }
+    
+    public AdaptiveWaitPolicy(){
+        initialPollInterval = 25;
+        maxPollInterval = 500;
+        backoff = 1.5;
+        defaultTimeout = 10000;
+        minTimeout = 2000;
+        maxTimeout = 60000;
+        timeoutMultiplier = 3;
+        minSamples = 20;
+        stats = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * 
+     * @param initial how long to wait between the first two checks, in milliseconds
+     * @param max the longest to ever wait between checks, in milliseconds
+     * @param backoff how much longer to wait before each check than the last
+     * @return this, for chaining purposes
+     */
+    public AdaptiveWaitPolicy setPolling(long initial, long max, double backoff){
+        if(initial < 1 || max < initial || backoff < 1){
+            throw new IllegalArgumentException(String.format("Invalid polling: initial=%d max=%d backoff=%f", initial, max, backoff));
+        }
+        initialPollInterval = initial;
+        maxPollInterval = max;
+        this.backoff = backoff;
+        return this;
+    }
+    
+    /**
+     * 
+     * @param defaultTimeout the timeout for keys without enough samples, in milliseconds
+     * @param min the shortest learned timeout, in milliseconds
+     * @param max the longest learned timeout, in milliseconds
+     * @return this, for chaining purposes
+     */
+    public AdaptiveWaitPolicy setTimeouts(long defaultTimeout, long min, long max){
+        if(min < 0 || max < min || defaultTimeout < min || defaultTimeout > max){
+            throw new IllegalArgumentException(String.format("Invalid timeouts: default=%d min=%d max=%d", defaultTimeout, min, max));
+        }
+        this.defaultTimeout = defaultTimeout;
+        minTimeout = min;
+        maxTimeout = max;
+        return this;
+    }
+    
+    /**
+     * 
+     * @param multiplier how many times the 99th percentile to wait before timing out
+     * @param minSamples how many waits a key needs before its timeout is learned
+     * @return this, for chaining purposes
+     */
+    public AdaptiveWaitPolicy setLearning(double multiplier, int minSamples){
+        if(multiplier < 1 || minSamples < 1){
+            throw new IllegalArgumentException(String.format("Invalid learning: multiplier=%f minSamples=%d", multiplier, minSamples));
+        }
+        timeoutMultiplier = multiplier;
+        this.minSamples = minSamples;
+        return this;
+    }
+    
+    private KeyStats getKeyStats(String key){
+        return stats.computeIfAbsent(key, (k)->new KeyStats());
+    }
+    
+    @Override
+    public long getTimeout(String key){
+        KeyStats keyStats = stats.get(key);
+        long ret = defaultTimeout;
+        if(keyStats != null && keyStats.latency.getCount() >= minSamples){
+            long learned = (long)(keyStats.latency.getPercentile(99) * timeoutMultiplier);
+            ret = Math.max(minTimeout, Math.min(maxTimeout, learned));
+        }
+        return ret;
+    }
+    
+    @Override
+    public <T> T until(WebDriver driver, String key, ExpectedCondition<T> condition){
+        KeyStats keyStats = getKeyStats(key);
+        long timeout = getTimeout(key);
+        long start = System.currentTimeMillis();
+        long deadline = start + timeout;
+        long poll = initialPollInterval;
+        RuntimeException lastIgnored = null;
+        T result;
+        long now;
+        
+        while(true){
+            result = null;
+            try {
+                result = condition.apply(driver);
+            } catch(NotFoundException | StaleElementReferenceException ex){
+                // the page hasn't loaded yet
+                lastIgnored = ex;
+            }
+            now = System.currentTimeMillis();
+            if(result != null && !Boolean.FALSE.equals(result)){
+                keyStats.latency.record(now - start);
+                return result;
+            }
+            if(now >= deadline){
+                keyStats.latency.record(timeout);
+                synchronized(keyStats){
+                    keyStats.timeouts++;
+                }
+                throw new TimeoutException(String.format("Waited %dms for %s (%s)", timeout, key, condition), lastIgnored);
+            }
+            try {
+                Thread.sleep(Math.min(poll, deadline - now));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while waiting for " + key, ex);
+            }
+            poll = Math.min(maxPollInterval, (long)(poll * backoff));
+        }
+    }
+    
+    @Override
+    public List<WaitStats> getStats(){
+        ArrayList<WaitStats> ret = new ArrayList<>();
+        stats.forEach((key, keyStats)->{
+            long timeouts;
+            synchronized(keyStats){
+                timeouts = keyStats.timeouts;
+            }
+            ret.add(new WaitStats(
+                key,
+                keyStats.latency.getCount(),
+                timeouts,
+                keyStats.latency.getPercentiles(50, 95, 99),
+                keyStats.latency.getMax(),
+                getTimeout(key)
+            ));
+        });
+        return ret;
+    }
+}
@@ -0,0 +1,137 @@
+package automationTools;
+
+import application.WebDriverPool;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import logging.Logger;
+import util.Browser;
+import util.LaunchProfile;
+
+/**
+ * An AutomationPipeline runs several automations at once,
+ * where each one's queries are the rows the one before it reads.
+ * For example, PurchaseOrderAutomation can look up each requisition
+ * as soon as RequisitionAutomation reads it, rather than waiting
+ * for RequisitionAutomation to finish, then saving and reloading its results.
+ * 
+ * Each stage writes its results to a QueryPipe, which the next stage
+ * reads its queries from. The first stage needs a query file or source,
+ * and the last stage's results go to its own result sink.
+ * To also keep the results of a stage in the middle, give it a
+ * result sink which writes to a file, such as a StreamingResultSink,
+ * before adding the stage after it.
+ * 
+ * Every stage runs in its own thread, using its own browsers.
+ * 
+ * @see QueryPipe
+ * @author Matt Crow
+ */
+public class AutomationPipeline {
+    private final List<AbstractQueryGatherAutomation> stages;
+    private final List<QueryPipe> pipes; // pipes.get(i) connects stages i and i + 1
+    
+    /**
+     * 
+     * @param first the first automation to run. Set its query file or source first.
+     */
+    public AutomationPipeline(AbstractQueryGatherAutomation first){
+        stages = new ArrayList<>();
+        pipes = new ArrayList<>();
+        stages.add(first);
+    }
+    
+    /**
+     * Adds an automation to the end of the pipeline,
+     * which runs a query for each row the last one reads.
+     * 
+     * @param next the automation to add
+     * @return this, for chaining purposes
+     * @throws csv.MissingHeaderException if the columns next requires can't be passed along
+     */
+    public AutomationPipeline then(AbstractQueryGatherAutomation next){
+        AbstractQueryGatherAutomation last = stages.get(stages.size() - 1);
+        // only keep the last stage's results if they're going to a file, since there's nobody to ask where to save them
+        ResultSink tee = (last.getResultSink().getFile() == null) ? null : last.getResultSink();
+        QueryPipe pipe = new QueryPipe(next.getQueryFileReqs(), tee);
+        last.setResultSink(pipe);
+        next.setQueryPipe(pipe);
+        pipes.add(pipe);
+        stages.add(next);
+        return this;
+    }
+    
+    public List<AbstractQueryGatherAutomation> getStages(){
+        return Collections.unmodifiableList(stages);
+    }
+    
+    /**
+     * Runs every stage at once, and waits for them all to finish.
+     * If a stage fails, the stages after it finish the queries
+     * it already passed along, then stop.
+     * 
+     * @param browser the browser to run each stage in
+     * @param profile how to launch the browsers
+     * @param pool the pool to lease WebDrivers from, or null to launch new ones
+     * @throws Exception the first exception thrown by a stage, once every stage has stopped
+     */
+    public void run(Browser browser, LaunchProfile profile, WebDriverPool pool) throws Exception{
+        ExecutorService threads = Executors.newFixedThreadPool(stages.size(), (r)->{
+            Thread t = new Thread(r, "Pipeline stage");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<?>> running = new ArrayList<>();
+        for(int i = 0; i < stages.size(); i++){
+            AbstractQueryGatherAutomation stage = stages.get(i);
+            QueryPipe in = (i == 0) ? null : pipes.get(i - 1);
+            QueryPipe out = (i == pipes.size()) ? null : pipes.get(i);
+            running.add(threads.submit(()->{
+                try {
+                    stage.run(browser, profile, pool);
+                } finally {
+                    // the stage closes these itself once it starts running, but not if it failed to start
+                    if(in != null){
+                        in.discard();
+                    }
+                    if(out != null){
+                        closePipe(out);
+                    }
+                }
+                return null;
+            }));
+        }
+        threads.shutdown();
+        
+        Exception firstError = null;
+        for(Future<?> f : running){
+            try {
+                f.get();
+            } catch(ExecutionException ex){
+                Logger.logError("AutomationPipeline.run", ex);
+                if(firstError == null){
+                    firstError = (ex.getCause() instanceof Exception) ? (Exception)ex.getCause() : ex;
+                }
+            }
+        }
+        for(AbstractQueryGatherAutomation stage : stages){
+            Logger.log("AutomationPipeline.run", stage.getName() + ": " + stage.getMetrics());
+        }
+        if(firstError != null){
+            throw firstError;
+        }
+    }
+    
+    private static void closePipe(QueryPipe pipe){
+        try {
+            pipe.close();
+        } catch (IOException ex) {
+            Logger.logError("AutomationPipeline.closePipe", ex);
+        }
+    }
+}
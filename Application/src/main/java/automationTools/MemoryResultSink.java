@@ -0,0 +1,46 @@
+package automationTools;
+
+import csv.CsvFile;
+import java.util.List;
+
+/**
+ * The MemoryResultSink keeps every row in a CsvFile.
+ * This is what automations use by default, and is fine
+ * for runs small enough to comfortably hold in memory.
+ * 
+ * @author Matt Crow
+ */
+public class MemoryResultSink implements ResultSink {
+    private final CsvFile file;
+    
+    /**
+     * 
+     * @param file the CsvFile to store rows in
+     */
+    public MemoryResultSink(CsvFile file){
+        this.file = file;
+    }
+    
+    @Override
+    public void write(CsvFile rows){
+        file.concatinateWith(rows);
+    }
+    
+    @Override
+    public List<String> getHeaders(){
+        return file.getHeaders();
+    }
+    
+    @Override
+    public int getRowCount(){
+        return file.getRowCount();
+    }
+    
+    /**
+     * 
+     * @return the CsvFile this stores rows in
+     */
+    public CsvFile getCsvFile(){
+        return file;
+    }
+}
@@ -0,0 +1,32 @@
+package automationTools;
+
+/**
+ * How an AbstractQueryGatherAutomation gets back to
+ * its input form after reading the result of a query.
+ * 
+ * Strategies other than RELOAD need the automation
+ * to say how to recognize its input form: see
+ * AbstractQueryGatherAutomation.getInputFormLocator.
+ * If the form isn't found where the strategy expects it,
+ * the automation falls back to reloading the input page.
+ * 
+ * @author Matt Crow
+ */
+public enum NavigationStrategy {
+    /*
+    Load the input page before every query.
+    Always works, but costs a full page load per query.
+    */
+    RELOAD,
+    /*
+    Go back from the result page to the input page.
+    Browsers usually restore the previous page from their cache,
+    rather than requesting it from the server again.
+    */
+    BACK,
+    /*
+    Fill out the form already on the current page,
+    for sites whose result pages include the input form.
+    */
+    RESUBMIT
+}
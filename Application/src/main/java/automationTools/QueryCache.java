@@ -0,0 +1,151 @@
+package automationTools;
+
+import csv.CsvFile;
+import csv.CsvRow;
+import csv.CsvWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import logging.Logger;
+
+/**
+ * The QueryCache remembers the rows an AbstractQueryGatherAutomation
+ * read for each query during a run, so a query which comes up again
+ * can reuse them instead of being run in the browser again.
+ * 
+ * Queries are identified by their normalized values for the
+ * required headers of the automation: see getKey. So "PO 123" and
+ * " po  123 " are the same query.
+ * 
+ * On its own, a QueryCache only lives as long as the run, so it
+ * only catches queries repeated within the run. To keep memory from
+ * growing with the run, it only holds the capacity most recently
+ * used queries, so a query repeated far apart may be run twice.
+ * 
+ * Given a ResultCache, the QueryCache keeps nothing itself, and
+ * looks up and adds every query there instead, so later runs can
+ * skip queries they already ran, and the ResultCache's own bound
+ * is the only one which applies.
+ * 
+ * @see AbstractQueryGatherAutomation#setResultCache(automationTools.ResultCache)
+ * @author Matt Crow
+ */
+public class QueryCache {
+    public static final int DEFAULT_CAPACITY = 1000;
+    
+    private final ResultCache store;
+    private final String automation;
+    private final String inputUrl;
+    private final LinkedHashMap<String, CsvFile> entries; // most recently used last
+    
+    /**
+     * Creates a cache which is only kept in memory,
+     * and holds at most DEFAULT_CAPACITY queries.
+     */
+    public QueryCache(){
+        this(null, null, null, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * 
+     * @param store the cache to share results with other runs through, or null to only keep them in memory
+     * @param automation the name of the automation running the queries
+     * @param inputUrl where the automation sends its queries
+     * @param capacity the most queries to keep in memory when there is no store
+     */
+    public QueryCache(ResultCache store, String automation, String inputUrl, int capacity){
+        if(capacity < 0){
+            throw new IllegalArgumentException("Capacity cannot be negative, not " + capacity);
+        }
+        this.store = store;
+        this.automation = automation;
+        this.inputUrl = inputUrl;
+        entries = new LinkedHashMap<String, CsvFile>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CsvFile> eldest){
+                return size() > capacity;
+            }
+        };
+    }
+    
+    public QueryCache(ResultCache store, String automation, String inputUrl){
+        this(store, automation, inputUrl, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * 
+     * @return the cache this shares results through, or null if it is only kept in memory
+     */
+    public ResultCache getStore(){
+        return store;
+    }
+    
+    /**
+     * Normalizes a query's values for the given headers,
+     * so queries which only differ in case or spacing
+     * get the same key.
+     * 
+     * @param q a query
+     * @param reqHeaders the headers which identify the query, usually from CsvFileRequirements.getReqHeaders
+     * @return the key for q in a QueryCache
+     */
+    public static String getKey(CsvRow q, String[] reqHeaders){
+        StringBuilder b = new StringBuilder();
+        String value;
+        for(int i = 0; i < reqHeaders.length; i++){
+            if(i != 0){
+                b.append(',');
+            }
+            value = q.get(reqHeaders[i]);
+            value = (value == null) ? "" : value.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+            CsvWriter.appendField(b, value);
+        }
+        return b.toString();
+    }
+    
+    /**
+     * 
+     * @param key the key of a query, from getKey
+     * @return the rows read for the query, or null if it hasn't been run.
+     * Don't change the returned file, since it is shared.
+     */
+    public CsvFile get(String key){
+        CsvFile ret;
+        synchronized(this){
+            ret = entries.get(key);
+        }
+        if(ret == null && store != null){
+            ret = store.get(automation, inputUrl, key);
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @param key the key of a query, from getKey
+     * @param rows the rows read for the query. Don't change it afterwards, since it is shared.
+     */
+    public void put(String key, CsvFile rows){
+        if(store == null){
+            synchronized(this){
+                entries.put(key, rows);
+            }
+            return;
+        }
+        try {
+            store.put(automation, inputUrl, key, rows);
+        } catch (IOException ex) {
+            // keep it here instead, so it can still be reused this run
+            Logger.logError("QueryCache.put", "Failed to cache query " + key + ":");
+            Logger.logError("QueryCache.put", ex);
+            synchronized(this){
+                entries.put(key, rows);
+            }
+        }
+    }
+    
+    public synchronized int size(){
+        return entries.size();
+    }
+}
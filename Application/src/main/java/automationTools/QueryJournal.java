@@ -0,0 +1,382 @@
+package automationTools;
+
+import csv.CsvFile;
+import csv.CsvRow;
+import csv.CsvTokenizer;
+import csv.CsvWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import logging.Logger;
+
+/**
+ * The QueryJournal keeps track of which queries an
+ * AbstractQueryGatherAutomation has finished, along with
+ * the rows it read for each of them, so that if the program
+ * crashes partway through a run, the next run can pick up
+ * where it left off.
+ * 
+ * The journal is a CSV file which is only ever appended to.
+ * Each record starts with its type:
+ * <ul>
+ * <li>H: the headers of the R records after it</li>
+ * <li>R: the query key, followed by one row read for that query</li>
+ * <li>D: the query key, meaning that query is done</li>
+ * <li>F: the run finished</li>
+ * </ul>
+ * and ends with a "." field, so a record cut off by
+ * a crash can be told apart from a complete one.
+ * Rows are only replayed once their query's D record is read.
+ * 
+ * To keep the query loop from waiting on the disk,
+ * recording a query just adds it to a buffer.
+ * A background thread writes the buffer and forces it to disk
+ * once it has batchSize queries, or every flushInterval
+ * milliseconds, whichever comes first.
+ * 
+ * @author Matt Crow
+ */
+public class QueryJournal implements Closeable {
+    public static final int DEFAULT_BATCH_SIZE = 16;
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000; // 1 second
+    
+    private static final String HEADERS = "H";
+    private static final String ROW = "R";
+    private static final String DONE = "D";
+    private static final String FINISHED = "F";
+    private static final String END = ".";
+    
+    private final Path path;
+    private final int batchSize;
+    private final long flushInterval;
+    private final Object bufferLock;
+    private final Object fileLock;
+    private final StringBuilder buffer;
+    private int bufferedQueries;
+    private List<String> lastHeaders;
+    private FileChannel channel;
+    private Thread flusher;
+    private volatile boolean open;
+    
+    /**
+     * 
+     * @param path the journal file
+     * @param batchSize how many queries to record before forcing them to disk
+     * @param flushInterval the longest a recorded query can wait before being forced to disk, in milliseconds
+     */
+    public QueryJournal(Path path, int batchSize, long flushInterval){
+        if(batchSize < 1){
+            throw new IllegalArgumentException("Batch size must be at least 1, not " + batchSize);
+        }
+        this.path = path;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        bufferLock = new Object();
+        fileLock = new Object();
+        buffer = new StringBuilder();
+        bufferedQueries = 0;
+        lastHeaders = null;
+        channel = null;
+        flusher = null;
+        open = false;
+    }
+    
+    public QueryJournal(Path path){
+        this(path, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+    
+    public Path getPath(){
+        return path;
+    }
+    
+    /**
+     * Names the journal for a run of the given automation,
+     * so runs of the same automation on different files,
+     * such as several started by cron at once, each get
+     * their own journal, and only resume their own queries.
+     * 
+     * @param automation the name of the automation
+     * @param input the file the run reads its queries from, or null if it doesn't have one
+     * @param output the file the run writes its results to, or null if it doesn't have one
+     * @return the name to pass to FileSystem.getJournalPath
+     */
+    public static String getName(String automation, Path input, Path output){
+        StringBuilder b = new StringBuilder(automation).append('_');
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(String.join("\n",
+                automation,
+                (input == null) ? "" : input.toAbsolutePath().normalize().toString(),
+                (output == null) ? "" : output.toAbsolutePath().normalize().toString()
+            ).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(ex);
+        }
+        // the first 8 bytes are plenty to tell runs apart
+        for(int i = 0; i < 8; i++){
+            b.append(String.format("%02x", hash[i]));
+        }
+        return b.toString();
+    }
+    
+    /**
+     * 
+     * @return whether or not this journal exists, and belongs to a run which did not finish
+     * @throws IOException if the journal cannot be read
+     */
+    public boolean canResume() throws IOException{
+        if(!Files.exists(path)){
+            return false;
+        }
+        boolean finished = false;
+        boolean empty = true;
+        ArrayList<String> record = new ArrayList<>();
+        try(Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+            CsvTokenizer tokenizer = new CsvTokenizer(in);
+            while(tokenizer.readRecord(record)){
+                if(isComplete(record)){
+                    empty = false;
+                    finished = FINISHED.equals(record.get(0));
+                }
+            }
+        }
+        return !empty && !finished;
+    }
+    
+    /**
+     * Deletes the journal once its run has finished and it is closed,
+     * since there is nothing left to resume from it. Journals are
+     * named after the files each run used, so this keeps them from
+     * piling up.
+     * 
+     * @return whether or not the journal was deleted
+     */
+    public boolean deleteIfFinished(){
+        try {
+            if(!open && Files.exists(path) && !canResume()){
+                Files.delete(path);
+                return true;
+            }
+        } catch (IOException ex) {
+            Logger.logError("QueryJournal.deleteIfFinished", ex);
+        }
+        return false;
+    }
+    
+    /**
+     * Reads the journal, writing the rows of each
+     * finished query to the given sink.
+     * 
+     * @param sink where to write the journaled rows
+     * @return the key of each finished query, mapped to the number of times it was finished
+     * @throws IOException if the journal cannot be read, or the sink cannot be written to
+     */
+    public HashMap<String, Integer> replay(ResultSink sink) throws IOException{
+        HashMap<String, Integer> done = new HashMap<>();
+        if(!Files.exists(path)){
+            return done;
+        }
+        CsvFile rows = new CsvFile();
+        ArrayList<String> record = new ArrayList<>();
+        int replayed = 0;
+        try(Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+            CsvTokenizer tokenizer = new CsvTokenizer(in);
+            while(tokenizer.readRecord(record)){
+                if(!isComplete(record)){
+                    continue;
+                }
+                switch(record.get(0)){
+                    case HEADERS:
+                        rows = new CsvFile(record.subList(1, record.size() - 1).toArray(new String[0]));
+                        break;
+                    case ROW:
+                        rows.addRow(new CsvRow(rows, record.subList(2, record.size() - 1).toArray(new String[0])));
+                        break;
+                    case DONE:
+                        sink.write(rows);
+                        replayed += rows.getRowCount();
+                        rows = new CsvFile(rows.getHeaders().toArray(new String[0]));
+                        done.merge(record.get(1), 1, Integer::sum);
+                        break;
+                    default:
+                        // F records don't carry any rows
+                        break;
+                }
+            }
+        }
+        Logger.log("QueryJournal.replay", String.format("Replayed %d rows from %d finished queries", replayed, done.values().stream().mapToInt(Integer::intValue).sum()));
+        return done;
+    }
+    
+    private static boolean isComplete(List<String> record){
+        return record.size() >= 2 && END.equals(record.get(record.size() - 1));
+    }
+    
+    /**
+     * Opens the journal for writing, and starts
+     * the thread which forces it to disk.
+     * 
+     * @param append whether to keep the entries already in the journal, or start over
+     * @throws IOException if the journal cannot be opened
+     */
+    public void open(boolean append) throws IOException{
+        if(open){
+            throw new IllegalStateException("Journal " + path + " is already open");
+        }
+        channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        if(!append){
+            channel.truncate(0);
+        }
+        channel.position(channel.size());
+        if(channel.size() > 0){
+            // a crash may have cut off the last record, so end it, or the next record would be glued on to it
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            if(last.get(0) != '\n'){
+                channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+            }
+        }
+        lastHeaders = null;
+        open = true;
+        flusher = new Thread(this::flushLoop, "QueryJournal flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    /**
+     * Records that the given query is done,
+     * along with the rows read for it.
+     * 
+     * @param queryKey identifies the query
+     * @param rows the rows read for the query
+     */
+    public void recordDone(String queryKey, CsvFile rows){
+        List<String> headers = rows.getHeaders();
+        synchronized(bufferLock){
+            if(!headers.equals(lastHeaders)){
+                appendRecord(HEADERS, null, headers);
+                lastHeaders = headers;
+            }
+            for(CsvRow row : rows.getBody()){
+                ArrayList<String> cells = new ArrayList<>(headers.size());
+                for(String header : headers){
+                    cells.add(row.get(header));
+                }
+                appendRecord(ROW, queryKey, cells);
+            }
+            appendRecord(DONE, queryKey, null);
+            bufferedQueries++;
+            if(bufferedQueries >= batchSize){
+                bufferLock.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Records that every query has been run,
+     * so there is nothing left to resume.
+     */
+    public void recordFinished(){
+        synchronized(bufferLock){
+            appendRecord(FINISHED, null, null);
+        }
+    }
+    
+    private void appendRecord(String type, String key, List<String> fields){
+        buffer.append(type);
+        if(key != null){
+            buffer.append(',');
+            CsvWriter.appendField(buffer, key);
+        }
+        if(fields != null){
+            for(String field : fields){
+                buffer.append(',');
+                CsvWriter.appendField(buffer, field);
+            }
+        }
+        buffer.append(',').append(END).append('\n');
+    }
+    
+    private void flushLoop(){
+        while(open){
+            synchronized(bufferLock){
+                if(open && bufferedQueries < batchSize){
+                    try {
+                        bufferLock.wait(flushInterval);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            try {
+                flush();
+            } catch (IOException ex) {
+                Logger.logError("QueryJournal.flushLoop", ex);
+            }
+        }
+    }
+    
+    /**
+     * Writes everything recorded so far to the journal,
+     * and forces it to disk.
+     * 
+     * @throws IOException if the journal cannot be written to
+     */
+    public void flush() throws IOException{
+        synchronized(fileLock){
+            String text;
+            synchronized(bufferLock){
+                if(buffer.length() == 0 || channel == null){
+                    return;
+                }
+                text = buffer.toString();
+                buffer.setLength(0);
+                bufferedQueries = 0;
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while(bytes.hasRemaining()){
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException{
+        if(!open){
+            return;
+        }
+        synchronized(bufferLock){
+            open = false;
+            bufferLock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized(fileLock){
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package automationTools;
+
+import csv.CsvFile;
+import csv.CsvFileRequirements;
+import csv.CsvRow;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import logging.Logger;
+
+/**
+ * A QueryPipe connects two automations: it is the result sink
+ * of one, and the query source of the other, so each row the first
+ * automation reads becomes a query for the second as soon as it is read.
+ * The second automation can start working while the first is still
+ * running, and no file is needed in between.
+ * 
+ * Only the columns the second automation requires are passed along.
+ * Every row is also written to an optional tee, such as a
+ * StreamingResultSink, to keep the first automation's results.
+ * 
+ * The pipe holds at most capacity queries. Once it is full,
+ * the first automation waits for the second to catch up,
+ * so a slow second automation can't run the program out of memory.
+ * If the second automation stops early, call discard,
+ * so the first doesn't wait forever.
+ * 
+ * @see AutomationPipeline
+ * @author Matt Crow
+ */
+public class QueryPipe implements ResultSink, Iterator<CsvRow> {
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    // queued after the last query, so the reader knows to stop waiting
+    private static final String[] END = new String[0];
+    
+    private final String[] reqHeaders;
+    private final CsvFile queryHeaders; // every query belongs to this header-only file
+    private final ResultSink tee;
+    private final BlockingQueue<String[]> queries;
+    private final List<String> headers;
+    private int rowCount;
+    private String[] next;
+    private volatile boolean closed;
+    private volatile boolean discarding;
+    
+    /**
+     * 
+     * @param reqs the requirements of the automation this feeds queries into
+     * @param tee where to also write every row, or null to only pass them on as queries
+     * @param capacity the most queries which can wait in the pipe at once
+     */
+    public QueryPipe(CsvFileRequirements reqs, ResultSink tee, int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be at least 1, not " + capacity);
+        }
+        reqHeaders = reqs.getReqHeaders();
+        queryHeaders = new CsvFile(reqHeaders);
+        this.tee = tee;
+        queries = new ArrayBlockingQueue<>(capacity);
+        headers = new ArrayList<>();
+        rowCount = 0;
+        next = null;
+        closed = false;
+        discarding = false;
+    }
+    
+    public QueryPipe(CsvFileRequirements reqs, ResultSink tee){
+        this(reqs, tee, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * 
+     * @return the headers every query from this pipe has
+     */
+    public String[] getQueryHeaders(){
+        return reqHeaders.clone();
+    }
+    
+    /**
+     * Passes each row along as a query, waiting if the pipe is full.
+     * 
+     * @param rows the rows the first automation read
+     * @throws IOException if the rows don't have the columns the second automation requires,
+     * the tee cannot write them, or this is interrupted while waiting
+     */
+    @Override
+    public void write(CsvFile rows) throws IOException{
+        synchronized(this){
+            if(closed){
+                throw new IOException("Cannot write to a closed pipe");
+            }
+            if(tee != null){
+                tee.write(rows);
+            }
+            for(String header : rows.getHeaders()){
+                if(!headers.contains(header)){
+                    headers.add(header);
+                }
+            }
+            rowCount += rows.getRowCount();
+        }
+        
+        if(rows.getRowCount() == 0 || discarding){
+            return;
+        }
+        // checked here rather than when the pipe is made, since the first automation's headers aren't known until it runs
+        List<String> missing = new ArrayList<>(Arrays.asList(reqHeaders));
+        missing.removeAll(rows.getHeaders());
+        if(!missing.isEmpty()){
+            throw new IOException("Cannot pass rows along as queries, since they are missing the columns " + missing);
+        }
+        String[] values;
+        for(int i = 0; i < rows.getRowCount(); i++){
+            values = new String[reqHeaders.length];
+            for(int j = 0; j < reqHeaders.length; j++){
+                values[j] = rows.getRow(i).get(reqHeaders[j]);
+            }
+            // not while holding the lock, since this waits while the pipe is full
+            put(values);
+        }
+    }
+    
+    private void put(String[] values) throws IOException{
+        boolean added = false;
+        try {
+            // checks discarding every second, in case the reader stops while this waits
+            while(!added && !discarding){
+                added = queries.offer(values, 1, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to pass a query along", ex);
+        }
+    }
+    
+    @Override
+    public synchronized List<String> getHeaders(){
+        return (tee == null) ? new ArrayList<>(headers) : tee.getHeaders();
+    }
+    
+    @Override
+    public synchronized int getRowCount(){
+        return (tee == null) ? rowCount : tee.getRowCount();
+    }
+    
+    @Override
+    public File getFile(){
+        return (tee == null) ? null : tee.getFile();
+    }
+    
+    /**
+     * Tells the reader there are no more queries coming,
+     * once it has read the ones already in the pipe,
+     * then closes the tee. Closing twice does nothing.
+     * 
+     * @throws IOException if the tee cannot be closed
+     */
+    @Override
+    public void close() throws IOException{
+        synchronized(this){
+            if(closed){
+                return;
+            }
+            closed = true;
+        }
+        try {
+            put(END);
+        } finally {
+            if(tee != null){
+                tee.close();
+            }
+        }
+    }
+    
+    public boolean isClosed(){
+        return closed;
+    }
+    
+    /**
+     * Called once nothing will read from this pipe anymore.
+     * Queries still in the pipe are thrown away, and later rows are
+     * only written to the tee, so the writer doesn't wait for a reader
+     * which is gone.
+     */
+    public void discard(){
+        if(!discarding){
+            discarding = true;
+            int dropped = queries.size();
+            queries.clear();
+            if(dropped > 0){
+                Logger.warn("QueryPipe.discard", dropped + " queries were never run, since nothing is reading them");
+            }
+        }
+    }
+    
+    /**
+     * Waits until there is another query,
+     * or the pipe is closed and empty.
+     * 
+     * @return whether or not there is another query to read
+     */
+    @Override
+    public boolean hasNext(){
+        while(next == null && !discarding){
+            try {
+                next = queries.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                discard();
+            }
+        }
+        if(next == END){
+            // leave END in place, so hasNext stays false
+            return false;
+        }
+        return next != null;
+    }
+    
+    @Override
+    public CsvRow next(){
+        if(!hasNext()){
+            throw new NoSuchElementException("No more queries in the pipe");
+        }
+        CsvRow ret = new CsvRow(queryHeaders, next);
+        next = null;
+        return ret;
+    }
+}
@@ -0,0 +1,206 @@
+package automationTools;
+
+import csv.CsvFile;
+import csv.CsvRow;
+import java.util.Iterator;
+
+/**
+ * The QueryQueue holds the queries a QueryingAutomation
+ * has yet to run, and keeps count of how the queries
+ * it has given out turned out.
+ * 
+ * Queries come from either a CsvFile, which is dequeued
+ * from the front, or a source such as a CsvReader or QueryPipe,
+ * which is read one row at a time. Either way, taking a query
+ * is constant time. Every method is thread safe, so several
+ * workers can share one queue.
+ * 
+ * Reading from a source can block, such as while a QueryPipe
+ * waits for the automation feeding it, so sources are read
+ * under their own lock. That way, the counts can still be
+ * checked and updated while a worker waits for a query.
+ * 
+ * @author Matt Crow
+ */
+public class QueryQueue {
+    private final CsvFile file;
+    private final Iterator<CsvRow> source;
+    private final Object sourceLock;
+    private final int total;
+    private int dequeued;
+    private int completed;
+    private int failed;
+    private int skipped;
+    
+    /**
+     * Creates a queue which takes queries from the
+     * front of the given file. Note that this
+     * removes rows from the file.
+     * 
+     * @param queries the file containing the queries to run
+     */
+    public QueryQueue(CsvFile queries){
+        file = queries;
+        source = null;
+        sourceLock = new Object();
+        total = queries.getRowCount();
+        dequeued = 0;
+        completed = 0;
+        failed = 0;
+        skipped = 0;
+    }
+    
+    /**
+     * Creates a queue which reads queries from the
+     * given source, such as a CsvReader, as they are needed.
+     * 
+     * @param queries the source to read queries from
+     */
+    public QueryQueue(Iterator<CsvRow> queries){
+        file = null;
+        source = queries;
+        sourceLock = new Object();
+        total = -1;
+        dequeued = 0;
+        completed = 0;
+        failed = 0;
+        skipped = 0;
+    }
+    
+    /**
+     * If the queries are read from a source, this
+     * may wait until the source has another query,
+     * or knows it won't have any more.
+     * 
+     * @return whether or not there are no queries left
+     */
+    public boolean isEmpty(){
+        boolean ret;
+        if(file == null){
+            synchronized(sourceLock){
+                ret = !source.hasNext();
+            }
+        } else {
+            synchronized(this){
+                ret = file.getRowCount() == 0;
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Takes the next query from the queue.
+     * If the queries are read from a source, this
+     * may wait until the source has another query.
+     * 
+     * @return the next query, or null if the queue is empty
+     */
+    public CsvRow poll(){
+        CsvRow ret = null;
+        if(file == null){
+            synchronized(sourceLock){
+                if(source.hasNext()){
+                    ret = source.next();
+                }
+            }
+        } else {
+            synchronized(this){
+                if(file.getRowCount() > 0){
+                    ret = file.dequeueFirstRow();
+                }
+            }
+        }
+        if(ret != null){
+            synchronized(this){
+                dequeued++;
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Records that a query taken from this
+     * queue was run successfully.
+     */
+    public synchronized void markCompleted(){
+        completed++;
+    }
+    
+    /**
+     * Records that a query taken from this
+     * queue could not be run.
+     */
+    public synchronized void markFailed(){
+        failed++;
+    }
+    
+    /**
+     * Records that a query taken from this
+     * queue didn't need to be run,
+     * such as when resuming a previous run.
+     */
+    public synchronized void markSkipped(){
+        skipped++;
+    }
+    
+    /**
+     * 
+     * @return the number of queries in this queue when it was created,
+     * or -1 if the queries are read from a source, so the total isn't known
+     */
+    public int getTotal(){
+        return total;
+    }
+    
+    /**
+     * 
+     * @return the number of queries left in the queue,
+     * or -1 if the queries are read from a source
+     */
+    public synchronized int getRemaining(){
+        return (file == null) ? -1 : file.getRowCount();
+    }
+    
+    public synchronized int getDequeued(){
+        return dequeued;
+    }
+    
+    public synchronized int getCompleted(){
+        return completed;
+    }
+    
+    public synchronized int getFailed(){
+        return failed;
+    }
+    
+    public synchronized int getSkipped(){
+        return skipped;
+    }
+    
+    /**
+     * 
+     * @return every query left in this queue, in CSV format. This can be very long,
+     * so only use it for debugging. Queries read from a source can't be shown.
+     */
+    public synchronized String dump(){
+        return (file == null) ? "(queries are being streamed, so they cannot be shown)" : file.toString();
+    }
+    
+    /**
+     * 
+     * @return a short summary of this queue's progress
+     */
+    @Override
+    public synchronized String toString(){
+        StringBuilder b = new StringBuilder();
+        b.append(dequeued);
+        if(total != -1){
+            b.append('/').append(total);
+        }
+        b.append(" dequeued, ").append(completed).append(" completed, ").append(failed).append(" failed");
+        if(skipped > 0){
+            b.append(", ").append(skipped).append(" skipped");
+        }
+        return b.toString();
+    }
+}
@@ -2,6 +2,7 @@ package automationTools;
 
 import csv.CsvFile;
 import csv.CsvFileRequirements;
+import csv.CsvReader;
 import csv.CsvRow;
 import java.util.NoSuchElementException;
 import logging.Logger;
@@ -11,6 +12,9 @@ import logging.Logger;
  * be implemented by automations that require
  * a user-submitted CsvFile to specify what 
  * queries to perform.
+ * Queries can either come from a CsvFile, or be
+ * streamed from a CsvReader one row at a time.
+ * Either way, they are taken from a QueryQueue.
  * 
  * @see AbstractQueryGatherAutomation
  * 
@@ -46,28 +50,51 @@ public interface QueryingAutomation {
     public abstract CsvFile getQueryFile();
     
     
+    /**
+     * Feeds queries to this automation directly from a CsvReader,
+     * so the query file needn't be loaded into memory. This replaces
+     * any query file set using setQueryFile.
+     * 
+     * @param source the reader to read queries from
+     * @throws csv.MissingHeaderException if the source does not have the headers required by getQueryFileReqs
+     */
+    public abstract void setQuerySource(CsvReader source);
+    
+    /**
+     * 
+     * @return the CsvReader feeding queries into this automation, or null if queries come from the query file instead
+     */
+    public abstract CsvReader getQuerySource();
+    
+    /**
+     * 
+     * @return the queue of queries this automation has yet to run,
+     * or null if neither a query file nor a query source has been set.
+     */
+    public abstract QueryQueue getQueryQueue();
+    
     public default boolean hasNoMoreQueries(){
-        return getQueryFile().getRowCount() == 0;
+        QueryQueue queue = getQueryQueue();
+        return queue == null || queue.isEmpty();
     }
     
+    /**
+     * Takes the next query from the query queue,
+     * logging it along with the queue's progress.
+     * At the debug level, the remaining queries are logged too.
+     * 
+     * @return the next query to run
+     * @throws NoSuchElementException if there are no queries left
+     */
     public default CsvRow getNextQuery(){
-        if(hasNoMoreQueries()){
+        QueryQueue queue = getQueryQueue();
+        CsvRow nextQuery = (queue == null) ? null : queue.poll();
+        if(nextQuery == null){
             throw new NoSuchElementException("Query file is empty");
         }
         
-        AbstractAutomation auto = (this instanceof AbstractAutomation) ? (AbstractAutomation)this : null;
-        CsvFile queryFile = getQueryFile();
-        
-        if(auto != null){
-            Logger.log("QueryingAutomation.getNextQuery", "Before dequeueing:\n" + queryFile.toString());
-        }
-        
-        CsvRow nextQuery = queryFile.dequeueFirstRow();
-        
-        if(auto != null){
-            Logger.log("QueryingAutomation.getNextQuery", "Dequeued: " + nextQuery.toString());
-            Logger.log("QueryingAutomation.getNextQuery", "After dequeueing:\n" + queryFile.toString());
-        }
+        Logger.log("QueryingAutomation.getNextQuery", String.format("Dequeued: %s (%s)", nextQuery.toString(), queue.toString()));
+        Logger.debug("QueryingAutomation.getNextQuery", ()->"Remaining queries:\n" + queue.dump());
         
         return nextQuery;
     }
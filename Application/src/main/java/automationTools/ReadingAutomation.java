@@ -2,8 +2,11 @@ package automationTools;
 
 import csv.CsvFile;
 import io.FileSelector;
-import io.FileWriterUtil;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import logging.Logger;
 
 /**
@@ -31,12 +34,12 @@ public interface ReadingAutomation {
     public abstract CsvFile getResultFile();
     
     public default void saveResultToFile(){
-        Logger.log("ReadingAutomation.saveResultToFile", "Saving file:\n" + getResultFile().toString());
+        Logger.log("ReadingAutomation.saveResultToFile", "Saving " + getResultFile().getRowCount() + " rows");
         FileSelector.createNewFile("Where do you want to save the automation result?", (f)->{
             Logger.log("ReadingAutomation.saveResultToFile", "Attempting to write to " + f.getAbsolutePath());
             
-            try {
-                FileWriterUtil.writeToFile(f, getResultFile().toString());
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f)))) {
+                getResultFile().writeTo(out);
                 Logger.log("ReadingAutomation.saveResultToFile", "file written successfully");
             } catch (IOException ex) {
                 Logger.logError("ReadingAutomation.saveResultToFile", ex);
@@ -0,0 +1,396 @@
+package automationTools;
+
+import csv.CsvFile;
+import csv.CsvLayout;
+import csv.CsvRow;
+import csv.CsvTokenizer;
+import csv.CsvWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import logging.Logger;
+
+/**
+ * The ResultCache keeps the rows read for queries on disk,
+ * so results which don't change, such as closed purchase orders,
+ * don't have to be read again by later runs. It can be shared by
+ * every automation, since entries are identified by the automation,
+ * its input URL, and the query's key from QueryCache.getKey.
+ * 
+ * Each entry is its own CSV file in the cache folder, named after
+ * a hash of its identity. The first record of the file is the
+ * automation, input URL, query key, and when the query was run,
+ * the second is the headers, and the rest are the rows.
+ * Entries are reused for maxAge milliseconds, then read again.
+ * 
+ * The most recently used entries are also kept in memory, so hot
+ * queries don't need to be read from disk. Once the files take up more
+ * than maxBytes, the least recently used ones are deleted.
+ * Since using an entry updates its file's last modified time,
+ * the order entries are used in carries over between runs.
+ * 
+ * Every method is thread safe. Several programs can share the folder,
+ * though each one only evicts the files it knew about when it opened.
+ * 
+ * @see io.FileSystem#getResultCacheFolder()
+ * @see QueryCache
+ * @author Matt Crow
+ */
+public class ResultCache {
+    public static final int DEFAULT_MEMORY_ENTRIES = 1000;
+    
+    private static final String EXTENSION = ".csv";
+    
+    private final Path folder;
+    private final long maxAge;
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedRows> memory; // most recently used last
+    private final LinkedHashMap<String, Long> files; // file size of each entry on disk, most recently used last
+    private long totalBytes;
+    private final AtomicLong memoryHits;
+    private final AtomicLong diskHits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    
+    /**
+     * The rows read for one query.
+     */
+    private static class CachedRows {
+        private final CsvFile rows;
+        private final long time;
+        
+        private CachedRows(CsvFile rows, long time){
+            this.rows = rows;
+            this.time = time;
+        }
+    }
+    
+    /**
+     * 
+     * @param folder the folder to keep entries in
+     * @param maxAge how long an entry can be reused for, in milliseconds
+     * @param maxBytes how much space the entries can take up on disk before the least recently used are deleted
+     * @param memoryEntries how many of the most recently used entries to also keep in memory
+     */
+    public ResultCache(Path folder, long maxAge, long maxBytes, int memoryEntries){
+        if(maxAge < 0){
+            throw new IllegalArgumentException("Max age cannot be negative, not " + maxAge);
+        }
+        if(maxBytes < 1){
+            throw new IllegalArgumentException("Max size must be at least 1 byte, not " + maxBytes);
+        }
+        if(memoryEntries < 0){
+            throw new IllegalArgumentException("Memory entries cannot be negative, not " + memoryEntries);
+        }
+        this.folder = folder;
+        this.maxAge = maxAge;
+        this.maxBytes = maxBytes;
+        memory = new LinkedHashMap<String, CachedRows>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRows> eldest){
+                return size() > memoryEntries;
+            }
+        };
+        files = new LinkedHashMap<>(16, 0.75f, true);
+        totalBytes = 0;
+        memoryHits = new AtomicLong(0);
+        diskHits = new AtomicLong(0);
+        misses = new AtomicLong(0);
+        evictions = new AtomicLong(0);
+    }
+    
+    public Path getFolder(){
+        return folder;
+    }
+    
+    public long getMaxAge(){
+        return maxAge;
+    }
+    
+    public long getMaxBytes(){
+        return maxBytes;
+    }
+    
+    /**
+     * Finds the entries already in the cache folder, ordered
+     * by when they were last used, then deletes the least recently
+     * used ones if they take up more than maxBytes.
+     * Call this before using the cache.
+     * 
+     * @throws IOException if the folder cannot be read
+     */
+    public synchronized void open() throws IOException{
+        files.clear();
+        memory.clear();
+        totalBytes = 0;
+        List<Path> found = new ArrayList<>();
+        try(DirectoryStream<Path> dir = Files.newDirectoryStream(folder, "*" + EXTENSION)){
+            for(Path p : dir){
+                found.add(p);
+            }
+        }
+        found.sort(Comparator.comparing((p)->lastModified(p)));
+        BasicFileAttributes attrs;
+        for(Path p : found){
+            try {
+                attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                files.put(p.getFileName().toString(), attrs.size());
+                totalBytes += attrs.size();
+            } catch(NoSuchFileException ex){
+                // another program evicted it
+            }
+        }
+        evict();
+        Logger.log("ResultCache.open", String.format("Found %d cached queries taking up %d KB in %s", files.size(), totalBytes / 1024, folder));
+    }
+    
+    private static FileTime lastModified(Path p){
+        try {
+            return Files.getLastModifiedTime(p);
+        } catch(IOException ex){
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    /**
+     * 
+     * @param automation the name of the automation which ran the query
+     * @param inputUrl where the automation sends its queries
+     * @param queryKey the key of the query, from QueryCache.getKey
+     * @return the rows read for the query, or null if it isn't cached, or its entry expired.
+     * Don't change the returned file, since it is shared.
+     */
+    public CsvFile get(String automation, String inputUrl, String queryKey){
+        String id = getId(automation, inputUrl, queryKey);
+        long now = System.currentTimeMillis();
+        synchronized(this){
+            CachedRows e = memory.get(id);
+            if(e != null && !isExpired(e, now)){
+                files.get(id); // so it counts as used
+                memoryHits.incrementAndGet();
+                return e.rows;
+            }
+            if(!files.containsKey(id)){
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        // not while holding the lock, so other workers can use the cache while this reads
+        CachedRows e = read(id, automation, inputUrl, queryKey);
+        synchronized(this){
+            if(e == null || isExpired(e, now)){
+                misses.incrementAndGet();
+                remove(id);
+                return null;
+            }
+            memory.put(id, e);
+            files.get(id);
+        }
+        try {
+            Files.setLastModifiedTime(folder.resolve(id), FileTime.fromMillis(now));
+        } catch(IOException ex){
+            // only means the entry might be evicted sooner by the next run
+        }
+        diskHits.incrementAndGet();
+        return e.rows;
+    }
+    
+    /**
+     * Adds the rows read for a query to the cache,
+     * then deletes the least recently used entries
+     * if the cache is too big.
+     * 
+     * @param automation the name of the automation which ran the query
+     * @param inputUrl where the automation sends its queries
+     * @param queryKey the key of the query, from QueryCache.getKey
+     * @param rows the rows read for the query. Don't change it afterwards, since it is shared.
+     * @throws IOException if the entry cannot be written
+     */
+    public void put(String automation, String inputUrl, String queryKey, CsvFile rows) throws IOException{
+        String id = getId(automation, inputUrl, queryKey);
+        CachedRows e = new CachedRows(rows, System.currentTimeMillis());
+        byte[] bytes = toBytes(e, automation, inputUrl, queryKey);
+        // each write gets its own temporary file, in case two workers cache the same query at once
+        Path tmp = Files.createTempFile(folder, id, ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, folder.resolve(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        synchronized(this){
+            Long old = files.put(id, (long)bytes.length);
+            totalBytes += bytes.length - ((old == null) ? 0 : old);
+            memory.put(id, e);
+            evict();
+        }
+    }
+    
+    private boolean isExpired(CachedRows e, long now){
+        return now - e.time > maxAge;
+    }
+    
+    /**
+     * Deletes the least recently used entries until
+     * the cache fits in maxBytes. Only call this
+     * while holding the lock.
+     */
+    private void evict(){
+        Iterator<Map.Entry<String, Long>> oldest = files.entrySet().iterator();
+        Map.Entry<String, Long> next;
+        // keep the newest entry, even if it's bigger than maxBytes on its own
+        while(totalBytes > maxBytes && files.size() > 1){
+            next = oldest.next();
+            oldest.remove();
+            totalBytes -= next.getValue();
+            memory.remove(next.getKey());
+            deleteFile(next.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+    
+    private void remove(String id){
+        Long size = files.remove(id);
+        if(size != null){
+            totalBytes -= size;
+        }
+        memory.remove(id);
+        deleteFile(id);
+    }
+    
+    private void deleteFile(String id){
+        try {
+            Files.deleteIfExists(folder.resolve(id));
+        } catch(IOException ex){
+            Logger.logError("ResultCache.deleteFile", ex);
+        }
+    }
+    
+    /**
+     * 
+     * @return the file name of the given entry
+     */
+    private static String getId(String automation, String inputUrl, String queryKey){
+        StringBuilder b = new StringBuilder();
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(
+                String.join("\n", automation, inputUrl, queryKey).getBytes(StandardCharsets.UTF_8)
+            );
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(ex);
+        }
+        for(byte by : hash){
+            b.append(String.format("%02x", by));
+        }
+        return b.append(EXTENSION).toString();
+    }
+    
+    private static byte[] toBytes(CachedRows e, String automation, String inputUrl, String queryKey) throws IOException{
+        StringWriter text = new StringWriter();
+        try(CsvWriter out = new CsvWriter(text)){
+            out.writeRecord(Arrays.asList(automation, inputUrl, queryKey, Long.toString(e.time)));
+            List<String> headers = e.rows.getHeaders();
+            out.writeRecord(headers);
+            ArrayList<String> cells = new ArrayList<>(headers.size());
+            for(CsvRow row : e.rows.getBody()){
+                cells.clear();
+                for(String header : headers){
+                    cells.add(row.get(header));
+                }
+                out.writeRecord(cells);
+            }
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads an entry from disk.
+     * 
+     * @return the entry, or null if it is gone, can't be read,
+     * or belongs to another query with the same hash
+     */
+    private CachedRows read(String id, String automation, String inputUrl, String queryKey){
+        CachedRows ret = null;
+        ArrayList<String> record = new ArrayList<>();
+        try(Reader in = Files.newBufferedReader(folder.resolve(id), StandardCharsets.UTF_8)){
+            CsvTokenizer tokenizer = new CsvTokenizer(in);
+            if(
+                tokenizer.readRecord(record)
+                && record.size() == 4
+                && record.subList(0, 3).equals(Arrays.asList(automation, inputUrl, queryKey))
+            ){
+                long time = Long.parseLong(record.get(3));
+                tokenizer.readRecord(record);
+                CsvFile rows = new CsvFile(record.toArray(new String[0]), CsvLayout.COLUMNS);
+                while(tokenizer.readRecord(record)){
+                    rows.addRow(new CsvRow(rows, record.toArray(new String[0])));
+                }
+                ret = new CachedRows(rows, time);
+            }
+        } catch(NoSuchFileException ex){
+            // another program evicted it
+            ret = null;
+        } catch(IOException | NumberFormatException ex){
+            Logger.logError("ResultCache.read", "Failed to read cached query " + queryKey + ", so it will be run again:");
+            Logger.logError("ResultCache.read", ex);
+            ret = null;
+        }
+        return ret;
+    }
+    
+    public long getMemoryHits(){
+        return memoryHits.get();
+    }
+    
+    public long getDiskHits(){
+        return diskHits.get();
+    }
+    
+    public long getMisses(){
+        return misses.get();
+    }
+    
+    public long getEvictions(){
+        return evictions.get();
+    }
+    
+    public synchronized int size(){
+        return files.size();
+    }
+    
+    /**
+     * 
+     * @return how much space the entries take up on disk, in bytes
+     */
+    public synchronized long getTotalBytes(){
+        return totalBytes;
+    }
+    
+    @Override
+    public synchronized String toString(){
+        return String.format(
+            "%d queries taking up %d KB, %d hits in memory, %d hits on disk, %d misses, %d evicted",
+            files.size(), totalBytes / 1024, getMemoryHits(), getDiskHits(), getMisses(), getEvictions()
+        );
+    }
+}
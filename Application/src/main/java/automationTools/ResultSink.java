@@ -0,0 +1,54 @@
+package automationTools;
+
+import csv.CsvFile;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A ResultSink is where an AbstractQueryGatherAutomation
+ * puts the rows it reads. After each query, the rows
+ * readQueryResult stored are written to the sink,
+ * along with any headers the sink doesn't have yet.
+ * 
+ * @see MemoryResultSink
+ * @see StreamingResultSink
+ * @author Matt Crow
+ */
+public interface ResultSink extends Closeable {
+    
+    /**
+     * Adds each row of the given file to this sink,
+     * adding any new headers first.
+     * 
+     * @param rows the rows to add
+     * @throws IOException if the rows cannot be written
+     */
+    public abstract void write(CsvFile rows) throws IOException;
+    
+    /**
+     * 
+     * @return the headers of every row written to this sink so far, in order.
+     */
+    public abstract List<String> getHeaders();
+    
+    /**
+     * 
+     * @return the number of rows written to this sink so far
+     */
+    public abstract int getRowCount();
+    
+    /**
+     * 
+     * @return the file this sink writes to, or null if it only keeps its rows in memory
+     */
+    public default File getFile(){
+        return null;
+    }
+    
+    @Override
+    public default void close() throws IOException{
+    
+    }
+}
@@ -0,0 +1,356 @@
+package automationTools;
+
+import csv.CsvWriter;
+import io.FileSystem;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
+import logging.Logger;
+import util.LatencyHistogram;
+
+/**
+ * RunMetrics records how long each phase of each query
+ * takes during one run of an AbstractQueryGatherAutomation,
+ * along with how many queries finished or failed, and how
+ * many were found in the cache, so a run can be checked
+ * for where its time went.
+ * 
+ * Every method is thread safe, so every worker of a run
+ * records into the same RunMetrics, and it can be read
+ * while the run is still going.
+ * 
+ * @see AbstractQueryGatherAutomation#getMetrics()
+ * @author Matt Crow
+ */
+public class RunMetrics {
+    /**
+     * The parts of a query which are timed.
+     */
+    public static enum Phase {
+        /*
+        Getting the browser to the input page: loading it, or going back to it.
+        */
+        NAVIGATE,
+        /*
+        Waiting for the input page to be ready.
+        */
+        WAIT_FOR_INPUT,
+        /*
+        Filling out and submitting the form.
+        */
+        INPUT,
+        /*
+        Waiting for the result page, or for the response when submitting over HTTP.
+        */
+        WAIT_FOR_RESULT,
+        /*
+        Reading the result page.
+        */
+        READ,
+        /*
+        Writing the result to the result sink.
+        */
+        MERGE
+    }
+    
+    private static final String[] CSV_HEADERS = {"phase", "count", "total_ms", "mean_ms", "p50_ms", "p95_ms", "p99_ms", "max_ms"};
+    private static final String QUERY_ROW = "QUERY";
+    private static final String CACHE_HIT_ROW = "CACHE_HIT";
+    private static final String CACHE_MISS_ROW = "CACHE_MISS";
+    
+    private final EnumMap<Phase, LatencyHistogram> phases;
+    private final LatencyHistogram queries; // the whole of each query
+    private final AtomicLong completed;
+    private final AtomicLong failed;
+    private final AtomicLong rows;
+    private final AtomicLong cacheHits;
+    private final AtomicLong cacheMisses;
+    private final long startTime;
+    private volatile long endTime;
+    
+    public RunMetrics(){
+        phases = new EnumMap<>(Phase.class);
+        for(Phase p : Phase.values()){
+            phases.put(p, new LatencyHistogram());
+        }
+        queries = new LatencyHistogram();
+        completed = new AtomicLong(0);
+        failed = new AtomicLong(0);
+        rows = new AtomicLong(0);
+        cacheHits = new AtomicLong(0);
+        cacheMisses = new AtomicLong(0);
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+    }
+    
+    /**
+     * Marks the run as done, so the elapsed time
+     * and throughput stop changing.
+     */
+    public void stop(){
+        if(endTime == 0){
+            endTime = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * 
+     * @param phase the part of the query which was timed
+     * @param millis how long it took, in milliseconds
+     */
+    public void record(Phase phase, long millis){
+        phases.get(phase).record(millis);
+    }
+    
+    /**
+     * Records that a query finished successfully.
+     * 
+     * @param millis how long the whole query took, in milliseconds
+     * @param rowCount how many rows were read for the query
+     */
+    public void recordCompleted(long millis, int rowCount){
+        queries.record(millis);
+        rows.addAndGet(rowCount);
+        completed.incrementAndGet();
+    }
+    
+    /**
+     * Records that a query failed. Failed queries
+     * don't count towards the query timings.
+     */
+    public void recordFailed(){
+        failed.incrementAndGet();
+    }
+    
+    /**
+     * Records that a query's result was reused
+     * from the cache, or from a copy of the query
+     * earlier in the run, instead of running it.
+     */
+    public void recordCacheHit(){
+        cacheHits.incrementAndGet();
+    }
+    
+    /**
+     * Records that a query wasn't in the cache,
+     * so it had to be run.
+     */
+    public void recordCacheMiss(){
+        cacheMisses.incrementAndGet();
+    }
+    
+    /**
+     * 
+     * @param phase a part of a query
+     * @return the timings of that phase so far
+     */
+    public LatencyHistogram getPhase(Phase phase){
+        return phases.get(phase);
+    }
+    
+    /**
+     * 
+     * @return the timings of every completed query so far
+     */
+    public LatencyHistogram getQueries(){
+        return queries;
+    }
+    
+    /**
+     * 
+     * @return the timings of each phase, in the order the phases happen
+     */
+    public Map<Phase, LatencyHistogram> getPhases(){
+        return Collections.unmodifiableMap(phases);
+    }
+    
+    public long getCompleted(){
+        return completed.get();
+    }
+    
+    public long getFailed(){
+        return failed.get();
+    }
+    
+    /**
+     * 
+     * @return the number of rows read by completed queries
+     */
+    public long getRows(){
+        return rows.get();
+    }
+    
+    public long getCacheHits(){
+        return cacheHits.get();
+    }
+    
+    public long getCacheMisses(){
+        return cacheMisses.get();
+    }
+    
+    public long getStartTime(){
+        return startTime;
+    }
+    
+    /**
+     * 
+     * @return how long the run took, or has taken so far, in milliseconds
+     */
+    public long getElapsed(){
+        long end = (endTime == 0) ? System.currentTimeMillis() : endTime;
+        return end - startTime;
+    }
+    
+    /**
+     * 
+     * @return how many queries were completed per minute, on average
+     */
+    public double getThroughput(){
+        long elapsed = getElapsed();
+        return (elapsed == 0) ? 0 : getCompleted() * 60000.0 / elapsed;
+    }
+    
+    /**
+     * Saves this as CSV and JSON run reports in the log folder,
+     * named after the automation and the current time, then logs
+     * where they were saved. If they can't be saved, logs why
+     * instead, since a missing report shouldn't fail the run.
+     * 
+     * @param resources the file system to save the reports in
+     * @param automationName the name of the automation which was run
+     */
+    public void writeReport(FileSystem resources, String automationName){
+        try {
+            Path[] paths = resources.createRunReportFiles(automationName, LocalDateTime.now(), "csv", "json");
+            Path csv = paths[0];
+            Path json = paths[1];
+            writeCsv(csv);
+            writeJson(json);
+            Logger.log("RunMetrics.writeReport", "Saved run report to " + csv + " and " + json);
+        } catch (IOException ex) {
+            Logger.logError("RunMetrics.writeReport", "Failed to save run report:");
+            Logger.logError("RunMetrics.writeReport", ex);
+        }
+    }
+    
+    /**
+     * Writes the timings of each phase as a CSV file,
+     * with one row per phase, followed by a row for
+     * whole queries. The last two rows count the cache
+     * hits and misses, and have no timings.
+     * 
+     * @param path the file to write to. It is replaced if it exists.
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(Path path) throws IOException{
+        try(CsvWriter out = new CsvWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))){
+            out.writeRecord(Arrays.asList(CSV_HEADERS));
+            for(Phase p : Phase.values()){
+                out.writeRecord(Arrays.asList(toCsvRecord(p.toString(), phases.get(p))));
+            }
+            out.writeRecord(Arrays.asList(toCsvRecord(QUERY_ROW, queries)));
+            out.writeRecord(Arrays.asList(CACHE_HIT_ROW, Long.toString(getCacheHits()), "", "", "", "", "", ""));
+            out.writeRecord(Arrays.asList(CACHE_MISS_ROW, Long.toString(getCacheMisses()), "", "", "", "", "", ""));
+        }
+    }
+    
+    private static String[] toCsvRecord(String name, LatencyHistogram h){
+        long[] ps = h.getRunPercentiles(50, 95, 99);
+        return new String[]{
+            name,
+            Long.toString(h.getCount()),
+            Long.toString(h.getTotal()),
+            String.format(Locale.ROOT, "%.1f", h.getMean()),
+            Long.toString(ps[0]),
+            Long.toString(ps[1]),
+            Long.toString(ps[2]),
+            Long.toString(h.getMax())
+        };
+    }
+    
+    /**
+     * Writes a summary of the run as a JSON object,
+     * containing the totals for the run, including cache hits and misses, the timings of whole
+     * queries, and the timings of each phase.
+     * 
+     * @param path the file to write to. It is replaced if it exists.
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path path) throws IOException{
+        try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)){
+            writeJson(out);
+        }
+    }
+    
+    /**
+     * 
+     * @param out the writer to write the JSON summary of this run to. It is not closed.
+     */
+    public void writeJson(Writer out){
+        JsonObjectBuilder phaseTimes = Json.createObjectBuilder();
+        for(Phase p : Phase.values()){
+            phaseTimes.add(p.toString(), toJson(phases.get(p)));
+        }
+        JsonObjectBuilder report = Json.createObjectBuilder()
+            .add("start", Instant.ofEpochMilli(startTime).toString())
+            .add("elapsed_ms", getElapsed())
+            .add("completed", getCompleted())
+            .add("failed", getFailed())
+            .add("rows", getRows())
+            .add("cache_hits", getCacheHits())
+            .add("cache_misses", getCacheMisses())
+            .add("queries_per_minute", Math.round(getThroughput() * 100) / 100.0)
+            .add("queries", toJson(queries))
+            .add("phases", phaseTimes);
+        
+        JsonGenerator gen = Json.createGeneratorFactory(
+            Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true)
+        ).createGenerator(out);
+        gen.write(report.build());
+        gen.flush();
+    }
+    
+    private static JsonObjectBuilder toJson(LatencyHistogram h){
+        long[] ps = h.getRunPercentiles(50, 95, 99);
+        return Json.createObjectBuilder()
+            .add("count", h.getCount())
+            .add("total_ms", h.getTotal())
+            .add("mean_ms", Math.round(h.getMean() * 10) / 10.0)
+            .add("p50_ms", ps[0])
+            .add("p95_ms", ps[1])
+            .add("p99_ms", ps[2])
+            .add("max_ms", h.getMax());
+    }
+    
+    /**
+     * 
+     * @return a summary of the run, with one line for each phase
+     */
+    @Override
+    public String toString(){
+        StringBuilder b = new StringBuilder();
+        b.append(String.format(
+            "%d completed, %d failed, %d rows read in %.1fs (%.1f queries per minute)",
+            getCompleted(), getFailed(), getRows(), getElapsed() / 1000.0, getThroughput()
+        ));
+        b.append(String.format("\n%d cache hits, %d cache misses", getCacheHits(), getCacheMisses()));
+        b.append("\n").append(QUERY_ROW).append(": ").append(queries);
+        for(Phase p : Phase.values()){
+            b.append("\n").append(p).append(": ").append(phases.get(p));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package automationTools;
+
+import csv.CsvFile;
+import csv.CsvRow;
+import csv.CsvTokenizer;
+import csv.CsvWriter;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import logging.Logger;
+
+/**
+ * The StreamingResultSink writes rows straight to a CSV file
+ * as they are read, rather than keeping them in memory until
+ * the automation is done. Each batch of rows is flushed once
+ * it is written, so if the program crashes partway through a run,
+ * the file still contains every query which finished.
+ * 
+ * The only thing this keeps in memory is the list of headers.
+ * If a batch of rows adds new headers, the file is rewritten
+ * one row at a time with the new header row, which is slow
+ * for large files, but automations usually only add headers
+ * in their first few queries.
+ * 
+ * @author Matt Crow
+ */
+public class StreamingResultSink implements ResultSink {
+    private final File file;
+    private final CsvFile headers; // has no rows, just used to keep track of the headers
+    private CsvWriter out;
+    private int rowCount;
+    
+    /**
+     * Creates a sink which writes to the given file.
+     * If the file already exists, it is overwritten.
+     * 
+     * @param file the file to write rows to
+     * @throws IOException if the file cannot be opened
+     */
+    public StreamingResultSink(File file) throws IOException{
+        this.file = file;
+        headers = new CsvFile();
+        out = open(false);
+        rowCount = 0;
+    }
+    
+    private CsvWriter open(boolean append) throws IOException{
+        return new CsvWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append))));
+    }
+    
+    @Override
+    public synchronized void write(CsvFile rows) throws IOException{
+        if(out == null){
+            throw new IOException("Cannot write to " + file.getAbsolutePath() + ", as this sink is closed");
+        }
+        boolean newHeaders = false;
+        for(String header : rows.getHeaders()){
+            if(headers.getHeaderCol(header) == -1){
+                headers.addHeader(header);
+                newHeaders = true;
+            }
+        }
+        if(newHeaders){
+            rewrite();
+        }
+        
+        List<String> order = headers.getHeaders();
+        for(CsvRow row : rows.getBody()){
+            for(String header : order){
+                out.writeField(row.getOrDefault(header, ""));
+            }
+            out.endRecord();
+            rowCount++;
+        }
+        out.flush();
+    }
+    
+    /**
+     * Rewrites the file with the current headers,
+     * copying over the rows already written.
+     * The new file is written next to the old one,
+     * then moved over it, so a crash during the rewrite
+     * doesn't lose the rows already written.
+     * Rows are copied record by record with the tokenizer,
+     * rather than through a CsvReader, since a CsvReader skips
+     * blank records, which are valid rows of a one-column file.
+     * 
+     * @throws IOException if the file cannot be rewritten
+     */
+    private void rewrite() throws IOException{
+        out.close();
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        List<String> order = headers.getHeaders();
+        try {
+            try(
+                Reader oldFile = new InputStreamReader(new FileInputStream(file));
+                CsvWriter newFile = new CsvWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp))))
+            ){
+                newFile.writeRecord(order);
+                CsvTokenizer oldRows = new CsvTokenizer(oldFile);
+                List<String> record = new ArrayList<>();
+                // the file is empty until the first headers are written
+                List<String> oldHeaders = (oldRows.readRecord(record)) ? new ArrayList<>(record) : new ArrayList<>();
+                int[] mapping = new int[order.size()];
+                for(int i = 0; i < mapping.length; i++){
+                    mapping[i] = oldHeaders.indexOf(order.get(i));
+                }
+                while(oldRows.readRecord(record)){
+                    for(int col : mapping){
+                        newFile.writeField((col == -1 || col >= record.size()) ? "" : record.get(col));
+                    }
+                    newFile.endRecord();
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException ex){
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Logger.log("StreamingResultSink.rewrite", "Rewrote " + file.getAbsolutePath() + " with headers " + order);
+        } finally {
+            // keep appending, even if the rewrite failed
+            out = open(true);
+        }
+    }
+    
+    @Override
+    public synchronized List<String> getHeaders(){
+        return headers.getHeaders();
+    }
+    
+    @Override
+    public synchronized int getRowCount(){
+        return rowCount;
+    }
+    
+    @Override
+    public File getFile(){
+        return file;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException{
+        if(out != null){
+            out.close();
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package automationTools;
+
+import java.util.List;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * A WaitPolicy decides how often to check if a page is
+ * ready, and how long to keep checking before giving up.
+ * AbstractAutomation uses one for every wait, such as
+ * awaitFindElement.
+ * 
+ * Each wait has a key, such as the URL being waited for,
+ * so a policy can treat different pages differently.
+ * Policies are shared by every worker of an automation,
+ * so they must be thread safe.
+ * 
+ * @see AdaptiveWaitPolicy
+ * @author Matt Crow
+ */
+public interface WaitPolicy {
+    
+    /**
+     * Waits until the given condition returns something
+     * other than null or false.
+     * 
+     * @param <T> the type the condition returns
+     * @param driver the driver to check the condition with
+     * @param key what is being waited for, such as a URL
+     * @param condition the condition to wait for
+     * @return the condition's result
+     * @throws TimeoutException if the condition isn't met in time
+     */
+    public abstract <T> T until(WebDriver driver, String key, ExpectedCondition<T> condition);
+    
+    /**
+     * 
+     * @param key what is being waited for
+     * @return how long the policy currently waits for the given key before giving up, in milliseconds
+     */
+    public abstract long getTimeout(String key);
+    
+    /**
+     * 
+     * @return how long each kind of wait has taken so far
+     */
+    public abstract List<WaitStats> getStats();
+}
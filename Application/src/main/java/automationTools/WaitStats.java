@@ -0,0 +1,78 @@
+package automationTools;
+
+/**
+ * A snapshot of how long one kind of wait has taken.
+ * 
+ * @see WaitPolicy#getStats()
+ * @author Matt Crow
+ */
+public class WaitStats {
+    private final String key;
+    private final long count;
+    private final long timeouts;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+    private final long max;
+    private final long timeout;
+    
+    /**
+     * 
+     * @param key what was waited for
+     * @param count how many waits there have been, including those which timed out
+     * @param timeouts how many waits timed out
+     * @param percentiles the 50th, 95th, and 99th percentiles of how long each wait took, in milliseconds
+     * @param max the longest wait, in milliseconds
+     * @param timeout how long the policy currently waits before timing out, in milliseconds
+     */
+    public WaitStats(String key, long count, long timeouts, long[] percentiles, long max, long timeout){
+        this.key = key;
+        this.count = count;
+        this.timeouts = timeouts;
+        p50 = percentiles[0];
+        p95 = percentiles[1];
+        p99 = percentiles[2];
+        this.max = max;
+        this.timeout = timeout;
+    }
+    
+    public String getKey(){
+        return key;
+    }
+    
+    public long getCount(){
+        return count;
+    }
+    
+    public long getTimeouts(){
+        return timeouts;
+    }
+    
+    public long getP50(){
+        return p50;
+    }
+    
+    public long getP95(){
+        return p95;
+    }
+    
+    public long getP99(){
+        return p99;
+    }
+    
+    public long getMax(){
+        return max;
+    }
+    
+    public long getTimeout(){
+        return timeout;
+    }
+    
+    @Override
+    public String toString(){
+        return String.format(
+            "%s: n=%d timeouts=%d p50=%dms p95=%dms p99=%dms max=%dms, timeout is now %dms",
+            key, count, timeouts, p50, p95, p99, max, timeout
+        );
+    }
+}
@@ -0,0 +1,172 @@
+package csv;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/**
+ * Stores the body of a CsvFile as one CsvColumn per header.
+ * Rows are identified by their index in the columns,
+ * and the CsvRows this gives out are views of those indices,
+ * so reading or writing through them reads or writes the columns.
+ * 
+ * Dequeuing a row just moves the start of the body forward,
+ * so the remaining rows keep their indices.
+ * 
+ * @see CsvLayout#COLUMNS
+ * @author Matt Crow
+ */
+final class ColumnStorage extends CsvStorage {
+    private final ArrayList<CsvColumn> columns;
+    private int start; // index of the first row in each column
+    private int end; // index after the last row in each column
+    
+    ColumnStorage(CsvFile parent){
+        super(parent);
+        columns = new ArrayList<>();
+        start = 0;
+        end = 0;
+    }
+    
+    @Override
+    int getRowCount(){
+        return end - start;
+    }
+    
+    @Override
+    void addColumn(){
+        // new columns read as blank until they are written to
+        columns.add(new CsvColumn());
+    }
+    
+    @Override
+    void addRecord(String[] cells){
+        CsvColumn col;
+        for(int i = 0; i < columns.size(); i++){
+            col = getWritableColumn(i);
+            col.padTo(end);
+            col.add((i < cells.length) ? cells[i] : "");
+        }
+        end++;
+    }
+    
+    /**
+     * 
+     * @param row the index of a row in the columns, not relative to the first row
+     * @param col the column to read from
+     * @return the value of the given cell
+     */
+    String get(int row, int col){
+        return columns.get(col).get(row);
+    }
+    
+    /**
+     * 
+     * @param row the index of a row in the columns, not relative to the first row
+     * @param col the column to write to
+     * @param value the new value of the given cell
+     */
+    void set(int row, int col, String value){
+        getWritableColumn(col).set(row, value);
+    }
+    
+    @Override
+    CsvRow getRow(int idx){
+        return new CsvRow(parent, this, start + idx);
+    }
+    
+    @Override
+    CsvRow removeFirst(){
+        if(start == end){
+            return null;
+        }
+        String[] cells = new String[columns.size()];
+        for(int i = 0; i < cells.length; i++){
+            cells[i] = get(start, i);
+            columns.get(i).release(start);
+        }
+        start++;
+        if(start == end){
+            // reuse the space at the front of the columns
+            for(int i = 0; i < columns.size(); i++){
+                columns.set(i, new CsvColumn());
+            }
+            start = 0;
+            end = 0;
+        }
+        
+        // the view of this row is no longer valid, so give the caller a copy
+        return new CsvRow(parent, cells);
+    }
+    
+    @Override
+    LinkedList<CsvRow> getRows(){
+        LinkedList<CsvRow> ret = new LinkedList<>();
+        for(int i = start; i < end; i++){
+            ret.add(new CsvRow(parent, this, i));
+        }
+        return ret;
+    }
+    
+    @Override
+    CsvStorage project(CsvFile newParent, int[] cols){
+        ColumnStorage ret = new ColumnStorage(newParent);
+        CsvColumn col;
+        for(int idx : cols){
+            col = columns.get(idx);
+            col.share();
+            ret.columns.add(col);
+        }
+        ret.start = start;
+        ret.end = end;
+        return ret;
+    }
+    
+    @Override
+    void addAll(CsvFile other, int[] mapping){
+        CsvStorage otherStorage = other.getStorage();
+        if(!(otherStorage instanceof ColumnStorage)){
+            super.addAll(other, mapping);
+            return;
+        }
+        ColumnStorage from = (ColumnStorage)otherStorage;
+        int newEnd = end + from.getRowCount();
+        CsvColumn col;
+        for(int i = 0; i < mapping.length; i++){
+            if(mapping[i] != -1){
+                col = getWritableColumn(i);
+                col.padTo(end);
+                col.addRange(from.columns.get(mapping[i]), from.start, from.end);
+            }
+            // columns other doesn't have are left short, so they read as blank
+        }
+        end = newEnd;
+    }
+    
+    @Override
+    boolean isEncoded(int col){
+        return columns.get(col).isEncoded();
+    }
+    
+    @Override
+    void clear(){
+        columns.clear();
+        start = 0;
+        end = 0;
+    }
+    
+    /**
+     * Gets the given column, copying it first
+     * if it is shared with another file.
+     * 
+     * @param idx the index of the column to get
+     * @return a column this can safely change
+     */
+    private CsvColumn getWritableColumn(int idx){
+        CsvColumn ret = columns.get(idx);
+        if(ret.isShared()){
+            ret = ret.copy();
+            columns.set(idx, ret);
+        }
+        return ret;
+    }
+}
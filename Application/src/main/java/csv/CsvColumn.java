@@ -0,0 +1,324 @@
+package csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * A CsvColumn is a single column of a CsvFile
+ * with the COLUMNS layout. It is a growable array
+ * of cells, much like an ArrayList, except that
+ * reading past the end returns a blank cell, so
+ * columns added to a file after its rows needn't
+ * be padded until something is written to them.
+ * 
+ * Columns where the same few values repeat over
+ * and over, such as business units or vendors, switch
+ * to dictionary encoding on their own: each distinct value
+ * is stored once in the column's dictionary, and the cells
+ * just store the int code of their value. This is checked
+ * each time the column doubles in size, starting at ENCODING_CHECK_SIZE.
+ * If an encoded column's dictionary gets too big, the
+ * column goes back to storing Strings, and stays that way.
+ * 
+ * Columns may be shared between files by getSubfile.
+ * Shared columns must be copied before they are changed.
+ * 
+ * @author Matt Crow
+ */
+class CsvColumn {
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /*
+    the number of cells a column needs before
+    it checks whether it should be encoded
+    */
+    private static final int ENCODING_CHECK_SIZE = 1024;
+    
+    /*
+    a column is encoded if at most 1 in every
+    DISTINCT_RATIO of its recent cells is distinct
+    */
+    private static final int DISTINCT_RATIO = 2;
+    
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    
+    private String[] cells; // null if encoded
+    private int[] codes; // null unless encoded
+    private ArrayList<String> dictionary; // code 0 is always ""
+    private HashMap<String, Integer> dictionaryCodes;
+    private int size;
+    private int nextEncodingCheck;
+    private boolean mayEncode;
+    private boolean shared;
+    
+    CsvColumn(){
+        cells = new String[INITIAL_CAPACITY];
+        codes = null;
+        dictionary = null;
+        dictionaryCodes = null;
+        size = 0;
+        nextEncodingCheck = ENCODING_CHECK_SIZE;
+        mayEncode = true;
+        shared = false;
+    }
+    
+    private CsvColumn(CsvColumn copyOf){
+        int capacity = Math.max(copyOf.size, INITIAL_CAPACITY);
+        if(copyOf.isEncoded()){
+            cells = null;
+            codes = Arrays.copyOf(copyOf.codes, capacity);
+            dictionary = new ArrayList<>(copyOf.dictionary);
+            dictionaryCodes = new HashMap<>(copyOf.dictionaryCodes);
+        } else {
+            cells = Arrays.copyOf(copyOf.cells, capacity);
+            codes = null;
+            dictionary = null;
+            dictionaryCodes = null;
+        }
+        size = copyOf.size;
+        nextEncodingCheck = copyOf.nextEncodingCheck;
+        mayEncode = copyOf.mayEncode;
+        shared = false;
+    }
+    
+    /**
+     * 
+     * @return a copy of this column which is safe to change
+     */
+    CsvColumn copy(){
+        return new CsvColumn(this);
+    }
+    
+    /**
+     * Marks this column as being used by more than one file,
+     * so that each file copies it before changing it.
+     */
+    void share(){
+        shared = true;
+    }
+    
+    boolean isShared(){
+        return shared;
+    }
+    
+    /**
+     * 
+     * @return whether or not this column is dictionary encoded
+     */
+    boolean isEncoded(){
+        return codes != null;
+    }
+    
+    int size(){
+        return size;
+    }
+    
+    String get(int idx){
+        String ret = null;
+        if(idx < size){
+            ret = (isEncoded()) ? dictionary.get(codes[idx]) : cells[idx];
+        }
+        return (ret == null) ? "" : ret;
+    }
+    
+    void set(int idx, String value){
+        if(idx >= size){
+            padTo(idx + 1);
+        }
+        int code = (isEncoded()) ? codeOf(value) : -1;
+        if(isEncoded()){
+            codes[idx] = code;
+        } else {
+            cells[idx] = value;
+        }
+    }
+    
+    void add(String value){
+        ensureCapacity(size + 1);
+        int code = (isEncoded()) ? codeOf(value) : -1;
+        if(isEncoded()){
+            codes[size++] = code;
+        } else {
+            cells[size++] = value;
+        }
+        checkEncoding();
+    }
+    
+    /**
+     * Adds blank cells to the end of this column
+     * until it has the given number of cells.
+     * 
+     * @param newSize the number of cells this column should have
+     */
+    void padTo(int newSize){
+        if(newSize > size){
+            ensureCapacity(newSize);
+            if(isEncoded()){
+                Arrays.fill(codes, size, newSize, 0);
+            } else {
+                Arrays.fill(cells, size, newSize, "");
+            }
+            size = newSize;
+        }
+    }
+    
+    /**
+     * Adds cells [from, to) of the given column
+     * to the end of this one.
+     * 
+     * @param other the column to copy cells from
+     * @param from the index of the first cell to copy
+     * @param to the index after the last cell to copy
+     */
+    void addRange(CsvColumn other, int from, int to){
+        ensureCapacity(size + (to - from));
+        int copyEnd = Math.max(from, Math.min(to, other.size));
+        if(!isEncoded() && !other.isEncoded()){
+            System.arraycopy(other.cells, from, cells, size, copyEnd - from);
+            size += copyEnd - from;
+        } else if(isEncoded() && other.isEncoded()){
+            addCodes(other, from, copyEnd);
+        } else {
+            for(int i = from; i < copyEnd; i++){
+                add(other.get(i));
+            }
+        }
+        padTo(size + (to - copyEnd));
+        checkEncoding();
+    }
+    
+    /**
+     * Adds cells [from, to) of the given column to the end of this one,
+     * when both columns are encoded. Each of the other column's
+     * codes is only looked up in this dictionary once.
+     */
+    private void addCodes(CsvColumn other, int from, int to){
+        int[] translation = new int[other.dictionary.size()];
+        Arrays.fill(translation, -1);
+        int otherCode;
+        int code;
+        for(int i = from; i < to; i++){
+            otherCode = other.codes[i];
+            if(translation[otherCode] == -1){
+                code = codeOf(other.dictionary.get(otherCode));
+                if(!isEncoded()){
+                    // dictionary got too big, so copy the rest as Strings
+                    for(int j = i; j < to; j++){
+                        add(other.get(j));
+                    }
+                    return;
+                }
+                translation[otherCode] = code;
+            }
+            codes[size++] = translation[otherCode];
+        }
+    }
+    
+    /**
+     * Lets go of the given cell, so its
+     * value can be garbage collected.
+     * Used once a row has been dequeued.
+     * 
+     * @param idx the index of the cell to release
+     */
+    void release(int idx){
+        if(idx < size && !shared){
+            if(isEncoded()){
+                codes[idx] = 0;
+            } else {
+                cells[idx] = null;
+            }
+        }
+    }
+    
+    /**
+     * Gets the code for the given value, adding it
+     * to the dictionary if it isn't there yet. If the
+     * dictionary is full, this column is decoded instead.
+     * 
+     * @param value the value to encode
+     * @return the value's code, or -1 if this column is no longer encoded
+     */
+    private int codeOf(String value){
+        String v = (value == null) ? "" : value;
+        Integer code = dictionaryCodes.get(v);
+        if(code == null){
+            if(dictionary.size() >= MAX_DICTIONARY_SIZE){
+                decode();
+                return -1;
+            }
+            code = dictionary.size();
+            dictionary.add(v);
+            dictionaryCodes.put(v, code);
+        }
+        return code;
+    }
+    
+    /**
+     * Once this column has doubled in size since the last check,
+     * looks at its most recent cells, and switches to dictionary
+     * encoding if few of them are distinct.
+     */
+    private void checkEncoding(){
+        if(!mayEncode || isEncoded() || size < nextEncodingCheck){
+            return;
+        }
+        nextEncodingCheck = size * 2;
+        
+        int sampleStart = size - ENCODING_CHECK_SIZE;
+        HashSet<String> distinct = new HashSet<>();
+        for(int i = sampleStart; i < size; i++){
+            distinct.add(get(i));
+        }
+        if(distinct.size() * DISTINCT_RATIO <= ENCODING_CHECK_SIZE){
+            encode();
+        }
+    }
+    
+    private void encode(){
+        String[] oldCells = cells;
+        dictionary = new ArrayList<>();
+        dictionaryCodes = new HashMap<>();
+        dictionary.add("");
+        dictionaryCodes.put("", 0);
+        codes = new int[oldCells.length];
+        cells = null;
+        
+        for(int i = 0; i < size; i++){
+            if(oldCells[i] != null){
+                codes[i] = codeOf(oldCells[i]);
+                if(!isEncoded()){
+                    // too many distinct values after all
+                    cells = oldCells;
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void decode(){
+        String[] newCells = new String[codes.length];
+        for(int i = 0; i < size; i++){
+            newCells[i] = dictionary.get(codes[i]);
+        }
+        cells = newCells;
+        codes = null;
+        dictionary = null;
+        dictionaryCodes = null;
+        mayEncode = false;
+    }
+    
+    private void ensureCapacity(int capacity){
+        int length = (isEncoded()) ? codes.length : cells.length;
+        if(capacity > length){
+            int newLength = Math.max(capacity, length + (length >> 1));
+            if(isEncoded()){
+                codes = Arrays.copyOf(codes, newLength);
+            } else {
+                cells = Arrays.copyOf(cells, newLength);
+            }
+        }
+    }
+}
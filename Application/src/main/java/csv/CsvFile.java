@@ -1,9 +1,10 @@
 package csv;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.stream.Collectors;
 
 /**
  * Since so much of the data used and given by
@@ -14,60 +15,91 @@ import java.util.stream.Collectors;
  * data without having to guess whether or not
  * the data is properly formatted.
  * 
+ * The body of the file is stored either as a list
+ * of rows or as a set of columns: see CsvLayout.
+ * Both layouts behave the same.
+ * 
  * @author Matt Crow
  */
 public class CsvFile {
     private final HashMap<String, Integer> headerCols;
     private final ArrayList<String> headers;
-    private final LinkedList<CsvRow> rows;
+    private final CsvLayout layout;
+    private CsvStorage storage;
     
     /**
      * Creates an empty CsvFile
+     * which stores its body in the given layout.
+     * 
+     * @param layout how this file should store its rows
      */
-    public CsvFile(){
+    public CsvFile(CsvLayout layout){
         headerCols = new HashMap<>();
         headers = new ArrayList<>();
-        rows = new LinkedList<>();
+        this.layout = layout;
+        storage = CsvStorage.create(this, layout);
+    }
+    
+    /**
+     * Creates an empty CsvFile
+     */
+    public CsvFile(){
+        this(CsvLayout.ROWS);
     }
     
     /**
      * Creates a CsvFile with the given
-     * headers.
+     * headers, which stores its body in
+     * the given layout.
      * 
      * @param h the headers to include in the new file
+     * @param layout how this file should store its rows
      */
-    public CsvFile(String[] h){
-        this();
+    public CsvFile(String[] h, CsvLayout layout){
+        this(layout);
         for(String header : h){
             addHeader(header);
         }
     }
     
+    /**
+     * Creates a CsvFile with the given
+     * headers.
+     * 
+     * @param h the headers to include in the new file
+     */
+    public CsvFile(String[] h){
+        this(h, CsvLayout.ROWS);
+    }
+    
     /**
      * Creates a smaller version of this file,
      * containing only columns with the specified
-     * headers.
+     * headers. The returned file has the same layout as this.
+     * If this uses the COLUMNS layout, the subfile shares
+     * its columns with this rather than copying them, and
+     * only copies a column once either file changes it.
      * 
      * @param newHeaders the headers to include in the returned value.
      * @return a copy of this, but with fewer columns
      */
     public CsvFile getSubfile(String[] newHeaders){
-        CsvFile ret = new CsvFile();
+        CsvFile ret = new CsvFile(layout);
+        int[] cols = new int[newHeaders.length];
         
         //copy headers over
-        for(String header : newHeaders){
-            if(headerCols.containsKey(header)){
-                ret.addHeader(header);
+        for(int i = 0; i < newHeaders.length; i++){
+            if(headerCols.containsKey(newHeaders[i])){
+                ret.headerCols.put(newHeaders[i], i);
+                ret.headers.add(newHeaders[i]);
+                cols[i] = headerCols.get(newHeaders[i]);
             } else {
-                throw new MissingHeaderException(header, headers.toArray(new String[headers.size()]));
+                throw new MissingHeaderException(newHeaders[i], headers.toArray(new String[headers.size()]));
             }
         }
         
         //copy body over
-        rows.forEach((row) -> {
-            ret.addRow(row);
-            //addRow automaticly reorganizes columns
-        });
+        ret.storage = storage.project(ret, cols);
         
         return ret;
     }
@@ -85,19 +117,34 @@ public class CsvFile {
                 addHeader(header);
             }
         });
-        otherFile.getBody().forEach((row)->addRow(row));
+        storage.addAll(otherFile, getColumnMapping(otherFile));
         return this;
     }
     
-    public CsvRow dequeueFirstRow(){
-        CsvRow ret = null;
-        if(!rows.isEmpty()){
-            ret = rows.removeFirst();
+    /**
+     * Works out where each of this file's columns
+     * are in the other file.
+     * 
+     * @param other the file to find this' columns in
+     * @return for each of this' columns, the index of the column with the same header in other, or -1 if other doesn't have that header
+     */
+    private int[] getColumnMapping(CsvFile other){
+        int[] ret = new int[headers.size()];
+        for(int i = 0; i < ret.length; i++){
+            ret[i] = (other == this) ? i : other.getHeaderCol(headers.get(i));
         }
-        
         return ret;
     }
     
+    /**
+     * Removes the first row from this file's body.
+     * 
+     * @return the first row of this file, or null if it has no rows
+     */
+    public CsvRow dequeueFirstRow(){
+        return storage.removeFirst();
+    }
+    
     /**
      * Adds the given header to this file,
      * if it is not already present.
@@ -111,7 +158,7 @@ public class CsvFile {
         }
         headerCols.put(header, headers.size());
         headers.add(header);
-        rows.forEach((row)->row.padValues());
+        storage.addColumn();
         return this;
     }
     
@@ -144,11 +191,12 @@ public class CsvFile {
      * @param row 
      */
     public void addRow(CsvRow row){
-        CsvRow newRow = new CsvRow(this);
-        headers.forEach((header)->{
-            newRow.set(header, row.getOrDefault(header, ""));
-        });
-        rows.add(newRow);
+        int[] mapping = getColumnMapping(row.getParent());
+        String[] cells = new String[mapping.length];
+        for(int i = 0; i < mapping.length; i++){
+            cells[i] = (mapping[i] == -1) ? "" : row.getCell(mapping[i]);
+        }
+        storage.addRecord(cells);
     }
     
     /**
@@ -177,18 +225,47 @@ public class CsvFile {
      * @return the idx-th row of this file's body
      */
     public CsvRow getRow(int idx){
-        if(idx > 0 || idx <= rows.size()){
+        if(idx < 0 || idx >= storage.getRowCount()){
             throw new IllegalArgumentException("Cannot access row #" + idx);
         }
-        return rows.get(idx);
+        return storage.getRow(idx);
     }
     /**
      * 
-     * @return a copy of this' body
+     * @return a copy of this' body. If this uses the COLUMNS layout,
+     * the rows are views of this file's columns, so changing them changes this.
      */
-    @SuppressWarnings("unchecked")
     public LinkedList<CsvRow> getBody(){
-        return (LinkedList<CsvRow>)rows.clone();
+        return storage.getRows();
+    }
+    
+    public CsvLayout getLayout(){
+        return layout;
+    }
+    
+    /**
+     * Columnar files automatically store columns with
+     * only a few distinct values as a dictionary of
+     * those values, plus a code for each cell.
+     * This makes no difference to how the file is used.
+     * 
+     * @param header the header of the column to check
+     * @return whether or not the given column is dictionary encoded
+     */
+    public boolean isDictionaryEncoded(String header){
+        int col = getHeaderCol(header);
+        if(col == -1){
+            throw new IllegalArgumentException("This CsvFile does not have the header " + header);
+        }
+        return storage.isEncoded(col);
+    }
+    
+    /**
+     * 
+     * @return how this file stores its body
+     */
+    CsvStorage getStorage(){
+        return storage;
     }
     
     /**
@@ -205,7 +282,7 @@ public class CsvFile {
      * not including headers
      */
     public int getRowCount(){
-        return rows.size();
+        return storage.getRowCount();
     }
     
     /**
@@ -214,8 +291,9 @@ public class CsvFile {
      * @return this, for chaining purposes
      */
     public CsvFile clear(){
+        headerCols.clear();
         headers.clear();
-        rows.clear();
+        storage.clear();
         return this;
     }
     
@@ -229,14 +307,40 @@ public class CsvFile {
     @Override
     public String toString(){
         StringBuilder b = new StringBuilder();
-        String headerString = headers.stream().collect(Collectors.joining(","));
-        b.append(headerString);
-        rows.forEach((row)->{
-            b.append('\n').append(row.toString());
+        for(int i = 0; i < headers.size(); i++){
+            if(i != 0){
+                b.append(',');
+            }
+            CsvWriter.appendField(b, headers.get(i));
+        }
+        storage.getRows().forEach((row)->{
+            b.append('\n');
+            row.appendTo(b);
         });
         return b.toString();
     }
     
+    /**
+     * Writes this CsvFile in CSV format
+     * to the given Writer, one row at a time,
+     * rather than building the whole file
+     * as a String like toString does.
+     * 
+     * @param out the Writer to write to. This does not close it.
+     * @throws IOException if the Writer throws an exception
+     */
+    public void writeTo(Writer out) throws IOException{
+        CsvWriter w = new CsvWriter(out);
+        w.writeRecord(headers);
+        for(CsvRow row : storage.getRows()){
+            for(int i = 0; i < headers.size(); i++){
+                w.writeField(row.getCell(i));
+            }
+            w.endRecord();
+        }
+        w.flush();
+    }
+    
     public static void main(String[] args){
         CsvFile f = new CsvFile();
         f.addHeader("a");
@@ -259,5 +363,14 @@ public class CsvFile {
         
         CsvFile sub = f.getSubfile(new String[]{"c"});
         System.out.println(sub.toString());
+        
+        CsvFile cols = new CsvFile(new String[]{"a"}, CsvLayout.COLUMNS);
+        cols.concatinateWith(f);
+        sub = cols.getSubfile(new String[]{"c", "a"});
+        sub.getRow(0).set("c", "only in the subfile");
+        System.out.println(cols.toString());
+        System.out.println(sub.toString());
+        System.out.println(cols.dequeueFirstRow());
+        System.out.println(cols.getRowCount());
     }
 }
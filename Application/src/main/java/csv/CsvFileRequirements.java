@@ -1,6 +1,5 @@
 package csv;
 
-import io.FileReaderUtil;
 import io.FileType;
 import java.io.File;
 import java.util.Arrays;
@@ -52,9 +51,25 @@ public final class CsvFileRequirements {
             throw new Exception("Wrong file type: " + ext + ". File must be one of the following: " + Arrays.toString(FileType.CSV.getExtensions()));
         }
         
-        //see if it has the required headers
-        String fileText = FileReaderUtil.readFile(f);
-        String[] headers = CsvParser.extractHeaders(fileText);
+        //see if it has the required headers. Only the first row needs to be read
+        String[] headers;
+        try(CsvReader reader = CsvParser.read(f.toPath())){
+            headers = Arrays.stream(reader.getHeaders()).map((header)->header.trim()).toArray((size)->new String[size]);
+        }
+        validateHeaders(headers);
+        
+        return true;
+    }
+    
+    /**
+     * Checks if the given headers contain
+     * each of the headers required by these
+     * requirements.
+     * 
+     * @param headers the headers to check
+     * @throws MissingHeaderException if any of the required headers are missing
+     */
+    public void validateHeaders(String[] headers){
         boolean found;
         for(String reqHeader : reqHeaders){
             found = false;
@@ -67,7 +82,5 @@ public final class CsvFileRequirements {
                 throw new MissingHeaderException(reqHeader, headers);
             }
         }
-        
-        return true;
     }
 }
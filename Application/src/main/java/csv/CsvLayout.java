@@ -0,0 +1,31 @@
+package csv;
+
+/**
+ * CsvLayout determines how a CsvFile stores its body.
+ * Both layouts support the same CsvFile API, so the
+ * choice only affects performance.
+ * 
+ * @author Matt Crow
+ */
+public enum CsvLayout {
+    /**
+     * Each row is stored as its own CsvRow,
+     * holding a list of its cells.
+     * Best for small files, or files which
+     * are mostly read from and dequeued one row at a time.
+     */
+    ROWS,
+    
+    /**
+     * Each column is stored as a single array,
+     * and CsvRows are views into those columns.
+     * Adding a column takes constant time, getSubfile
+     * shares columns rather than copying them, and
+     * concatinating two columnar files copies whole
+     * blocks of cells at a time. Columns with only a
+     * few distinct values, such as business units or vendors,
+     * store each value once and give each cell an int code.
+     * Best for large files, such as automation results.
+     */
+    COLUMNS;
+}
@@ -2,10 +2,18 @@ package csv;
 
 import io.FileReaderUtil;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 /**
  * The CsvParser is used to convert CSV strings to a CsvFile object.
+ * For large files, use one of the read methods instead, which
+ * return a CsvReader that parses the file one row at a time.
  * 
  * @author Matt Crow
  */
@@ -13,43 +21,50 @@ public class CsvParser {
     public static final String NEW_LINE = System.lineSeparator();
     
     public static String[] extractHeaders(String fileText){
-        int nlIdx = fileText.indexOf(NEW_LINE);
-        if(nlIdx != -1){
-            //contains more than just 1 row
-            fileText = fileText.substring(0, nlIdx); //chop off everything on or after the newline
+        String[] headers;
+        try {
+            //only need the first record
+            headers = read(new StringReader(fileText)).getHeaders();
+        } catch(IOException ex){
+            throw new UncheckedIOException(ex);
         }
-        String[] headers = fileText.split(",");
         return Arrays.stream(headers).map((header)->header.trim()).toArray((size)->new String[size]);
     }
     
+    /**
+     * Creates a CsvReader which reads rows from the given Reader
+     * as they are needed, so the whole file needn't be in memory at once.
+     * 
+     * @param reader the Reader containing CSV data
+     * @return a CsvReader for the given data
+     * @throws IOException if the headers cannot be read
+     */
+    public static CsvReader read(Reader reader) throws IOException{
+        return new CsvReader(reader);
+    }
+    
+    /**
+     * Creates a CsvReader which reads rows from the given file
+     * as they are needed, so the whole file needn't be in memory at once.
+     * Be sure to close the returned reader once you are done with it.
+     * 
+     * @param path the path to a CSV file
+     * @return a CsvReader for the given file
+     * @throws IOException if the file cannot be opened, or its headers cannot be read
+     */
+    public static CsvReader read(Path path) throws IOException{
+        // same charset as FileReaderUtil
+        return read(new InputStreamReader(Files.newInputStream(path)));
+    }
+    
     public static CsvFile toCsvFile(String fileText){
-        CsvFile ret = new CsvFile();
-        boolean debug = false;
-        
-        String[] lines = fileText.split(NEW_LINE);
-        if(debug){
-            Arrays.stream(lines).forEach((line)->System.out.println("Line: " + line));
-        }
-        //first line is headers
-        if(lines.length >= 1){
-            String[] headers = lines[0].split(",");
-            for(String header : headers){
-                ret.addHeader(header);
-            }
+        CsvFile ret;
+        try(CsvReader reader = read(new StringReader(fileText))){
+            ret = reader.toCsvFile();
+        } catch(IOException ex){
+            // StringReader doesn't throw IOExceptions, but just in case
+            throw new UncheckedIOException(ex);
         }
-        
-        //now build the body
-        CsvRow row;
-        for(int i = 1; i < lines.length; i++){
-            row = new CsvRow(ret, lines[i]);
-            ret.addRow(row);
-        }
-        
-        if(debug){
-            System.out.println("Created new CsvFile:");
-            System.out.println(ret.toString());
-        }
-        
         return ret;
     }
 
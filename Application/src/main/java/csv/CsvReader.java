@@ -0,0 +1,155 @@
+package csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The CsvReader reads CSV data one row at a time,
+ * rather than loading the whole file into a CsvFile.
+ * This allows the program to work with files which
+ * are too large to comfortably hold in memory.
+ * 
+ * The first record read is treated as the headers.
+ * Records are parsed by a CsvTokenizer, so quoted fields
+ * may contain commas and line breaks.
+ * Each row returned by the reader belongs to a header-only
+ * CsvFile, so CsvRow.get works as usual, but the rows
+ * are not stored anywhere after they are returned.
+ * Blank lines are skipped.
+ * 
+ * Use CsvParser.read to create a CsvReader.
+ * 
+ * @author Matt Crow
+ */
+public class CsvReader implements Iterator<CsvRow>, Closeable {
+    private final Reader in;
+    private final CsvTokenizer tokenizer;
+    private final CsvFile headerFile;
+    private ArrayList<String> nextRecord;
+    private boolean done;
+    
+    /**
+     * Creates a CsvReader, and reads
+     * the headers from the given Reader.
+     * 
+     * @param reader the Reader to read CSV data from
+     * @throws IOException if the headers cannot be read
+     */
+    public CsvReader(Reader reader) throws IOException{
+        in = reader;
+        tokenizer = new CsvTokenizer(reader);
+        headerFile = new CsvFile();
+        nextRecord = null;
+        done = false;
+        
+        ArrayList<String> headers = readNonBlankRecord();
+        if(headers != null){
+            for(String header : headers){
+                headerFile.addHeader(header);
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @return the next record which isn't a blank line, or null if there are none left
+     * @throws IOException if the underlying reader throws an exception
+     */
+    private ArrayList<String> readNonBlankRecord() throws IOException{
+        ArrayList<String> ret = new ArrayList<>(headerFile.getHeaderCount());
+        boolean found = tokenizer.readRecord(ret);
+        while(found && CsvTokenizer.isBlank(ret)){
+            found = tokenizer.readRecord(ret);
+        }
+        return (found) ? ret : null;
+    }
+    
+    /**
+     * 
+     * @return the headers of the CSV data being read
+     */
+    public String[] getHeaders(){
+        return headerFile.getHeaders().toArray(new String[0]);
+    }
+    
+    /**
+     * 
+     * @return an empty CsvFile with the same headers
+     * as the data being read. Every row this returns
+     * belongs to this file.
+     */
+    public CsvFile getHeaderFile(){
+        return headerFile;
+    }
+    
+    @Override
+    public boolean hasNext(){
+        if(nextRecord == null && !done){
+            try {
+                nextRecord = readNonBlankRecord();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            done = nextRecord == null;
+        }
+        return !done;
+    }
+    
+    @Override
+    public CsvRow next(){
+        if(!hasNext()){
+            throw new NoSuchElementException("No more rows to read");
+        }
+        CsvRow ret = new CsvRow(headerFile, nextRecord);
+        nextRecord = null;
+        return ret;
+    }
+    
+    /**
+     * Returns the remaining rows as a Stream.
+     * Closing the stream closes this reader.
+     * 
+     * @return the rows this has yet to read
+     */
+    public Stream<CsvRow> stream(){
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+            false
+        ).onClose(()->{
+            try {
+                close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+    
+    /**
+     * Reads the remaining rows into a CsvFile.
+     * 
+     * @return a CsvFile containing the headers and every row this has yet to read.
+     */
+    public CsvFile toCsvFile(){
+        CsvFile ret = new CsvFile(getHeaders());
+        while(hasNext()){
+            ret.addRow(next());
+        }
+        return ret;
+    }
+    
+    @Override
+    public void close() throws IOException{
+        done = true;
+        nextRecord = null;
+        in.close();
+    }
+}
@@ -1,31 +1,100 @@
 package csv;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.List;
 
 /**
+ * A CsvRow either holds its own values, or,
+ * if it came from a CsvFile using the COLUMNS layout,
+ * is a view of one row in that file's columns.
+ * Views read and write their file directly, and
+ * are no longer valid once their row is dequeued
+ * or the file is cleared.
  * 
  * @author Matt Crow
  */
 public class CsvRow {
     private final CsvFile parent;
-    private final ArrayList<String> values;
+    private final ArrayList<String> values; // null if this is a view
+    private final ColumnStorage columns; // null unless this is a view
+    private final int index;
     
     public CsvRow(CsvFile inFile){
         parent = inFile;
         values = new ArrayList<>();
+        columns = null;
+        index = -1;
         padValues();
     }
     
     public CsvRow(CsvFile inFile, String[] cells){
         this(inFile);
         for(int i = 0; i < cells.length; i++){
-            values.set(i, cells[i]);
+            setCell(i, cells[i]);
         }
     }
     
+    /**
+     * Parses a single line of CSV text
+     * into a new row.
+     * 
+     * @param inFile the file whose headers this row uses
+     * @param row a line of CSV text
+     */
     public CsvRow(CsvFile inFile, String row){
-        this(inFile, row.split(","));
+        this(inFile, tokenize(row));
+    }
+    
+    /**
+     * Creates a row containing the given cells,
+     * in order. Used by classes which have already
+     * split a record into cells.
+     * 
+     * @param inFile the file whose headers this row uses
+     * @param cells the cells of the new row
+     */
+    CsvRow(CsvFile inFile, List<String> cells){
+        parent = inFile;
+        values = new ArrayList<>(Math.max(cells.size(), inFile.getHeaderCount()));
+        values.addAll(cells);
+        columns = null;
+        index = -1;
+        padValues();
+    }
+    
+    /**
+     * Creates a view of a row in a columnar CsvFile.
+     * 
+     * @param inFile the file containing the row
+     * @param storage inFile's columns
+     * @param idx the index of the row in the columns
+     */
+    CsvRow(CsvFile inFile, ColumnStorage storage, int idx){
+        parent = inFile;
+        values = null;
+        columns = storage;
+        index = idx;
+    }
+    
+    private static List<String> tokenize(String row){
+        ArrayList<String> cells = new ArrayList<>();
+        try {
+            new CsvTokenizer(row).readRecord(cells);
+        } catch (IOException ex) {
+            // tokenizing a String doesn't do any IO
+            throw new UncheckedIOException(ex);
+        }
+        return cells;
+    }
+    
+    private void setCell(int idx, String value){
+        if(idx < values.size()){
+            values.set(idx, value);
+        } else {
+            values.add(value);
+        }
     }
     
     /**
@@ -33,6 +102,10 @@ public class CsvRow {
      * until it is as wide as its parent.
      */
     public void padValues(){
+        if(values == null){
+            // views are as wide as their file
+            return;
+        }
         int blanksToAdd = parent.getHeaderCount() - values.size();
         for(int i = 0; i < blanksToAdd; i++){
             values.add("");
@@ -44,10 +117,14 @@ public class CsvRow {
         if(idx == -1){
             throw new IllegalArgumentException("This CsvFile does not have the header " + columnHeader);
         }
-        if(idx >= values.size()){
-            padValues();
+        if(values == null){
+            columns.set(index, idx, value);
+        } else {
+            if(idx >= values.size()){
+                padValues();
+            }
+            values.set(idx, value);
         }
-        values.set(idx, value);
     }
     
     public String get(String columnHeader){
@@ -55,10 +132,30 @@ public class CsvRow {
         if(idx == -1){
             throw new IllegalArgumentException("This CsvFile does not have the header " + columnHeader);
         }
-        if(idx >= values.size()){
-            padValues();
+        return getCell(idx);
+    }
+    
+    /**
+     * 
+     * @param idx the index of a column in this row's file
+     * @return the value of this row in that column
+     */
+    String getCell(int idx){
+        String ret;
+        if(values == null){
+            ret = columns.get(index, idx);
+        } else {
+            ret = (idx < values.size()) ? values.get(idx) : "";
         }
-        return values.get(idx);
+        return ret;
+    }
+    
+    /**
+     * 
+     * @return the file whose headers this row uses
+     */
+    CsvFile getParent(){
+        return parent;
     }
     
     /**
@@ -86,11 +183,27 @@ public class CsvRow {
      */
     @Override
     public String toString(){
-        return values
-            .stream()
-            .map((String cell)->{
-                return (cell.contains(",") && !(cell.startsWith("\"") && cell.endsWith("\""))) ? "\"" + cell + "\"" : cell;
-            })
-            .collect(Collectors.joining(","));
+        StringBuilder b = new StringBuilder();
+        appendTo(b);
+        return b.toString();
+    }
+    
+    /**
+     * Writes this row, as it would appear in a CSV file,
+     * to the given StringBuilder.
+     * 
+     * @param b the StringBuilder to write to
+     */
+    void appendTo(StringBuilder b){
+        int width = parent.getHeaderCount();
+        if(values != null){
+            width = Math.max(width, values.size());
+        }
+        for(int i = 0; i < width; i++){
+            if(i != 0){
+                b.append(',');
+            }
+            CsvWriter.appendField(b, getCell(i));
+        }
     }
 }
@@ -0,0 +1,91 @@
+package csv;
+
+import java.util.LinkedList;
+
+/**
+ * CsvStorage holds the body of a CsvFile.
+ * The CsvFile keeps track of headers, and
+ * works out which column each header is in,
+ * so storage only ever deals with column indices.
+ * 
+ * @see CsvLayout
+ * @author Matt Crow
+ */
+abstract class CsvStorage {
+    protected final CsvFile parent;
+    
+    CsvStorage(CsvFile parent){
+        this.parent = parent;
+    }
+    
+    static CsvStorage create(CsvFile parent, CsvLayout layout){
+        return (layout == CsvLayout.COLUMNS) ? new ColumnStorage(parent) : new RowStorage(parent);
+    }
+    
+    abstract int getRowCount();
+    
+    /**
+     * Called after the parent file adds a header.
+     * The new column is blank for every existing row.
+     */
+    abstract void addColumn();
+    
+    /**
+     * Adds a row to the end of this storage.
+     * 
+     * @param cells the cells of the new row, one for each of the parent's headers, in order.
+     */
+    abstract void addRecord(String[] cells);
+    
+    abstract CsvRow getRow(int idx);
+    
+    /**
+     * 
+     * @return the first row, which is removed from this storage, or null if there are no rows
+     */
+    abstract CsvRow removeFirst();
+    
+    /**
+     * 
+     * @return a new list containing every row in this storage
+     */
+    abstract LinkedList<CsvRow> getRows();
+    
+    /**
+     * Creates storage for newParent, containing only
+     * the given columns of this storage.
+     * 
+     * @param newParent the file the returned storage belongs to
+     * @param cols the index in this storage of each of newParent's columns
+     * @return the new storage
+     */
+    abstract CsvStorage project(CsvFile newParent, int[] cols);
+    
+    abstract void clear();
+    
+    /**
+     * 
+     * @param col the index of a column
+     * @return whether or not that column stores its values in a dictionary
+     */
+    boolean isEncoded(int col){
+        return false;
+    }
+    
+    /**
+     * Adds every row of the other file to the end of this storage.
+     * 
+     * @param other the file to copy rows from
+     * @param mapping for each of the parent's columns, the index of the matching column in other, or -1 if other doesn't have it
+     */
+    void addAll(CsvFile other, int[] mapping){
+        String[] cells;
+        for(CsvRow row : other.getBody()){
+            cells = new String[mapping.length];
+            for(int i = 0; i < mapping.length; i++){
+                cells[i] = (mapping[i] == -1) ? "" : row.getCell(mapping[i]);
+            }
+            addRecord(cells);
+        }
+    }
+}
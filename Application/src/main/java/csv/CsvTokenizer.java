@@ -0,0 +1,162 @@
+package csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * The CsvTokenizer splits CSV text into records and fields,
+ * following RFC 4180:
+ * <ul>
+ * <li>fields are separated by commas</li>
+ * <li>records are separated by either "\r\n" or "\n"</li>
+ * <li>fields beginning with a double quote may contain commas, newlines, and double quotes</li>
+ * <li>a double quote inside a quoted field is written as two double quotes</li>
+ * </ul>
+ * Quotes which do not begin a field are treated as normal characters,
+ * and an unterminated quoted field runs until the end of the input.
+ * 
+ * The tokenizer works one character at a time on its own buffer,
+ * and reuses the same StringBuilder for every field it reads,
+ * so the only objects it creates are the field Strings themselves.
+ * 
+ * @author Matt Crow
+ */
+public class CsvTokenizer {
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final Reader in;
+    private final char[] buffer;
+    private final StringBuilder field;
+    private int pos;
+    private int len;
+    
+    /**
+     * Creates a tokenizer which reads
+     * CSV data from the given Reader.
+     * Since this buffers its input, there
+     * is no need to wrap the reader in a BufferedReader.
+     * 
+     * @param reader the reader to tokenize
+     */
+    public CsvTokenizer(Reader reader){
+        in = reader;
+        buffer = new char[BUFFER_SIZE];
+        field = new StringBuilder();
+        pos = 0;
+        len = 0;
+    }
+    
+    /**
+     * Creates a tokenizer which reads
+     * CSV data from the given String.
+     * 
+     * @param text the CSV text to tokenize
+     */
+    public CsvTokenizer(String text){
+        in = null;
+        buffer = text.toCharArray();
+        field = new StringBuilder();
+        pos = 0;
+        len = buffer.length;
+    }
+    
+    /**
+     * Makes sure there is at least one unread
+     * character in the buffer, if the input
+     * has any left.
+     * 
+     * @return whether or not there are characters left to read
+     * @throws IOException if the underlying reader throws an exception
+     */
+    private boolean fill() throws IOException{
+        if(pos < len){
+            return true;
+        }
+        if(in == null){
+            return false;
+        }
+        int read = in.read(buffer, 0, buffer.length);
+        while(read == 0){
+            read = in.read(buffer, 0, buffer.length);
+        }
+        pos = 0;
+        len = Math.max(read, 0);
+        return read > 0;
+    }
+    
+    /**
+     * Reads the next record, adding each of its fields
+     * to the given list. The list is cleared first.
+     * 
+     * @param fields the list to store the record's fields in
+     * @return false if there were no records left to read, true otherwise
+     * @throws IOException if the underlying reader throws an exception
+     */
+    public boolean readRecord(List<String> fields) throws IOException{
+        fields.clear();
+        if(!fill()){
+            return false;
+        }
+        
+        field.setLength(0);
+        boolean inQuotes = false;
+        boolean endOfRecord = false;
+        char c;
+        while(!endOfRecord && fill()){
+            c = buffer[pos++];
+            if(inQuotes){
+                if(c == '"'){
+                    if(fill() && buffer[pos] == '"'){
+                        // escaped quote
+                        field.append('"');
+                        pos++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else {
+                switch(c){
+                    case ',':
+                        fields.add(field.toString());
+                        field.setLength(0);
+                        break;
+                    case '"':
+                        if(field.length() == 0){
+                            inQuotes = true;
+                        } else {
+                            field.append(c);
+                        }
+                        break;
+                    case '\r':
+                        if(fill() && buffer[pos] == '\n'){
+                            pos++;
+                        }
+                        endOfRecord = true;
+                        break;
+                    case '\n':
+                        endOfRecord = true;
+                        break;
+                    default:
+                        field.append(c);
+                        break;
+                }
+            }
+        }
+        fields.add(field.toString());
+        field.setLength(0);
+        
+        return true;
+    }
+    
+    /**
+     * 
+     * @param fields a record read by readRecord
+     * @return whether or not the given record came from a line containing nothing but whitespace
+     */
+    public static boolean isBlank(List<String> fields){
+        return fields.size() == 1 && fields.get(0).trim().isEmpty();
+    }
+}
@@ -0,0 +1,144 @@
+package csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The CsvWriter is the counterpart to CsvTokenizer:
+ * it writes fields and records in the format
+ * CsvTokenizer reads. Fields containing commas, double quotes,
+ * or line breaks are wrapped in double quotes, and any
+ * double quotes inside them are doubled.
+ * Records are separated by '\n'.
+ * 
+ * @author Matt Crow
+ */
+public class CsvWriter implements Closeable, Flushable {
+    private final Writer out;
+    private boolean atRecordStart;
+    
+    /**
+     * 
+     * @param writer the Writer to write CSV data to.
+     * This does not buffer its output, so you may want
+     * to pass a BufferedWriter.
+     */
+    public CsvWriter(Writer writer){
+        out = writer;
+        atRecordStart = true;
+    }
+    
+    /**
+     * Writes the given field to the current record,
+     * adding a comma before it if needed.
+     * 
+     * @param value the field to write. Null is written as an empty field.
+     * @return this, for chaining purposes
+     * @throws IOException if the underlying writer throws an exception
+     */
+    public CsvWriter writeField(String value) throws IOException{
+        if(!atRecordStart){
+            out.write(',');
+        }
+        appendField(out, value);
+        atRecordStart = false;
+        return this;
+    }
+    
+    /**
+     * Ends the current record, so the next
+     * field is written on a new line.
+     * 
+     * @return this, for chaining purposes
+     * @throws IOException if the underlying writer throws an exception
+     */
+    public CsvWriter endRecord() throws IOException{
+        out.write('\n');
+        atRecordStart = true;
+        return this;
+    }
+    
+    /**
+     * Writes each of the given fields as one record.
+     * 
+     * @param fields the fields of the record to write
+     * @return this, for chaining purposes
+     * @throws IOException if the underlying writer throws an exception
+     */
+    public CsvWriter writeRecord(Iterable<String> fields) throws IOException{
+        for(String value : fields){
+            writeField(value);
+        }
+        return endRecord();
+    }
+    
+    @Override
+    public void flush() throws IOException{
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException{
+        out.close();
+    }
+    
+    /**
+     * 
+     * @param value a field value
+     * @return whether or not the given value must be quoted to be written as a field
+     */
+    public static boolean needsQuotes(String value){
+        boolean ret = false;
+        char c;
+        for(int i = 0; i < value.length() && !ret; i++){
+            c = value.charAt(i);
+            ret = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return ret;
+    }
+    
+    /**
+     * Writes the given value to the given Appendable
+     * as a CSV field, quoting it if needed.
+     * 
+     * @param dest where to write the field
+     * @param value the field to write. Null is written as an empty field.
+     * @throws IOException if dest throws an exception
+     */
+    public static void appendField(Appendable dest, String value) throws IOException{
+        if(value == null || value.isEmpty()){
+            return;
+        }
+        if(!needsQuotes(value)){
+            dest.append(value);
+            return;
+        }
+        dest.append('"');
+        int start = 0;
+        int quoteIdx = value.indexOf('"');
+        while(quoteIdx != -1){
+            dest.append(value, start, quoteIdx + 1).append('"');
+            start = quoteIdx + 1;
+            quoteIdx = value.indexOf('"', start);
+        }
+        dest.append(value, start, value.length()).append('"');
+    }
+    
+    /**
+     * Writes the given value to the given StringBuilder
+     * as a CSV field, quoting it if needed.
+     * 
+     * @param dest where to write the field
+     * @param value the field to write. Null is written as an empty field.
+     */
+    public static void appendField(StringBuilder dest, String value){
+        try {
+            appendField((Appendable)dest, value);
+        } catch (IOException ex) {
+            // StringBuilder doesn't throw IOExceptions
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package csv;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Stores the body of a CsvFile as a list of CsvRows.
+ * Rows are padded when they are next read or written,
+ * rather than whenever the file adds a header.
+ * 
+ * @see CsvLayout#ROWS
+ * @author Matt Crow
+ */
+final class RowStorage extends CsvStorage {
+    private final LinkedList<CsvRow> rows;
+    
+    RowStorage(CsvFile parent){
+        super(parent);
+        rows = new LinkedList<>();
+    }
+    
+    @Override
+    int getRowCount(){
+        return rows.size();
+    }
+    
+    @Override
+    void addColumn(){
+        // rows pad themselves as needed
+    }
+    
+    @Override
+    void addRecord(String[] cells){
+        rows.add(new CsvRow(parent, Arrays.asList(cells)));
+    }
+    
+    @Override
+    CsvRow getRow(int idx){
+        return rows.get(idx);
+    }
+    
+    @Override
+    CsvRow removeFirst(){
+        return (rows.isEmpty()) ? null : rows.removeFirst();
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    LinkedList<CsvRow> getRows(){
+        return (LinkedList<CsvRow>)rows.clone();
+    }
+    
+    @Override
+    CsvStorage project(CsvFile newParent, int[] cols){
+        RowStorage ret = new RowStorage(newParent);
+        String[] cells;
+        for(CsvRow row : rows){
+            cells = new String[cols.length];
+            for(int i = 0; i < cols.length; i++){
+                cells[i] = row.getCell(cols[i]);
+            }
+            ret.addRecord(cells);
+        }
+        return ret;
+    }
+    
+    @Override
+    void clear(){
+        rows.clear();
+    }
+}
@@ -7,11 +7,13 @@ import csv.CsvFile;
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.FlowLayout;
+import java.io.File;
 import javax.swing.JButton;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import org.openqa.selenium.WebDriver;
 import logging.ErrorListener;
 import logging.Logger;
+import util.Browser;
 
 /**
  *
@@ -28,7 +30,8 @@ public class ApplicationPane extends JPanel{
     
     private Class<? extends AbstractAutomation> selAuto;
     private CsvFile inputFile;
-    private Class<? extends WebDriver> driverClass;
+    private File inputPath;
+    private Browser browser;
     
     public ApplicationPane(ApplicationWindow inWindow){
         super();
@@ -54,11 +57,12 @@ public class ApplicationPane extends JPanel{
         file.setOnDone(()->{
             l.show(middle, DRIVER);
             inputFile = file.getSelectedFile();
+            inputPath = file.getSelectedPath();
         });
         driverSel.setOnDone(()->{
             l.show(middle, RUN);
-            driverClass = driverSel.getDriverClass();
-            run.run(selAuto, inputFile, driverClass);
+            browser = driverSel.getBrowser();
+            run.run(selAuto, inputFile, inputPath, browser, driverSel.getLaunchProfile());
         });
         middle.add(auto, AUTO);
         middle.add(file, DATA);
@@ -87,6 +91,16 @@ public class ApplicationPane extends JPanel{
             new LogViewer();
         });
         bottom.add(viewLogButton);
+        
+        JButton jobsButton = new JButton("Job Queue");
+        jobsButton.addActionListener((e)->{
+            if(forApp.getJobScheduler() == null){
+                JOptionPane.showMessageDialog(this, "The job queue could not be loaded. Please see the log for details.");
+            } else {
+                new JobQueueViewer(forApp.getJobScheduler());
+            }
+        });
+        bottom.add(jobsButton);
         add(bottom, BorderLayout.PAGE_END);
     }
     
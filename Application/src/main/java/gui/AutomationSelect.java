@@ -1,12 +1,6 @@
 package gui;
 
-import automationSamples.TableTest;
-import automationSamples.PurchaseOrderAutomation;
-import automationSamples.RequisitionAutomation;
-import automationSamples.AccountBalanceAutomation;
-import automationSamples.BlanketPurchaseOrder;
-import automationSamples.PurchaseOrderInfoAutomation;
-import automationSamples.GoogleSearch;
+import application.AutomationRegistry;
 import automationTools.AbstractAutomation;
 import java.awt.BorderLayout;
 import java.awt.GridBagConstraints;
@@ -45,15 +39,7 @@ public class AutomationSelect extends Page{
         gbc.weighty = 1;
         
         //TODO: how do I want to allow plugins to add new Automations to this?
-        AbstractAutomation[] aas = new AbstractAutomation[]{
-            new GoogleSearch(),
-            new TableTest(),
-            new AccountBalanceAutomation(),
-            new RequisitionAutomation(),
-            new PurchaseOrderAutomation(),
-            new PurchaseOrderInfoAutomation(),
-            new BlanketPurchaseOrder()
-        };
+        AbstractAutomation[] aas = AutomationRegistry.createAll();
         
         //pair buttons with automation info
         ButtonGroup bg = new ButtonGroup();
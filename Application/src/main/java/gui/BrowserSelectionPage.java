@@ -7,16 +7,15 @@ import java.awt.GridBagLayout;
 import java.util.HashMap;
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.edge.EdgeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
 import util.Browser;
+import util.LaunchProfile;
 
 /**
  *
@@ -29,6 +28,8 @@ public class BrowserSelectionPage extends Page{
     private HashMap<Browser, BrowserSelectBox> browserOptions;
     private final JPanel browserList;
     private final ButtonGroup browserButtons;
+    private final JCheckBox headless;
+    private final JCheckBox blockResources;
     
     public BrowserSelectionPage(ApplicationPane app) {
         super(app);
@@ -59,6 +60,18 @@ public class BrowserSelectionPage extends Page{
         add(scrolly, BorderLayout.CENTER);
         
         //bottom
+        JPanel bottomArea = new JPanel();
+        bottomArea.setLayout(new BorderLayout());
+        
+        JPanel launchOptions = new JPanel();
+        headless = new JCheckBox("Hide the browser while it runs");
+        headless.setToolTipText("Runs the browser without a window, which is faster, but you won't be able to watch the automation");
+        launchOptions.add(headless);
+        blockResources = new JCheckBox("Don't load images, styles, or fonts");
+        blockResources.setToolTipText("Makes pages load faster. Automations only read the text of pages, so they don't need these");
+        launchOptions.add(blockResources);
+        bottomArea.add(launchOptions, BorderLayout.PAGE_START);
+        
         JPanel bottom = new JPanel();
         
         JButton back = new JButton("Go back");
@@ -90,7 +103,8 @@ public class BrowserSelectionPage extends Page{
         });
         bottom.add(next);
         
-        add(bottom, BorderLayout.PAGE_END);
+        bottomArea.add(bottom, BorderLayout.PAGE_END);
+        add(bottomArea, BorderLayout.PAGE_END);
     }
     
     private void addBrowser(Browser b){
@@ -112,19 +126,7 @@ public class BrowserSelectionPage extends Page{
     
     private void selectBrowser(Browser b){
         currentBrowser = b;
-        switch(currentBrowser){
-            case CHROME:
-                driverClass = ChromeDriver.class;
-                break;
-            case FIRE_FOX:
-                driverClass = FirefoxDriver.class;
-                break;
-            case EDGE:
-                driverClass = EdgeDriver.class;
-                break;
-            default:
-                throw new UnsupportedOperationException("Invalid browser: " + currentBrowser.name());
-        }
+        driverClass = b.getDriverClass();
     }
     
     private void selectDriver(){
@@ -140,4 +142,24 @@ public class BrowserSelectionPage extends Page{
     public final Class<? extends WebDriver> getDriverClass(){
         return driverClass;
     }
+    
+    public final Browser getBrowser(){
+        return currentBrowser;
+    }
+    
+    /**
+     * 
+     * @return how the user wants the browser launched
+     */
+    public final LaunchProfile getLaunchProfile(){
+        LaunchProfile ret = new LaunchProfile();
+        if(headless.isSelected()){
+            // headless browsers default to a tiny window, which can change how pages are laid out
+            ret.setHeadless(true).setWindowSize(LaunchProfile.DEFAULT_WIDTH, LaunchProfile.DEFAULT_HEIGHT);
+        }
+        if(blockResources.isSelected()){
+            ret.setBlockImages(true).setBlockStylesheets(true).setBlockFonts(true).setDisableExtensions(true);
+        }
+        return ret;
+    }
 }
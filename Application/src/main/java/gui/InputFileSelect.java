@@ -27,12 +27,14 @@ public class InputFileSelect extends Page{
     private final ScrollableTextDisplay disp;
     private AbstractAutomation forAuto;
     private CsvFile selectedFile;
+    private File selectedPath;
     
     public InputFileSelect(ApplicationPane app){
         super(app);
         autoText = new JLabel("No Automation selected");
         forAuto = null;
         selectedFile = null;
+        selectedPath = null;
         accepted = false;
         
         setLayout(new BorderLayout());
@@ -82,6 +84,7 @@ public class InputFileSelect extends Page{
                 autoText.setText(forAuto.getName() + " doesn't need a query file to run");
                 disp.appendText("No need to select a file.");
                 selectedFile = null;
+                selectedPath = null;
                 accepted = true;
                 next();
             }
@@ -101,6 +104,7 @@ public class InputFileSelect extends Page{
                 disp.clear();
                 disp.appendText(f.getName() + " was accepted! \n");
                 selectedFile = CsvParser.toCsvFile(fileText).getSubfile(reqs.getReqHeaders());
+                selectedPath = f;
                 String reformatted = selectedFile.toString();
                 addText(reformatted);
                 Logger.clearFlags();
@@ -118,6 +122,7 @@ public class InputFileSelect extends Page{
             autoText.setText(forAuto.getName() + " doesn't need a query file to run");
             disp.appendText("No need to select a file.");
             selectedFile = null;
+            selectedPath = null;
         }
     }
     
@@ -129,4 +134,12 @@ public class InputFileSelect extends Page{
     public final CsvFile getSelectedFile(){
         return selectedFile;
     }
+    
+    /**
+     * 
+     * @return the file selectedFile was read from, or null if there isn't one
+     */
+    public final File getSelectedPath(){
+        return selectedPath;
+    }
 }
@@ -0,0 +1,352 @@
+package gui;
+
+import application.AutomationRegistry;
+import application.Job;
+import application.JobScheduler;
+import automationTools.AbstractAutomation;
+import automationTools.AbstractQueryGatherAutomation;
+import io.FileSelector;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import logging.Logger;
+import util.Browser;
+import util.LaunchProfile;
+
+/**
+ * The JobQueueViewer shows every job in the job queue,
+ * and lets the user add, cancel, and retry jobs.
+ * Jobs keep running while this is closed.
+ * 
+ * @see JobScheduler
+ * @author Matt Crow
+ */
+public class JobQueueViewer extends JDialog{
+    private static final int REFRESH_INTERVAL = 1000; // milliseconds
+    private static final String[] COLUMNS = {"ID", "Automation", "Input", "Output", "Priority", "Status", "Attempts", "Last error"};
+    
+    private final JobScheduler scheduler;
+    private final JobTableModel model;
+    private final JTable table;
+    private final Timer refreshTimer;
+    
+    /**
+     * Shows the jobs in the job file as a table,
+     * one row per job, in the order they were submitted.
+     */
+    private static class JobTableModel extends AbstractTableModel{
+        private List<Job> jobs = new ArrayList<>();
+        
+        private void setJobs(List<Job> jobs){
+            this.jobs = jobs;
+            fireTableDataChanged();
+        }
+        
+        private Job getJob(int row){
+            return jobs.get(row);
+        }
+        
+        @Override
+        public int getRowCount(){
+            return jobs.size();
+        }
+        
+        @Override
+        public int getColumnCount(){
+            return COLUMNS.length;
+        }
+        
+        @Override
+        public String getColumnName(int col){
+            return COLUMNS[col];
+        }
+        
+        @Override
+        public Object getValueAt(int row, int col){
+            Job job = jobs.get(row);
+            Object ret;
+            switch(col){
+                case 0:
+                    ret = job.getShortId();
+                    break;
+                case 1:
+                    ret = job.getAutomation().getSimpleName();
+                    break;
+                case 2:
+                    ret = job.getInput().getFileName();
+                    break;
+                case 3:
+                    ret = job.getOutput().getFileName();
+                    break;
+                case 4:
+                    ret = job.getPriority();
+                    break;
+                case 5:
+                    ret = job.getStatus();
+                    break;
+                case 6:
+                    ret = job.getAttempts() + " / " + job.getMaxAttempts();
+                    break;
+                default:
+                    ret = (job.getLastError() == null) ? "" : job.getLastError();
+                    break;
+            }
+            return ret;
+        }
+    }
+    
+    public JobQueueViewer(JobScheduler scheduler){
+        super();
+        this.scheduler = scheduler;
+        setTitle("Job Queue");
+        
+        JPanel content = new JPanel();
+        content.setLayout(new BorderLayout());
+        setContentPane(content);
+        
+        content.add(new JLabel("Jobs run one after another, even while this window is closed. Jobs submitted from the command line show up here too."), BorderLayout.PAGE_START);
+        
+        model = new JobTableModel();
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JScrollPane scrolly = new JScrollPane(table);
+        scrolly.setPreferredSize(new Dimension(900, 300));
+        content.add(scrolly, BorderLayout.CENTER);
+        
+        JPanel options = new JPanel();
+        JButton add = new JButton("Add job");
+        add.addActionListener((e)->{
+            addJob();
+        });
+        options.add(add);
+        JButton cancel = new JButton("Cancel job");
+        cancel.addActionListener((e)->{
+            cancelSelected();
+        });
+        options.add(cancel);
+        JButton retry = new JButton("Run job again");
+        retry.setToolTipText("Queues a job which finished or failed again. Also use this for jobs left running after the program crashed.");
+        retry.addActionListener((e)->{
+            requeueSelected();
+        });
+        options.add(retry);
+        JButton clear = new JButton("Clear finished jobs");
+        clear.addActionListener((e)->{
+            try {
+                scheduler.clearFinished();
+            } catch (IOException ex) {
+                Logger.logError("JobQueueViewer.clear", ex);
+            }
+            refresh();
+        });
+        options.add(clear);
+        JButton pause = new JButton((scheduler.isPaused()) ? "Resume queue" : "Pause queue");
+        pause.addActionListener((e)->{
+            scheduler.setPaused(!scheduler.isPaused());
+            pause.setText((scheduler.isPaused()) ? "Resume queue" : "Pause queue");
+        });
+        options.add(pause);
+        JButton close = new JButton("Close");
+        close.addActionListener((e)->{
+            dispose();
+        });
+        options.add(close);
+        content.add(options, BorderLayout.PAGE_END);
+        
+        refreshTimer = new Timer(REFRESH_INTERVAL, (e)->refresh());
+        refreshTimer.start();
+        refresh();
+        
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        pack();
+        setVisible(true);
+    }
+    
+    @Override
+    public void dispose(){
+        refreshTimer.stop();
+        super.dispose();
+    }
+    
+    private void refresh(){
+        // keep the same job selected, even if the rows moved
+        Job selected = getSelected();
+        List<Job> jobs = scheduler.getJobs();
+        model.setJobs(jobs);
+        if(selected != null){
+            for(int i = 0; i < jobs.size(); i++){
+                if(jobs.get(i).getId().equals(selected.getId())){
+                    table.setRowSelectionInterval(i, i);
+                }
+            }
+        }
+    }
+    
+    private Job getSelected(){
+        int row = table.getSelectedRow();
+        return (row == -1) ? null : model.getJob(row);
+    }
+    
+    private void cancelSelected(){
+        Job job = getSelected();
+        if(job == null){
+            JOptionPane.showMessageDialog(this, "Please select a job to cancel");
+            return;
+        }
+        try {
+            if(!scheduler.cancel(job.getId())){
+                JOptionPane.showMessageDialog(this, "Only jobs which are waiting to run can be cancelled");
+            }
+        } catch (IOException ex) {
+            Logger.logError("JobQueueViewer.cancelSelected", ex);
+        }
+        refresh();
+    }
+    
+    private void requeueSelected(){
+        Job job = getSelected();
+        if(job == null){
+            JOptionPane.showMessageDialog(this, "Please select a job to run again");
+            return;
+        }
+        if(job.getStatus() == Job.Status.RUNNING && JOptionPane.showConfirmDialog(
+            this,
+            "This job is marked as running. Only run it again if the program running it crashed. Run it again?",
+            "Run job again?",
+            JOptionPane.YES_NO_OPTION
+        ) != JOptionPane.YES_OPTION){
+            return;
+        }
+        try {
+            if(!scheduler.requeue(job.getId())){
+                JOptionPane.showMessageDialog(this, "That job is already waiting to run, or is being run by this program");
+            }
+        } catch (IOException ex) {
+            Logger.logError("JobQueueViewer.requeueSelected", ex);
+        }
+        refresh();
+    }
+    
+    /**
+     * Checks the query file before queueing it, so
+     * the user finds out it's wrong now, instead of when
+     * the job fails after they've walked away.
+     * 
+     * @param aClass the automation which will read the file
+     * @param f the query file
+     * @return whether or not the automation can read the file
+     */
+    private boolean isValidQueryFile(Class<? extends AbstractAutomation> aClass, File f){
+        boolean ret = false;
+        try {
+            ret = ((AbstractQueryGatherAutomation)AutomationRegistry.create(aClass)).getQueryFileReqs().validateFile(f);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "The query file was not accepted for the following reasons:\n" + ex.getMessage());
+        }
+        return ret;
+    }
+    
+    /**
+     * Asks the user for the settings of a new job,
+     * then adds it to the queue.
+     */
+    private void addJob(){
+        List<Class<? extends AbstractAutomation>> choices = new ArrayList<>();
+        JComboBox<String> automation = new JComboBox<>();
+        for(AbstractAutomation aa : AutomationRegistry.createAll()){
+            if(aa instanceof AbstractQueryGatherAutomation){
+                choices.add(aa.getClass());
+                automation.addItem(aa.getName());
+            }
+        }
+        File[] files = new File[2]; // input, output
+        JLabel inputName = new JLabel("No file selected");
+        JButton input = new JButton("Select query file");
+        input.addActionListener((e)->{
+            FileSelector.chooseCsvFile("Select the query file", (f)->{
+                files[0] = f;
+                inputName.setText(f.getName());
+            });
+        });
+        JLabel outputName = new JLabel("No file selected");
+        JButton output = new JButton("Select result file");
+        output.addActionListener((e)->{
+            FileSelector.createNewFile("Where do you want to save the results?", (f)->{
+                files[1] = (f.getName().toLowerCase().endsWith(".csv")) ? f : new File(f.getPath() + ".csv");
+                outputName.setText(files[1].getName());
+            });
+        });
+        JComboBox<Browser> browser = new JComboBox<>(Browser.values());
+        JCheckBox fast = new JCheckBox("Hide the browser, and don't load images, styles, or fonts");
+        JSpinner workers = new JSpinner(new SpinnerNumberModel(1, 1, 16, 1));
+        JSpinner priority = new JSpinner(new SpinnerNumberModel(Job.DEFAULT_PRIORITY, -100, 100, 1));
+        JSpinner attempts = new JSpinner(new SpinnerNumberModel(Job.DEFAULT_MAX_ATTEMPTS, 1, 10, 1));
+        
+        JPanel form = new JPanel();
+        form.setLayout(new GridLayout(0, 2));
+        form.add(new JLabel("Automation"));
+        form.add(automation);
+        form.add(input);
+        form.add(inputName);
+        form.add(output);
+        form.add(outputName);
+        form.add(new JLabel("Browser"));
+        form.add(browser);
+        form.add(new JLabel("Browsers to run queries in at once"));
+        form.add(workers);
+        form.add(new JLabel("Priority (higher runs first)"));
+        form.add(priority);
+        form.add(new JLabel("Times to try before giving up"));
+        form.add(attempts);
+        form.add(fast);
+        
+        boolean done = false;
+        while(!done){
+            if(JOptionPane.showConfirmDialog(this, form, "Add job", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION){
+                done = true;
+            } else if(files[0] == null || files[1] == null){
+                JOptionPane.showMessageDialog(this, "Please select both a query file and a result file");
+            } else if(!isValidQueryFile(choices.get(automation.getSelectedIndex()), files[0])){
+                // isValidQueryFile told the user what's wrong, so let them pick another file
+            } else {
+                Job job = new Job(
+                    choices.get(automation.getSelectedIndex()),
+                    files[0].toPath().toAbsolutePath(),
+                    files[1].toPath().toAbsolutePath(),
+                    (Browser)browser.getSelectedItem(),
+                    (fast.isSelected()) ? LaunchProfile.fast() : new LaunchProfile(),
+                    (Integer)workers.getValue(),
+                    (Integer)priority.getValue(),
+                    (Integer)attempts.getValue()
+                );
+                try {
+                    scheduler.submit(job);
+                } catch (IOException ex) {
+                    Logger.logError("JobQueueViewer.addJob", ex);
+                    JOptionPane.showMessageDialog(this, "Failed to add the job: " + ex.getMessage());
+                }
+                done = true;
+            }
+        }
+        refresh();
+    }
+}
@@ -0,0 +1,178 @@
+package gui;
+
+import automationTools.AbstractQueryGatherAutomation;
+import automationTools.QueryQueue;
+import automationTools.QueryingAutomation;
+import automationTools.RunMetrics;
+import java.awt.GridLayout;
+import java.util.ArrayDeque;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.Timer;
+
+/**
+ * The ProgressPanel shows how far along a QueryingAutomation is:
+ * how many queries it has completed and failed, how many rows
+ * it has read, how fast it is going, and how much longer it
+ * should take.
+ * 
+ * Rather than listening for each query, the panel checks
+ * the automation's counters a couple times per second,
+ * so watching a run costs the same no matter how fast it goes.
+ * 
+ * @author Matt Crow
+ */
+public class ProgressPanel extends JPanel{
+    private static final int REFRESH_INTERVAL = 500; // milliseconds
+    // the queries per minute is measured over this much time, so it follows changes in speed
+    private static final long RATE_WINDOW = 60000;
+    
+    private final JProgressBar bar;
+    private final JLabel queryCount;
+    private final JLabel rowCount;
+    private final JLabel rate;
+    private final JLabel timeLeft;
+    private final Timer refreshTimer;
+    private final ArrayDeque<long[]> samples; // {time, queries finished} at each refresh
+    private QueryingAutomation watching;
+    
+    public ProgressPanel(){
+        super();
+        setLayout(new GridLayout(5, 1));
+        
+        bar = new JProgressBar();
+        bar.setStringPainted(true);
+        add(bar);
+        queryCount = new JLabel();
+        add(queryCount);
+        rowCount = new JLabel();
+        add(rowCount);
+        rate = new JLabel();
+        add(rate);
+        timeLeft = new JLabel();
+        add(timeLeft);
+        
+        samples = new ArrayDeque<>();
+        watching = null;
+        refreshTimer = new Timer(REFRESH_INTERVAL, (e)->refresh());
+        refreshTimer.setCoalesce(true);
+        clearLabels();
+    }
+    
+    /**
+     * Starts showing the progress of the given automation.
+     * Call this from the event dispatch thread.
+     * 
+     * @param aa the automation to watch
+     */
+    public void watch(QueryingAutomation aa){
+        watching = aa;
+        samples.clear();
+        clearLabels();
+        refreshTimer.start();
+    }
+    
+    /**
+     * Stops checking the automation, after showing
+     * its progress one last time.
+     * Call this from the event dispatch thread.
+     */
+    public void stop(){
+        refreshTimer.stop();
+        if(watching != null){
+            refresh();
+        }
+        timeLeft.setText("Done");
+    }
+    
+    private void clearLabels(){
+        bar.setIndeterminate(false);
+        bar.setValue(0);
+        bar.setString("Starting...");
+        queryCount.setText("Queries: -");
+        rowCount.setText("Rows read: -");
+        rate.setText("Queries per minute: -");
+        timeLeft.setText("Time remaining: -");
+    }
+    
+    private void refresh(){
+        QueryQueue queue = watching.getQueryQueue();
+        if(queue == null){
+            // the automation hasn't been given its queries yet
+            return;
+        }
+        RunMetrics metrics = (watching instanceof AbstractQueryGatherAutomation)
+            ? ((AbstractQueryGatherAutomation)watching).getMetrics()
+            : null;
+        
+        int total = queue.getTotal();
+        int completed = queue.getCompleted();
+        int failed = queue.getFailed();
+        int skipped = queue.getSkipped();
+        int finished = completed + failed + skipped;
+        
+        if(total == -1){
+            bar.setIndeterminate(true);
+            bar.setString(finished + " queries done");
+        } else {
+            bar.setIndeterminate(false);
+            bar.setMaximum(Math.max(total, 1));
+            bar.setValue(finished);
+            bar.setString(String.format("%d / %d", finished, total));
+        }
+        
+        StringBuilder counts = new StringBuilder();
+        counts.append(String.format("Queries: %d completed, %d failed", completed, failed));
+        if(skipped > 0){
+            counts.append(String.format(", %d skipped", skipped));
+        }
+        queryCount.setText(counts.toString());
+        if(metrics != null){
+            rowCount.setText("Rows read: " + metrics.getRows());
+        }
+        
+        double perMinute = updateRate(completed + failed);
+        rate.setText(String.format("Queries per minute: %.1f", perMinute));
+        if(total == -1){
+            timeLeft.setText("Time remaining: unknown, since the queries are being streamed");
+        } else if(perMinute == 0){
+            timeLeft.setText("Time remaining: -");
+        } else {
+            long millisLeft = (long)((total - finished) / perMinute * 60000);
+            timeLeft.setText("Time remaining: " + formatDuration(millisLeft));
+        }
+    }
+    
+    /**
+     * Records how many queries have been run so far,
+     * then computes how fast they have been run recently.
+     * Skipped queries don't count, since they take no time.
+     * 
+     * @param ran the number of queries which have been completed or failed
+     * @return the number of queries run per minute over the last RATE_WINDOW milliseconds
+     */
+    private double updateRate(int ran){
+        long now = System.currentTimeMillis();
+        samples.addLast(new long[]{now, ran});
+        while(samples.size() > 2 && now - samples.getFirst()[0] > RATE_WINDOW){
+            samples.removeFirst();
+        }
+        long[] oldest = samples.getFirst();
+        long elapsed = now - oldest[0];
+        return (elapsed == 0) ? 0 : (ran - oldest[1]) * 60000.0 / elapsed;
+    }
+    
+    private static String formatDuration(long millis){
+        long seconds = millis / 1000;
+        String ret;
+        if(seconds >= 3600){
+            ret = String.format("%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+        } else if(seconds >= 60){
+            ret = String.format("%dm %02ds", seconds / 60, seconds % 60);
+        } else {
+            ret = seconds + "s";
+        }
+        return ret;
+    }
+}
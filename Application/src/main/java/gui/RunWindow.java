@@ -2,15 +2,24 @@ package gui;
 
 import guiComponents.ScrollableTextDisplay;
 import automationTools.AbstractAutomation;
+import automationTools.AbstractQueryGatherAutomation;
+import automationTools.QueryJournal;
 import automationTools.QueryingAutomation;
 import csv.CsvFile;
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JButton;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import logging.Logger;
-import org.openqa.selenium.WebDriver;
+import util.Browser;
+import util.LaunchProfile;
 
 /**
  *
@@ -18,13 +27,20 @@ import org.openqa.selenium.WebDriver;
  */
 public class RunWindow extends Page{
     private final ScrollableTextDisplay text;
+    private final ProgressPanel progress;
     
     public RunWindow(ApplicationPane app) {
         super(app);
         
         setLayout(new BorderLayout());
         
-        add(new JLabel("Please wait while the automation runs..."), BorderLayout.PAGE_START);
+        JPanel top = new JPanel();
+        top.setLayout(new BorderLayout());
+        top.add(new JLabel("Please wait while the automation runs..."), BorderLayout.PAGE_START);
+        progress = new ProgressPanel();
+        progress.setVisible(false);
+        top.add(progress, BorderLayout.CENTER);
+        add(top, BorderLayout.PAGE_START);
         
         text = new ScrollableTextDisplay("***Program output will appear here***\n");
         text.setBackground(Color.red);
@@ -49,7 +65,7 @@ public class RunWindow extends Page{
         add(bottom, BorderLayout.PAGE_END);
     }
     
-    public final void run(Class<? extends AbstractAutomation> aClass, CsvFile inputFile, Class<? extends WebDriver> driverClass){
+    public final void run(Class<? extends AbstractAutomation> aClass, CsvFile inputFile, File inputPath, Browser browser, LaunchProfile profile){
         new Thread(){
             @Override
             public void run(){
@@ -60,15 +76,88 @@ public class RunWindow extends Page{
                     Logger.addMessageListener(text);
                     
                     if(aa instanceof QueryingAutomation){
-                        ((QueryingAutomation)aa).setQueryFile(inputFile);
+                        QueryingAutomation qa = (QueryingAutomation)aa;
+                        qa.setQueryFile(inputFile);
+                        SwingUtilities.invokeLater(()->{
+                            progress.setVisible(true);
+                            progress.watch(qa);
+                        });
+                    } else {
+                        SwingUtilities.invokeLater(()->progress.setVisible(false));
                     }
+                    QueryJournal journal = null;
+                    if(aa instanceof AbstractQueryGatherAutomation){
+                        journal = attachJournal((AbstractQueryGatherAutomation)aa, inputPath);
+                    }
+                    
+                    aa.run(browser, profile, getApp().getWebDriverLoader().getSessionPool());
                     
-                    aa.run(driverClass);
+                    if(aa instanceof AbstractQueryGatherAutomation){
+                        ((AbstractQueryGatherAutomation)aa).getMetrics().writeReport(getApp().getResources(), aa.getName());
+                    }
+                    if(journal != null){
+                        journal.deleteIfFinished();
+                    }
                 } catch (Exception ex){
                     Logger.logError("RunWindow.run", ex);
                 }
                 Logger.removeMessageListener(text);
+                SwingUtilities.invokeLater(progress::stop);
             }
         }.start();
     }
+    
+    /**
+     * Gives the automation a journal to record its progress in.
+     * If the last run of the automation on the same input file didn't finish,
+     * asks the user if they want to resume it.
+     * The output file isn't chosen until the run is done,
+     * so the journal can't belong to it, but it won't be shared
+     * with command line runs, which always have one.
+     * 
+     * @param aa the automation to attach a journal to
+     * @param inputPath the file the queries were read from, or null if there isn't one
+     * @return the journal, or null if it cannot be read
+     */
+    private QueryJournal attachJournal(AbstractQueryGatherAutomation aa, File inputPath){
+        try {
+            QueryJournal journal = new QueryJournal(getApp().getResources().getJournalPath(QueryJournal.getName(aa.getName(), (inputPath == null) ? null : inputPath.toPath(), null)));
+            boolean resume = journal.canResume() && askToResume(aa.getName());
+            aa.setJournal(journal, resume);
+            return journal;
+        } catch (IOException ex) {
+            Logger.logError("RunWindow.attachJournal", "Cannot record progress for this run:");
+            Logger.logError("RunWindow.attachJournal", ex);
+            return null;
+        }
+    }
+    
+    /**
+     * Asks the user if they want to resume the last run of an automation.
+     * This is called from the thread running the automation,
+     * so the dialog is shown on the event dispatch thread,
+     * and this waits for the answer.
+     * 
+     * @param automationName the name of the automation
+     * @return whether or not the user wants to resume. If they can't be asked, this is false.
+     */
+    private boolean askToResume(String automationName){
+        AtomicBoolean resume = new AtomicBoolean(false);
+        try {
+            SwingUtilities.invokeAndWait(()->{
+                resume.set(JOptionPane.showConfirmDialog(
+                    this,
+                    "The last run of " + automationName + " on this file did not finish. Do you want to skip the queries it already ran?",
+                    "Resume previous run?",
+                    JOptionPane.YES_NO_OPTION
+                ) == JOptionPane.YES_OPTION);
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException ex) {
+            Logger.logError("RunWindow.askToResume", "Couldn't ask whether to resume, so starting over:");
+            Logger.logError("RunWindow.askToResume", ex);
+        }
+        return resume.get();
+    }
 }
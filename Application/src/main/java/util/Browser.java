@@ -1,24 +1,38 @@
 package util;
 
+import java.util.HashMap;
+import logging.Logger;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
 /**
  *
  * @author Matt
  */
 public enum Browser {
-    CHROME("Google Chrome", "https://chromedriver.chromium.org/downloads", "webdriver.chrome.driver", "chromedriver"), 
-    FIRE_FOX("Firefox", "https://github.com/mozilla/geckodriver/releases", "webdriver.gecko.driver", "geckodriver"),
-    EDGE("Microsoft Edge", "https://developer.microsoft.com/en-us/microsoft-edge/tools/webdriver/#downloads", "webdriver.edge.driver", "msedgedriver");
+    CHROME("Google Chrome", "https://chromedriver.chromium.org/downloads", "webdriver.chrome.driver", "chromedriver", ChromeDriver.class), 
+    FIRE_FOX("Firefox", "https://github.com/mozilla/geckodriver/releases", "webdriver.gecko.driver", "geckodriver", FirefoxDriver.class),
+    EDGE("Microsoft Edge", "https://developer.microsoft.com/en-us/microsoft-edge/tools/webdriver/#downloads", "webdriver.edge.driver", "msedgedriver", EdgeDriver.class);
     
     private final String name;
     private final String driverLink;
     private final String driverEnvVar;
     private final String driverFileName;
+    private final Class<? extends WebDriver> driverClass;
     
-    private Browser(String n, String driverURL, String driverEnv, String fileName){
+    private Browser(String n, String driverURL, String driverEnv, String fileName, Class<? extends WebDriver> driverClass){
         name = n;
         driverLink = driverURL;
         driverEnvVar = driverEnv;
         driverFileName = fileName;
+        this.driverClass = driverClass;
     }
     
     /**
@@ -52,4 +66,103 @@ public enum Browser {
     public String getDriverFileName(){
         return driverFileName;
     }
+    
+    /**
+     * 
+     * @return the class of the WebDriver used to automate this browser
+     */
+    public Class<? extends WebDriver> getDriverClass(){
+        return driverClass;
+    }
+    
+    /**
+     * Launches this browser as described by the given profile.
+     * Not every browser supports every setting: Chrome cannot
+     * block fonts, and Edge only supports the window size.
+     * Unsupported settings are logged and ignored.
+     * 
+     * @param profile how to launch the browser
+     * @return a WebDriver for a new instance of this browser
+     */
+    public WebDriver createDriver(LaunchProfile profile){
+        WebDriver ret;
+        switch(this){
+            case CHROME:
+                ret = new ChromeDriver(toChromeOptions(profile));
+                break;
+            case FIRE_FOX:
+                ret = new FirefoxDriver(toFirefoxOptions(profile));
+                break;
+            case EDGE:
+                if(profile.isHeadless() || profile.blocksImages() || profile.blocksStylesheets() || profile.blocksFonts() || profile.disablesExtensions()){
+                    Logger.log("Browser.createDriver", "Edge only supports setting the window size, so ignoring the rest of the launch profile: " + profile);
+                }
+                ret = new EdgeDriver(new EdgeOptions());
+                break;
+            default:
+                throw new UnsupportedOperationException("No launch options for " + name);
+        }
+        
+        // Firefox and Edge don't take the window size as an option, and Chrome's option is ignored by some versions
+        if(profile.hasWindowSize()){
+            try {
+                ret.manage().window().setSize(new Dimension(profile.getWindowWidth(), profile.getWindowHeight()));
+            } catch(WebDriverException ex){
+                Logger.logError("Browser.createDriver", "Failed to set window size:");
+                Logger.logError("Browser.createDriver", ex);
+            }
+        }
+        return ret;
+    }
+    
+    private static ChromeOptions toChromeOptions(LaunchProfile profile){
+        ChromeOptions options = new ChromeOptions();
+        if(profile.isHeadless()){
+            options.addArguments("--headless", "--disable-gpu");
+        }
+        if(profile.hasWindowSize()){
+            options.addArguments("--window-size=" + profile.getWindowWidth() + "," + profile.getWindowHeight());
+        }
+        if(profile.disablesExtensions()){
+            options.addArguments("--disable-extensions");
+        }
+        
+        // 2 means "block" for Chrome's content settings
+        HashMap<String, Object> prefs = new HashMap<>();
+        if(profile.blocksImages()){
+            prefs.put("profile.managed_default_content_settings.images", 2);
+        }
+        if(profile.blocksStylesheets()){
+            prefs.put("profile.managed_default_content_settings.stylesheets", 2);
+        }
+        if(profile.blocksFonts()){
+            Logger.log("Browser.toChromeOptions", "Chrome cannot block fonts, so they will still be loaded");
+        }
+        if(!prefs.isEmpty()){
+            options.setExperimentalOption("prefs", prefs);
+        }
+        return options;
+    }
+    
+    private static FirefoxOptions toFirefoxOptions(LaunchProfile profile){
+        FirefoxOptions options = new FirefoxOptions();
+        if(profile.isHeadless()){
+            options.addArguments("-headless");
+        }
+        // 2 means "block" for Firefox's permissions
+        if(profile.blocksImages()){
+            options.addPreference("permissions.default.image", 2);
+        }
+        if(profile.blocksStylesheets()){
+            options.addPreference("permissions.default.stylesheet", 2);
+        }
+        if(profile.blocksFonts()){
+            // pages use the default fonts instead of downloading their own
+            options.addPreference("browser.display.use_document_fonts", 0);
+        }
+        if(profile.disablesExtensions()){
+            options.addPreference("extensions.enabledScopes", 0);
+        }
+        return options;
+    }
 }
@@ -1,21 +1,115 @@
 package util;
 
 import csv.CsvFile;
+import csv.CsvLayout;
 import csv.CsvRow;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import logging.Logger;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
 
 /**
- *
+ * An HtmlTable is either backed by a WebElement,
+ * in which case it is read from the browser whenever it is
+ * converted, or by the text already parsed out of
+ * a page's source by HtmlTableParser.
+ * 
+ * @see HtmlTableParser
  * @author Matt
  */
 public class HtmlTable {
+    /*
+    Reads the text of every header and cell in the table
+    passed as arguments[0], and returns it as
+    [[header, ...], [[cell, ...], ...]].
+    Rows without any td elements are skipped, the same as toCsvFile does.
+    */
+    private static final String EXTRACT_SCRIPT = String.join("\n",
+        "var table = arguments[0];",
+        "var text = function(e){ return (e.innerText || e.textContent || '').trim(); };",
+        "var headers = [];",
+        "var ths = table.getElementsByTagName('th');",
+        "for(var i = 0; i < ths.length; i++){ headers.push(text(ths[i])); }",
+        "var rows = [];",
+        "var trs = table.getElementsByTagName('tr');",
+        "for(var i = 0; i < trs.length; i++){",
+        "    var tds = trs[i].getElementsByTagName('td');",
+        "    if(tds.length === 0){ continue; }",
+        "    var row = [];",
+        "    for(var j = 0; j < tds.length; j++){ row.push(text(tds[j])); }",
+        "    rows.push(row);",
+        "}",
+        "return [headers, rows];"
+    );
+    
     private final WebElement table;
     
+    // only used when this was parsed from HTML
+    private final List<String> parsedHeaders;
+    private final List<String[]> parsedRows;
+    
     public HtmlTable(WebElement t){
         table = t;
+        parsedHeaders = null;
+        parsedRows = null;
+    }
+    
+    /**
+     * Used by HtmlTableParser to create
+     * a table which doesn't need a browser.
+     * 
+     * @param headers the text of each th in the table
+     * @param rows the text of each td in each row containing td elements
+     */
+    HtmlTable(List<String> headers, List<String[]> rows){
+        table = null;
+        parsedHeaders = headers;
+        parsedRows = rows;
+    }
+    
+    /**
+     * Reads a table out of a page's source, such as
+     * the result of WebDriver.getPageSource(). This only
+     * asks the browser for one thing, rather than every
+     * cell in the table, so it is much faster for large tables.
+     * 
+     * @param html the page source to read the table from
+     * @param attrName the lower case name of an attribute to identify the table by
+     * @param attrValue the value of that attribute
+     * @return the first table in the page with the given attribute value, or null if there is no such table
+     */
+    public static HtmlTable fromPageSource(String html, String attrName, String attrValue){
+        return HtmlTableParser.parse(html, attrName, attrValue);
+    }
+    
+    /**
+     * 
+     * @return whether or not this table was read from a page's source,
+     * rather than a WebElement
+     */
+    public boolean isParsed(){
+        return table == null;
+    }
+    
+    /**
+     * 
+     * @return the text of each header in this table
+     */
+    public List<String> getHeaders(){
+        List<String> ret;
+        if(isParsed()){
+            ret = Collections.unmodifiableList(parsedHeaders);
+        } else {
+            ret = table.findElements(By.tagName("th")).stream().map((header)->header.getText()).collect(Collectors.toList());
+        }
+        return ret;
     }
     
     /**
@@ -28,10 +122,14 @@ public class HtmlTable {
      */
     public int getColumnIdx(String colName){
         int ret = -1;
-        List<WebElement> columns = table.findElements(By.tagName("th"));
-        for(int i = 0; i < columns.size() && ret == -1; i++){
-            if(columns.get(i).getText().equals(colName)){
-                ret = i;
+        if(isParsed()){
+            ret = parsedHeaders.indexOf(colName);
+        } else {
+            List<WebElement> columns = table.findElements(By.tagName("th"));
+            for(int i = 0; i < columns.size() && ret == -1; i++){
+                if(columns.get(i).getText().equals(colName)){
+                    ret = i;
+                }
             }
         }
         return ret;
@@ -40,10 +138,95 @@ public class HtmlTable {
     /**
      * Converts this HTML table into a CsvFile object.
      * 
+     * If the browser can run JavaScript, the whole table
+     * is read with a single script, rather than asking the
+     * WebDriver for each row and cell one at a time, which
+     * takes thousands of requests for large tables.
+     * Otherwise, falls back to reading each element.
+     * Tables parsed from a page's source don't need the browser at all.
+     * 
      * @return 
      */
     public CsvFile toCsvFile(){
-        boolean debug = true;
+        if(isParsed()){
+            return toCsvFile(parsedHeaders, parsedRows);
+        }
+        
+        CsvFile ret = null;
+        JavascriptExecutor js = getJavascriptExecutor();
+        if(js != null){
+            try {
+                ret = extractWithScript(js);
+            } catch(WebDriverException | ClassCastException ex){
+                Logger.logError("HtmlTable.toCsvFile", "Failed to read table using JavaScript, so reading it one element at a time instead");
+                Logger.logError("HtmlTable.toCsvFile", ex);
+            }
+        }
+        if(ret == null){
+            ret = extractByElement();
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @return the JavascriptExecutor for the browser containing this table,
+     * or null if it cannot run scripts
+     */
+    private JavascriptExecutor getJavascriptExecutor(){
+        JavascriptExecutor ret = null;
+        if(table instanceof WrapsDriver){
+            WebDriver driver = ((WrapsDriver)table).getWrappedDriver();
+            if(driver instanceof JavascriptExecutor){
+                ret = (JavascriptExecutor)driver;
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Reads the table using one call to EXTRACT_SCRIPT.
+     * 
+     * @param js the executor to run the script in
+     * @return the table's contents
+     */
+    @SuppressWarnings("unchecked")
+    private CsvFile extractWithScript(JavascriptExecutor js){
+        List<Object> result = (List<Object>)js.executeScript(EXTRACT_SCRIPT, table);
+        List<Object> headers = (List<Object>)result.get(0);
+        List<Object> rows = (List<Object>)result.get(1);
+        
+        ArrayList<String[]> cells = new ArrayList<>(rows.size());
+        rows.forEach((row)->{
+            cells.add(((List<Object>)row).stream().map((cell)->(cell == null) ? "" : cell.toString()).toArray(String[]::new));
+        });
+        
+        return toCsvFile(headers.stream().map(String::valueOf).collect(Collectors.toList()), cells);
+    }
+    
+    /**
+     * Converts text read from a table into a CsvFile.
+     * 
+     * @param headers the text of each header
+     * @param rows the text of each cell in each row
+     * @return a CsvFile containing the given headers and rows
+     */
+    private static CsvFile toCsvFile(List<String> headers, List<String[]> rows){
+        CsvFile ret = new CsvFile(CsvLayout.COLUMNS);
+        headers.forEach(ret::addHeader);
+        rows.forEach((row)->ret.addRow(new CsvRow(ret, row)));
+        return ret;
+    }
+    
+    /**
+     * Reads the table by asking the WebDriver for
+     * each row and cell. Much slower than extractWithScript,
+     * but doesn't need JavaScript.
+     * 
+     * @return the table's contents
+     */
+    private CsvFile extractByElement(){
+        boolean debug = false;
         
         CsvFile ret = new CsvFile();
         
@@ -0,0 +1,212 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import util.HtmlTokenizer.TokenType;
+
+/**
+ * The HtmlTableParser reads a table out of an HTML document,
+ * such as the page source of a WebDriver, without needing
+ * a browser. This makes reading a large table one request,
+ * rather than one request per cell.
+ * 
+ * It reads the same things HtmlTable does when reading
+ * from a WebElement: the text of every th in the table
+ * are the headers, and each tr containing td elements is a row.
+ * Tables nested inside of the table are read as part of the
+ * text of the cell they are in.
+ * 
+ * @author Matt Crow
+ */
+public class HtmlTableParser {
+    private final HtmlTokenizer tokenizer;
+    private final ArrayList<String> headers;
+    private final ArrayList<String[]> rows;
+    private ArrayList<String> currentRow;
+    private StringBuilder currentCell;
+    private boolean currentCellIsHeader;
+    
+    private HtmlTableParser(Reader in){
+        tokenizer = new HtmlTokenizer(in);
+        headers = new ArrayList<>();
+        rows = new ArrayList<>();
+        currentRow = null;
+        currentCell = null;
+        currentCellIsHeader = false;
+    }
+    
+    /**
+     * Reads the first table in the given HTML
+     * with the given attribute value. For example,
+     * parse(html, "border", "1") reads the same table
+     * as By.xpath("//table[@border=1]").
+     * 
+     * @param html the HTML to read the table from
+     * @param attrName the lower case name of the attribute to look for, or null to read the first table
+     * @param attrValue the value the attribute must have
+     * @return the table's contents, or null if no table matches
+     * @throws IOException if the reader throws an exception
+     */
+    public static HtmlTable parse(Reader html, String attrName, String attrValue) throws IOException{
+        HtmlTableParser parser = new HtmlTableParser(html);
+        return (parser.findTable(attrName, attrValue)) ? parser.readTable() : null;
+    }
+    
+    /**
+     * @see HtmlTableParser#parse(java.io.Reader, java.lang.String, java.lang.String)
+     * @param html
+     * @param attrName
+     * @param attrValue
+     * @return
+     */
+    public static HtmlTable parse(String html, String attrName, String attrValue){
+        HtmlTable ret;
+        try {
+            ret = parse(new StringReader(html), attrName, attrValue);
+        } catch(IOException ex){
+            // StringReader doesn't throw IOExceptions, but just in case
+            throw new UncheckedIOException(ex);
+        }
+        return ret;
+    }
+    
+    /**
+     * Skips tokens until it reads the start
+     * tag of the table to parse.
+     * 
+     * @return whether or not the table was found
+     */
+    private boolean findTable(String attrName, String attrValue) throws IOException{
+        boolean found = false;
+        TokenType type = tokenizer.next();
+        while(!found && type != TokenType.END_OF_INPUT){
+            found = type == TokenType.START_TAG
+                && "table".equals(tokenizer.getTagName())
+                && (attrName == null || attrValue.equals(tokenizer.getAttribute(attrName)));
+            if(!found){
+                type = tokenizer.next();
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Reads the table whose start tag was just read,
+     * up to and including its end tag.
+     */
+    private HtmlTable readTable() throws IOException{
+        int nestedTables = 0;
+        boolean done = false;
+        TokenType type = tokenizer.next();
+        String tag;
+        while(!done && type != TokenType.END_OF_INPUT){
+            tag = tokenizer.getTagName();
+            if(type == TokenType.TEXT){
+                appendText(tokenizer.getText());
+            } else if(type == TokenType.START_TAG && "br".equals(tag)){
+                if(currentCell != null){
+                    currentCell.append('\n');
+                }
+            } else if(type == TokenType.START_TAG && "table".equals(tag)){
+                nestedTables++;
+                appendText(" ");
+            } else if(type == TokenType.END_TAG && "table".equals(tag)){
+                if(nestedTables == 0){
+                    done = true;
+                } else {
+                    nestedTables--;
+                    appendText(" ");
+                }
+            } else if(nestedTables > 0){
+                // separate the cells of nested tables
+                if(isCellOrRow(tag)){
+                    appendText(" ");
+                }
+            } else if(type == TokenType.START_TAG && "tr".equals(tag)){
+                endRow();
+                currentRow = new ArrayList<>();
+            } else if(type == TokenType.START_TAG && ("td".equals(tag) || "th".equals(tag))){
+                // cells don't need end tags
+                endCell();
+                currentCell = new StringBuilder();
+                currentCellIsHeader = "th".equals(tag);
+            } else if(type == TokenType.END_TAG && ("td".equals(tag) || "th".equals(tag))){
+                endCell();
+            } else if(type == TokenType.END_TAG && "tr".equals(tag)){
+                endRow();
+            }
+            if(!done){
+                type = tokenizer.next();
+            }
+        }
+        endRow();
+        return new HtmlTable(headers, rows);
+    }
+    
+    private static boolean isCellOrRow(String tag){
+        return "td".equals(tag) || "th".equals(tag) || "tr".equals(tag);
+    }
+    
+    /**
+     * Adds text to the current cell, collapsing whitespace
+     * the way browsers do. Text outside of cells is ignored.
+     */
+    private void appendText(String text){
+        if(currentCell == null){
+            return;
+        }
+        char c;
+        for(int i = 0; i < text.length(); i++){
+            c = text.charAt(i);
+            if(Character.isWhitespace(c)){
+                if(currentCell.length() != 0 && !Character.isWhitespace(currentCell.charAt(currentCell.length() - 1))){
+                    currentCell.append(' ');
+                }
+            } else {
+                currentCell.append(c);
+            }
+        }
+    }
+    
+    private void endCell(){
+        if(currentCell == null){
+            return;
+        }
+        // line breaks come from br tags, so keep them, but not the spaces around them
+        String text = currentCell.toString().replaceAll(" *\n *", "\n").trim();
+        if(currentCellIsHeader){
+            headers.add(text);
+        } else {
+            if(currentRow == null){
+                // a td outside of any tr
+                currentRow = new ArrayList<>();
+            }
+            currentRow.add(text);
+        }
+        currentCell = null;
+    }
+    
+    private void endRow(){
+        endCell();
+        if(currentRow != null && !currentRow.isEmpty()){
+            rows.add(currentRow.toArray(new String[currentRow.size()]));
+        }
+        currentRow = null;
+    }
+    
+    public static void main(String[] args) throws IOException{
+        HtmlTable table;
+        try(Reader in = new InputStreamReader(HtmlTableParser.class.getResourceAsStream("/psReportsResult.html"), StandardCharsets.UTF_8)){
+            table = parse(in, "border", "1");
+        }
+        System.out.println(table.getHeaders());
+        System.out.println(table.toCsvFile().toString());
+        System.out.println("\"PO Balance\" is column " + table.getColumnIdx("PO Balance"));
+    }
+}
@@ -0,0 +1,411 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * The HtmlTokenizer splits HTML into start tags,
+ * end tags, and text, one token at a time, without
+ * building a document tree. It is lenient, like
+ * browsers are: unknown markup is skipped rather than
+ * causing an error.
+ * 
+ * Comments, doctypes, and the contents of script and
+ * style elements are skipped. Character references
+ * in text and attribute values are decoded.
+ * Tag and attribute names are converted to lower case.
+ * 
+ * @author Matt Crow
+ */
+public class HtmlTokenizer {
+    public static enum TokenType {
+        START_TAG,
+        END_TAG,
+        TEXT,
+        END_OF_INPUT
+    }
+    
+    private static final int BUFFER_SIZE = 8192;
+    private static final HashMap<String, Character> ENTITIES = new HashMap<>();
+    static {
+        ENTITIES.put("amp", '&');
+        ENTITIES.put("lt", '<');
+        ENTITIES.put("gt", '>');
+        ENTITIES.put("quot", '"');
+        ENTITIES.put("apos", '\'');
+        ENTITIES.put("nbsp", '\u00a0');
+        ENTITIES.put("copy", '\u00a9');
+        ENTITIES.put("reg", '\u00ae');
+        ENTITIES.put("ndash", '\u2013');
+        ENTITIES.put("mdash", '\u2014');
+    }
+    
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int len;
+    
+    private TokenType type;
+    private String tagName;
+    private final HashMap<String, String> attributes;
+    private boolean selfClosing;
+    private final StringBuilder text;
+    private String skipUntilEndOf; // script or style, whose contents aren't HTML
+    
+    /**
+     * 
+     * @param reader the HTML to tokenize. This buffers its input,
+     * so there is no need to wrap the reader in a BufferedReader.
+     */
+    public HtmlTokenizer(Reader reader){
+        in = reader;
+        buffer = new char[BUFFER_SIZE];
+        pos = 0;
+        len = 0;
+        type = null;
+        tagName = null;
+        attributes = new HashMap<>();
+        selfClosing = false;
+        text = new StringBuilder();
+        skipUntilEndOf = null;
+    }
+    
+    private boolean fill() throws IOException{
+        if(pos < len){
+            return true;
+        }
+        int read = in.read(buffer, 0, buffer.length);
+        while(read == 0){
+            read = in.read(buffer, 0, buffer.length);
+        }
+        pos = 0;
+        len = Math.max(read, 0);
+        return read > 0;
+    }
+    
+    /**
+     * 
+     * @return the next character, without consuming it, or -1 if there are none left
+     * @throws IOException if the underlying reader throws an exception
+     */
+    private int peek() throws IOException{
+        return (fill()) ? buffer[pos] : -1;
+    }
+    
+    private int read() throws IOException{
+        return (fill()) ? buffer[pos++] : -1;
+    }
+    
+    /**
+     * Reads the next token. Use getType and the
+     * other getters to find out what was read.
+     * 
+     * @return the type of token read
+     * @throws IOException if the underlying reader throws an exception
+     */
+    public TokenType next() throws IOException{
+        tagName = null;
+        attributes.clear();
+        selfClosing = false;
+        text.setLength(0);
+        
+        if(skipUntilEndOf != null){
+            String skipped = skipUntilEndOf;
+            skipUntilEndOf = null;
+            skipRawText(skipped);
+            type = TokenType.END_TAG;
+            tagName = skipped;
+            return type;
+        }
+        
+        int c = peek();
+        while(c == '<' && readMarkup()){
+            if(type != null){
+                return type;
+            }
+            c = peek();
+        }
+        if(c == -1){
+            type = TokenType.END_OF_INPUT;
+            return type;
+        }
+        
+        // text, up to the next tag
+        StringBuilder raw = new StringBuilder();
+        if(c == '<'){
+            // a '<' which doesn't start markup
+            raw.append((char)read());
+        }
+        c = peek();
+        while(c != -1 && c != '<'){
+            raw.append((char)read());
+            c = peek();
+        }
+        decodeInto(raw, text);
+        type = TokenType.TEXT;
+        return type;
+    }
+    
+    /**
+     * Reads markup starting at a '<'.
+     * Sets type if a tag was read, or null if
+     * the markup was skipped, such as a comment.
+     * 
+     * @return false if the '<' doesn't start any markup, so it is text
+     * @throws IOException if the underlying reader throws an exception
+     */
+    private boolean readMarkup() throws IOException{
+        type = null;
+        if(pos + 1 >= len){
+            // make sure the character after '<' is in the buffer
+            compact();
+        }
+        char next = (pos + 1 < len) ? buffer[pos + 1] : '\0';
+        if(next == '!' || next == '?'){
+            pos++;
+            skipDeclaration();
+        } else if(next == '/'){
+            pos += 2;
+            type = TokenType.END_TAG;
+            tagName = readName();
+            skipPast('>');
+        } else if(Character.isLetter(next)){
+            pos++;
+            type = TokenType.START_TAG;
+            tagName = readName();
+            readAttributes();
+            if("script".equals(tagName) || "style".equals(tagName)){
+                skipUntilEndOf = tagName;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Moves any unread characters to the front
+     * of the buffer, then tries to fill the rest.
+     */
+    private void compact() throws IOException{
+        int remaining = len - pos;
+        System.arraycopy(buffer, pos, buffer, 0, remaining);
+        pos = 0;
+        len = remaining;
+        int read = in.read(buffer, len, buffer.length - len);
+        if(read > 0){
+            len += read;
+        }
+    }
+    
+    private void skipDeclaration() throws IOException{
+        // pos is at '!' or '?'
+        pos++;
+        if(peek() == '-'){
+            read();
+            if(peek() == '-'){
+                read();
+                skipComment();
+                return;
+            }
+        }
+        skipPast('>');
+    }
+    
+    private void skipComment() throws IOException{
+        int dashes = 0;
+        int c = read();
+        while(c != -1 && !(c == '>' && dashes >= 2)){
+            dashes = (c == '-') ? dashes + 1 : 0;
+            c = read();
+        }
+    }
+    
+    private void skipPast(char end) throws IOException{
+        int c = read();
+        while(c != -1 && c != end){
+            c = read();
+        }
+    }
+    
+    /**
+     * Skips the contents of a script or style element,
+     * and its end tag.
+     */
+    private void skipRawText(String name) throws IOException{
+        String endTag = "</" + name;
+        int matched = 0;
+        int c = read();
+        while(c != -1 && matched < endTag.length()){
+            if(Character.toLowerCase((char)c) == endTag.charAt(matched)){
+                matched++;
+            } else {
+                matched = (c == '<') ? 1 : 0;
+            }
+            if(matched < endTag.length()){
+                c = read();
+            }
+        }
+        skipPast('>');
+    }
+    
+    private String readName() throws IOException{
+        StringBuilder b = new StringBuilder();
+        int c = peek();
+        while(c != -1 && !Character.isWhitespace(c) && c != '>' && c != '/' && c != '='){
+            b.append(Character.toLowerCase((char)read()));
+            c = peek();
+        }
+        return b.toString();
+    }
+    
+    private void skipWhitespace() throws IOException{
+        int c = peek();
+        while(c != -1 && Character.isWhitespace(c)){
+            read();
+            c = peek();
+        }
+    }
+    
+    private void readAttributes() throws IOException{
+        skipWhitespace();
+        int c = peek();
+        while(c != -1 && c != '>'){
+            if(c == '/'){
+                read();
+                selfClosing = peek() == '>';
+            } else {
+                String name = readName();
+                String value = "";
+                skipWhitespace();
+                if(peek() == '='){
+                    read();
+                    skipWhitespace();
+                    value = readAttributeValue();
+                }
+                if(name.isEmpty()){
+                    // junk such as a stray quote
+                    read();
+                } else {
+                    attributes.putIfAbsent(name, value);
+                }
+            }
+            skipWhitespace();
+            c = peek();
+        }
+        read(); // '>'
+    }
+    
+    private String readAttributeValue() throws IOException{
+        StringBuilder raw = new StringBuilder();
+        int quote = peek();
+        int c;
+        if(quote == '"' || quote == '\''){
+            read();
+            c = read();
+            while(c != -1 && c != quote){
+                raw.append((char)c);
+                c = read();
+            }
+        } else {
+            c = peek();
+            while(c != -1 && !Character.isWhitespace(c) && c != '>'){
+                raw.append((char)read());
+                c = peek();
+            }
+        }
+        StringBuilder ret = new StringBuilder();
+        decodeInto(raw, ret);
+        return ret.toString();
+    }
+    
+    /**
+     * Decodes character references, such as &amp;amp;
+     * and &amp;#160;, in raw, and adds the result to dest.
+     * References this doesn't know are left alone.
+     */
+    private static void decodeInto(CharSequence raw, StringBuilder dest){
+        int i = 0;
+        int semi;
+        char c;
+        while(i < raw.length()){
+            c = raw.charAt(i);
+            semi = (c == '&') ? indexOf(raw, ';', i + 1, i + 10) : -1;
+            if(semi == -1){
+                dest.append(c);
+                i++;
+                continue;
+            }
+            String ref = raw.subSequence(i + 1, semi).toString();
+            Character decoded;
+            try {
+                if(ref.startsWith("#x") || ref.startsWith("#X")){
+                    decoded = (char)Integer.parseInt(ref.substring(2), 16);
+                } else if(ref.startsWith("#")){
+                    decoded = (char)Integer.parseInt(ref.substring(1));
+                } else {
+                    decoded = ENTITIES.get(ref.toLowerCase(Locale.ROOT));
+                }
+            } catch(NumberFormatException ex){
+                decoded = null;
+            }
+            if(decoded == null){
+                dest.append(c);
+                i++;
+            } else {
+                // WebElement.getText turns non-breaking spaces into spaces, so this should too
+                dest.append((decoded == '\u00a0') ? ' ' : decoded.charValue());
+                i = semi + 1;
+            }
+        }
+    }
+    
+    private static int indexOf(CharSequence s, char c, int from, int to){
+        int ret = -1;
+        for(int i = from; i < s.length() && i < to && ret == -1; i++){
+            if(s.charAt(i) == c){
+                ret = i;
+            }
+        }
+        return ret;
+    }
+    
+    public TokenType getType(){
+        return type;
+    }
+    
+    /**
+     * 
+     * @return the lower case name of the tag just read, or null if the token isn't a tag
+     */
+    public String getTagName(){
+        return tagName;
+    }
+    
+    /**
+     * 
+     * @param name the lower case name of an attribute
+     * @return the value of that attribute on the start tag just read, or null if it doesn't have that attribute
+     */
+    public String getAttribute(String name){
+        return attributes.get(name);
+    }
+    
+    /**
+     * 
+     * @return whether or not the start tag just read ended with "/&gt;"
+     */
+    public boolean isSelfClosing(){
+        return selfClosing;
+    }
+    
+    /**
+     * 
+     * @return the decoded text just read, or an empty String if the token isn't text
+     */
+    public String getText(){
+        return text.toString();
+    }
+}
@@ -0,0 +1,284 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import logging.Logger;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * The HttpQueryClient submits forms directly over HTTP,
+ * without a browser, using the cookies of a browser which
+ * has already logged in to the site. This skips loading
+ * and rendering the form and result pages, so it is much
+ * faster than filling out forms in the browser, and many
+ * queries can be submitted at once.
+ * 
+ * Connections are kept alive and reused between requests:
+ * HttpURLConnection pools connections to each server, so long
+ * as each response is read to the end, which this does.
+ * The pool holds at most MAX_CONNECTIONS idle connections per
+ * server, unless the http.maxConnections system property is
+ * set before the first request.
+ * 
+ * Every method is thread safe. Requests are sent at the same
+ * time, except while postAndExpand is following an expand link.
+ * 
+ * @author Matt Crow
+ */
+public class HttpQueryClient {
+    public static final int MAX_CONNECTIONS = 32;
+    public static final int DEFAULT_TIMEOUT = 30000; // 30 seconds
+    static {
+        if(System.getProperty("http.maxConnections") == null){
+            // the default of 5 would close most connections when running many queries at once
+            System.setProperty("http.maxConnections", Integer.toString(MAX_CONNECTIONS));
+        }
+    }
+    
+    private final String cookieHeader;
+    private final String userAgent;
+    private int timeout;
+    
+    /**
+     * 
+     * @param cookieHeader the value of the Cookie header to send with each request, or null to not send cookies
+     * @param userAgent the value of the User-Agent header to send with each request, or null to use Java's
+     */
+    public HttpQueryClient(String cookieHeader, String userAgent){
+        this.cookieHeader = cookieHeader;
+        this.userAgent = userAgent;
+        timeout = DEFAULT_TIMEOUT;
+    }
+    
+    /**
+     * Creates a client which acts as the given browser,
+     * sending its cookies and user agent. The browser should
+     * already be on the site this will send requests to,
+     * since browsers only give the cookies for the current site.
+     * 
+     * @param driver the browser to copy cookies from
+     * @return a client which shares the browser's session
+     */
+    public static HttpQueryClient fromDriver(WebDriver driver){
+        Set<Cookie> cookies = driver.manage().getCookies();
+        String cookieHeader = cookies.stream().map((cookie)->cookie.getName() + "=" + cookie.getValue()).collect(Collectors.joining("; "));
+        String userAgent = null;
+        if(driver instanceof JavascriptExecutor){
+            try {
+                userAgent = String.valueOf(((JavascriptExecutor)driver).executeScript("return navigator.userAgent;"));
+            } catch(WebDriverException ex){
+                Logger.logError("HttpQueryClient.fromDriver", "Couldn't get the browser's user agent, so using Java's instead");
+            }
+        }
+        Logger.log("HttpQueryClient.fromDriver", "Copied " + cookies.size() + " cookies from the browser");
+        return new HttpQueryClient((cookieHeader.isEmpty()) ? null : cookieHeader, userAgent);
+    }
+    
+    /**
+     * 
+     * @param millis how long to wait to connect, and then for a response, in milliseconds
+     * @return this, for chaining purposes
+     */
+    public HttpQueryClient setTimeout(int millis){
+        if(millis < 0){
+            throw new IllegalArgumentException("Timeout cannot be negative: " + millis);
+        }
+        timeout = millis;
+        return this;
+    }
+    
+    public int getTimeout(){
+        return timeout;
+    }
+    
+    /**
+     * Submits a form to the given URL, the
+     * same way a browser would for a form
+     * with method="post".
+     * 
+     * @param url the form's action URL
+     * @param params the name and value of each input to submit
+     * @return the body of the response
+     * @throws IOException if the request fails, or the server responds with an error
+     */
+    public String post(String url, Map<String, String> params) throws IOException{
+        byte[] body = encodeForm(params).getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection conn = open(url);
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+        conn.setFixedLengthStreamingMode(body.length);
+        conn.getOutputStream().write(body);
+        conn.getOutputStream().close();
+        return readResponse(conn);
+    }
+    
+    /**
+     * Submits a form, then, if the response only has the first
+     * page of results, gets the page with all of them, like
+     * clicking the response's expand link would.
+     * 
+     * Sites like PSReports keep which results to expand in the
+     * session, rather than the link, so while a request is
+     * expanding, no other postAndExpand requests are sent
+     * with this client's session, or they could be expanded
+     * in its place.
+     * 
+     * @param url the form's action URL
+     * @param params the name and value of each input to submit
+     * @param expandPath the href of the link to every result, relative to url
+     * @return the body of the response with every result
+     * @throws IOException if either request fails, or the server responds with an error
+     */
+    public String postAndExpand(String url, Map<String, String> params, String expandPath) throws IOException{
+        String expandUrl;
+        try {
+            expandUrl = new URL(new URL(url), expandPath).toString();
+        } catch(MalformedURLException ex){
+            throw new IllegalArgumentException("Invalid expand link: " + expandPath, ex);
+        }
+        synchronized(this){
+            String html = post(url, params);
+            if(hasLink(html, expandPath)){
+                try {
+                    html = get(expandUrl);
+                } catch(IOException ex){
+                    throw new IOException("Failed to expand the results: " + ex.getMessage(), ex);
+                }
+            }
+            return html;
+        }
+    }
+    
+    /**
+     * 
+     * @param html a page
+     * @param href the exact href of a link
+     * @return whether or not the page has a link to href
+     */
+    private static boolean hasLink(String html, String href){
+        return Pattern.compile("href\\s*=\\s*[\"']?" + Pattern.quote(href) + "[\"'\\s>]", Pattern.CASE_INSENSITIVE).matcher(html).find();
+    }
+    
+    /**
+     * 
+     * @param url the URL to get
+     * @return the body of the response
+     * @throws IOException if the request fails, or the server responds with an error
+     */
+    public String get(String url) throws IOException{
+        HttpURLConnection conn = open(url);
+        conn.setRequestMethod("GET");
+        return readResponse(conn);
+    }
+    
+    private HttpURLConnection open(String url) throws IOException{
+        HttpURLConnection conn = (HttpURLConnection)new URL(url).openConnection();
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setUseCaches(false);
+        // a redirect usually means the session has expired, and is being sent to a login page
+        conn.setInstanceFollowRedirects(false);
+        if(cookieHeader != null){
+            conn.setRequestProperty("Cookie", cookieHeader);
+        }
+        if(userAgent != null){
+            conn.setRequestProperty("User-Agent", userAgent);
+        }
+        return conn;
+    }
+    
+    /**
+     * Reads the whole response, so the connection
+     * can be reused for the next request.
+     */
+    private static String readResponse(HttpURLConnection conn) throws IOException{
+        int status = conn.getResponseCode();
+        InputStream in = (status >= 400) ? conn.getErrorStream() : conn.getInputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if(in != null){
+            try {
+                byte[] buffer = new byte[8192];
+                int read = in.read(buffer);
+                while(read != -1){
+                    bytes.write(buffer, 0, read);
+                    read = in.read(buffer);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        if(status != HttpURLConnection.HTTP_OK){
+            String location = conn.getHeaderField("Location");
+            throw new IOException(String.format(
+                "%s responded with %d %s%s",
+                conn.getURL(),
+                status,
+                conn.getResponseMessage(),
+                (location == null) ? "" : " (redirecting to " + location + ")"
+            ));
+        }
+        return new String(bytes.toByteArray(), getCharset(conn.getContentType()));
+    }
+    
+    /**
+     * 
+     * @param contentType the value of a Content-Type header, which may be null
+     * @return the charset named in the header, or ISO-8859-1,
+     * the default for HTML served without a charset
+     */
+    private static Charset getCharset(String contentType){
+        Charset ret = StandardCharsets.ISO_8859_1;
+        if(contentType != null){
+            for(String param : contentType.split(";")){
+                param = param.trim();
+                if(param.toLowerCase().startsWith("charset=")){
+                    try {
+                        ret = Charset.forName(param.substring("charset=".length()).replace("\"", ""));
+                    } catch(IllegalArgumentException ex){
+                        Logger.logError("HttpQueryClient.getCharset", "Unknown charset in " + contentType);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @param params the name and value of each form input
+     * @return the inputs, encoded as application/x-www-form-urlencoded
+     */
+    public static String encodeForm(Map<String, String> params){
+        StringBuilder b = new StringBuilder();
+        try {
+            for(Map.Entry<String, String> param : params.entrySet()){
+                if(b.length() != 0){
+                    b.append('&');
+                }
+                b.append(URLEncoder.encode(param.getKey(), "UTF-8"));
+                b.append('=');
+                b.append(URLEncoder.encode((param.getValue() == null) ? "" : param.getValue(), "UTF-8"));
+            }
+        } catch(UnsupportedEncodingException ex){
+            // every JVM supports UTF-8
+            throw new RuntimeException(ex);
+        }
+        return b.toString();
+    }
+}
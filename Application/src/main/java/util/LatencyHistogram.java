@@ -0,0 +1,206 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * The LatencyHistogram records how long something took,
+ * such as waiting for a page, so percentiles can be
+ * computed from the results.
+ * 
+ * Only the most recent samples are kept, so memory
+ * use doesn't grow with the length of a run, and
+ * getPercentiles follows changes in how fast a site
+ * is responding. The count, total, and maximum
+ * cover every sample.
+ * 
+ * For percentiles which cover every sample, such as for
+ * a report on a whole run, use getRunPercentiles. Every
+ * sample is counted in one of a fixed set of buckets, each
+ * an eighth of a power of two wide, so these are within
+ * 12.5% of the exact value, while taking a fixed amount of memory.
+ * 
+ * Every method is thread safe.
+ * 
+ * @author Matt Crow
+ */
+public class LatencyHistogram {
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    // values under EXACT_BUCKETS get a bucket each, then each power of two is split into SUB_BUCKETS
+    private static final int EXACT_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_BITS = 4; // EXACT_BUCKETS == 1 << EXACT_BITS
+    private static final int BUCKET_COUNT = EXACT_BUCKETS + (63 - EXACT_BITS) * SUB_BUCKETS;
+    
+    private final long[] samples; // ring buffer
+    private final long[] buckets; // every sample ever recorded
+    private int next;
+    private int size;
+    private long count;
+    private long total;
+    private long max;
+    
+    /**
+     * 
+     * @param capacity how many of the most recent samples to keep
+     */
+    public LatencyHistogram(int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be at least 1, not " + capacity);
+        }
+        samples = new long[capacity];
+        buckets = new long[BUCKET_COUNT];
+        next = 0;
+        size = 0;
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+    
+    public LatencyHistogram(){
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * 
+     * @param millis how long something took, in milliseconds
+     */
+    public synchronized void record(long millis){
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if(size < samples.length){
+            size++;
+        }
+        buckets[getBucket(Math.max(millis, 0))]++;
+        count++;
+        total += millis;
+        max = Math.max(max, millis);
+    }
+    
+    /**
+     * 
+     * @return the number of samples ever recorded
+     */
+    public synchronized long getCount(){
+        return count;
+    }
+    
+    /**
+     * 
+     * @return the sum of every sample ever recorded, in milliseconds
+     */
+    public synchronized long getTotal(){
+        return total;
+    }
+    
+    /**
+     * 
+     * @return the mean of every sample ever recorded, or 0 if there are none
+     */
+    public synchronized double getMean(){
+        return (count == 0) ? 0 : (double)total / count;
+    }
+    
+    public synchronized long getMax(){
+        return max;
+    }
+    
+    /**
+     * 
+     * @param p the percentile to compute, from 0 to 100
+     * @return the p-th percentile of the recent samples, or 0 if there are none
+     */
+    public long getPercentile(double p){
+        return getPercentiles(p)[0];
+    }
+    
+    /**
+     * Computes several percentiles at once,
+     * so the samples only need to be sorted once.
+     * 
+     * @param ps the percentiles to compute, from 0 to 100
+     * @return the value of each percentile, in the same order, or 0s if there are no samples
+     */
+    public long[] getPercentiles(double... ps){
+        long[] sorted;
+        synchronized(this){
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        long[] ret = new long[ps.length];
+        for(int i = 0; i < ps.length; i++){
+            if(ps[i] < 0 || ps[i] > 100){
+                throw new IllegalArgumentException("Percentile must be between 0 and 100, not " + ps[i]);
+            }
+            if(sorted.length != 0){
+                // nearest rank
+                int rank = (int)Math.ceil(ps[i] / 100 * sorted.length);
+                ret[i] = sorted[Math.max(rank - 1, 0)];
+            }
+        }
+        return ret;
+    }
+    
+    private static int getBucket(long millis){
+        if(millis < EXACT_BUCKETS){
+            return (int)millis;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(millis);
+        int sub = (int)(millis >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_BUCKETS + (exponent - EXACT_BITS) * SUB_BUCKETS + sub;
+    }
+    
+    /**
+     * 
+     * @return the largest value which goes in the given bucket
+     */
+    private static long getBucketMax(int bucket){
+        if(bucket < EXACT_BUCKETS){
+            return bucket;
+        }
+        int exponent = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + EXACT_BITS;
+        long sub = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + sub) * width) + width - 1;
+    }
+    
+    /**
+     * Computes percentiles over every sample ever recorded,
+     * rather than just the recent ones. Each is rounded up
+     * to the top of its bucket, but never past the maximum.
+     * 
+     * @param ps the percentiles to compute, from 0 to 100
+     * @return the value of each percentile, in the same order, or 0s if there are no samples
+     */
+    public synchronized long[] getRunPercentiles(double... ps){
+        long[] ret = new long[ps.length];
+        for(int i = 0; i < ps.length; i++){
+            if(ps[i] < 0 || ps[i] > 100){
+                throw new IllegalArgumentException("Percentile must be between 0 and 100, not " + ps[i]);
+            }
+            if(count != 0){
+                // nearest rank
+                long rank = Math.max((long)Math.ceil(ps[i] / 100 * count), 1);
+                long seen = 0;
+                int bucket = 0;
+                while(seen + buckets[bucket] < rank){
+                    seen += buckets[bucket];
+                    bucket++;
+                }
+                ret[i] = Math.min(getBucketMax(bucket), max);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @return the count, mean, p50, p95, p99, and max of this histogram, covering every sample
+     */
+    @Override
+    public String toString(){
+        long[] ps = getRunPercentiles(50, 95, 99);
+        return String.format("n=%d mean=%.0fms p50=%dms p95=%dms p99=%dms max=%dms", getCount(), getMean(), ps[0], ps[1], ps[2], getMax());
+    }
+}
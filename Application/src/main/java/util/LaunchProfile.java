@@ -0,0 +1,214 @@
+package util;
+
+import java.util.Objects;
+
+/**
+ * A LaunchProfile describes how a browser should be
+ * launched for an automation run: whether to show
+ * its window, what it shouldn't bother loading, and
+ * how big its window should be. Browser uses this to
+ * build the options for each kind of WebDriver.
+ * 
+ * The default profile launches a normal, visible
+ * browser, the same as running without a profile.
+ * Since automations only read the text of pages,
+ * fast() is usually a better choice once an automation
+ * is known to work.
+ * 
+ * @see Browser#createDriver(util.LaunchProfile)
+ * @author Matt Crow
+ */
+public class LaunchProfile {
+    public static final int DEFAULT_WIDTH = 1280;
+    public static final int DEFAULT_HEIGHT = 1024;
+    
+    private boolean headless;
+    private boolean blockImages;
+    private boolean blockStylesheets;
+    private boolean blockFonts;
+    private boolean disableExtensions;
+    private int windowWidth;
+    private int windowHeight;
+    
+    /**
+     * Creates a profile for a normal, visible browser.
+     */
+    public LaunchProfile(){
+        headless = false;
+        blockImages = false;
+        blockStylesheets = false;
+        blockFonts = false;
+        disableExtensions = false;
+        windowWidth = 0;
+        windowHeight = 0;
+    }
+    
+    /**
+     * 
+     * @return a profile for a headless browser which
+     * doesn't load images, stylesheets, fonts, or extensions,
+     * with a fixed size window
+     */
+    public static LaunchProfile fast(){
+        return new LaunchProfile()
+            .setHeadless(true)
+            .setBlockImages(true)
+            .setBlockStylesheets(true)
+            .setBlockFonts(true)
+            .setDisableExtensions(true)
+            .setWindowSize(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+    
+    /**
+     * 
+     * @return a new profile with the same settings as this one
+     */
+    public LaunchProfile copy(){
+        return new LaunchProfile()
+            .setHeadless(headless)
+            .setBlockImages(blockImages)
+            .setBlockStylesheets(blockStylesheets)
+            .setBlockFonts(blockFonts)
+            .setDisableExtensions(disableExtensions)
+            .setWindowSize(windowWidth, windowHeight);
+    }
+    
+    /**
+     * 
+     * @param headless whether or not to run the browser without a window
+     * @return this, for chaining purposes
+     */
+    public LaunchProfile setHeadless(boolean headless){
+        this.headless = headless;
+        return this;
+    }
+    
+    public boolean isHeadless(){
+        return headless;
+    }
+    
+    public LaunchProfile setBlockImages(boolean block){
+        blockImages = block;
+        return this;
+    }
+    
+    public boolean blocksImages(){
+        return blockImages;
+    }
+    
+    public LaunchProfile setBlockStylesheets(boolean block){
+        blockStylesheets = block;
+        return this;
+    }
+    
+    public boolean blocksStylesheets(){
+        return blockStylesheets;
+    }
+    
+    public LaunchProfile setBlockFonts(boolean block){
+        blockFonts = block;
+        return this;
+    }
+    
+    public boolean blocksFonts(){
+        return blockFonts;
+    }
+    
+    public LaunchProfile setDisableExtensions(boolean disable){
+        disableExtensions = disable;
+        return this;
+    }
+    
+    public boolean disablesExtensions(){
+        return disableExtensions;
+    }
+    
+    /**
+     * Headless browsers use a small window by default,
+     * which can hide elements that only show on wider pages,
+     * so headless profiles should usually set a window size.
+     * 
+     * @param width the width of the browser window, in pixels, or 0 to let the browser decide
+     * @param height the height of the browser window, in pixels, or 0 to let the browser decide
+     * @return this, for chaining purposes
+     */
+    public LaunchProfile setWindowSize(int width, int height){
+        if(width < 0 || height < 0){
+            throw new IllegalArgumentException(String.format("Window size cannot be negative: %dx%d", width, height));
+        }
+        if((width == 0) != (height == 0)){
+            throw new IllegalArgumentException(String.format("Set both the width and height, or neither: %dx%d", width, height));
+        }
+        windowWidth = width;
+        windowHeight = height;
+        return this;
+    }
+    
+    /**
+     * 
+     * @return whether or not this profile sets the window size
+     */
+    public boolean hasWindowSize(){
+        return windowWidth != 0;
+    }
+    
+    public int getWindowWidth(){
+        return windowWidth;
+    }
+    
+    public int getWindowHeight(){
+        return windowHeight;
+    }
+    
+    /**
+     * Two profiles are equal if they launch browsers the same way,
+     * so WebDriverPool can reuse a browser for any equal profile.
+     * 
+     * @param obj
+     * @return
+     */
+    @Override
+    public boolean equals(Object obj){
+        if(this == obj){
+            return true;
+        }
+        if(!(obj instanceof LaunchProfile)){
+            return false;
+        }
+        LaunchProfile other = (LaunchProfile)obj;
+        return headless == other.headless
+            && blockImages == other.blockImages
+            && blockStylesheets == other.blockStylesheets
+            && blockFonts == other.blockFonts
+            && disableExtensions == other.disableExtensions
+            && windowWidth == other.windowWidth
+            && windowHeight == other.windowHeight;
+    }
+    
+    @Override
+    public int hashCode(){
+        return Objects.hash(headless, blockImages, blockStylesheets, blockFonts, disableExtensions, windowWidth, windowHeight);
+    }
+    
+    @Override
+    public String toString(){
+        StringBuilder b = new StringBuilder();
+        b.append((headless) ? "headless" : "visible");
+        if(blockImages){
+            b.append(", no images");
+        }
+        if(blockStylesheets){
+            b.append(", no stylesheets");
+        }
+        if(blockFonts){
+            b.append(", no fonts");
+        }
+        if(disableExtensions){
+            b.append(", no extensions");
+        }
+        if(hasWindowSize()){
+            b.append(", ").append(windowWidth).append('x').append(windowHeight);
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,251 @@
+package util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import csv.CsvFile;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The StubReportServer imitates a PSReports query page,
+ * so HTTP query mode can be tried out without access to
+ * the real site. It runs on the local machine, and
+ * responds to form submissions to /ReportQ.asp
+ * with a result table containing the submitted values.
+ * 
+ * Like the real site, it only answers requests with
+ * a session cookie, and redirects the rest to a login page.
+ * It also pages results the same way: a query with more than
+ * PAGE_SIZE rows only shows the first page, along with a link
+ * to EXPAND_PATH, which shows every row of the last query
+ * submitted in the session.
+ * 
+ * @author Matt Crow
+ */
+public class StubReportServer {
+    public static final String QUERY_PATH = "/ReportQ.asp";
+    public static final String SESSION_COOKIE = "ASPSESSIONIDSTUB=stub";
+    public static final String EXPAND_PATH = QUERY_PATH + "?Report_PagingMove=ALL";
+    public static final int PAGE_SIZE = 5;
+    
+    private final HttpServer server;
+    private final ExecutorService threads;
+    private final AtomicInteger requestCount;
+    private volatile long latency;
+    private volatile LinkedHashMap<String, String> lastQuery; // there is only one session
+    
+    /**
+     * 
+     * @param port the port to listen on, or 0 to use any free port
+     * @throws IOException if the server cannot listen on the port
+     */
+    public StubReportServer(int port) throws IOException{
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        threads = Executors.newCachedThreadPool();
+        requestCount = new AtomicInteger(0);
+        latency = 0;
+        lastQuery = null;
+        server.setExecutor(threads);
+        server.createContext(QUERY_PATH, this::handleQuery);
+    }
+    
+    /**
+     * 
+     * @param millis how long to wait before responding to each request,
+     * to imitate a slow server
+     * @return this, for chaining purposes
+     */
+    public StubReportServer setLatency(long millis){
+        latency = millis;
+        return this;
+    }
+    
+    public StubReportServer start(){
+        server.start();
+        return this;
+    }
+    
+    public void stop(){
+        server.stop(0);
+        threads.shutdownNow();
+    }
+    
+    /**
+     * 
+     * @return the URL to submit queries to
+     */
+    public String getQueryUrl(){
+        return "http://localhost:" + server.getAddress().getPort() + QUERY_PATH;
+    }
+    
+    public int getRequestCount(){
+        return requestCount.get();
+    }
+    
+    /**
+     * 
+     * @param params the submitted form
+     * @return how many rows the stub has for the query
+     */
+    public static int getRowCount(Map<String, String> params){
+        return 1 + Math.abs(params.hashCode() % (PAGE_SIZE * 3));
+    }
+    
+    private void handleQuery(HttpExchange exchange) throws IOException{
+        requestCount.incrementAndGet();
+        try {
+            if(latency > 0){
+                Thread.sleep(latency);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
+        if(cookies == null || !cookies.contains(SESSION_COOKIE)){
+            exchange.getResponseHeaders().set("Location", "/login.asp");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+            return;
+        }
+        
+        LinkedHashMap<String, String> params;
+        boolean expand = "GET".equals(exchange.getRequestMethod()) && EXPAND_PATH.equals(exchange.getRequestURI().toString());
+        if(expand){
+            params = lastQuery;
+        } else {
+            params = parseForm(readBody(exchange.getRequestBody()));
+            lastQuery = params;
+        }
+        
+        StringBuilder html = new StringBuilder();
+        html.append("<html><head><title>Query Results</title></head><body>\n");
+        html.append("<table border=0><tr><td>PSReports Home</td></tr></table>\n");
+        if(params == null){
+            html.append("<p>No query to expand</p>\n");
+        } else {
+            int rowCount = getRowCount(params);
+            int shown = (expand) ? rowCount : Math.min(rowCount, PAGE_SIZE);
+            html.append("<table border=1>\n<tr>");
+            params.keySet().forEach((name)->html.append("<th>").append(escape(name)).append("</th>"));
+            html.append("<th>Line</th><th>Balance</th></tr>\n");
+            for(int i = 1; i <= shown; i++){
+                html.append("<tr>");
+                params.values().forEach((value)->html.append("<td>").append(escape(value)).append("</td>"));
+                html.append("<td>").append(i).append("</td>");
+                html.append("<td>$").append(Math.abs((params.hashCode() + i) % 10000)).append(".00</td></tr>\n");
+            }
+            html.append("</table>\n");
+            if(shown < rowCount){
+                html.append("<a href='").append(EXPAND_PATH).append("'>Show all ").append(rowCount).append(" rows</a>\n");
+            }
+        }
+        html.append("</body></html>");
+        
+        byte[] body = html.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(body);
+        }
+    }
+    
+    private static String readBody(InputStream in) throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read = in.read(buffer);
+        while(read != -1){
+            bytes.write(buffer, 0, read);
+            read = in.read(buffer);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    private static LinkedHashMap<String, String> parseForm(String body) throws IOException{
+        LinkedHashMap<String, String> ret = new LinkedHashMap<>();
+        for(String pair : body.split("&")){
+            if(!pair.isEmpty()){
+                String[] nameAndValue = pair.split("=", 2);
+                ret.put(
+                    URLDecoder.decode(nameAndValue[0], "UTF-8"),
+                    (nameAndValue.length == 2) ? URLDecoder.decode(nameAndValue[1], "UTF-8") : ""
+                );
+            }
+        }
+        return ret;
+    }
+    
+    private static String escape(String s){
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+    
+    /**
+     * Submits many queries at once to a stub server,
+     * and checks that each response is read correctly.
+     * 
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception{
+        int queryCount = 500;
+        int concurrency = 32;
+        StubReportServer stub = new StubReportServer(0).setLatency(20).start();
+        try {
+            HttpQueryClient client = new HttpQueryClient(SESSION_COOKIE, null);
+            ExecutorService requesters = Executors.newFixedThreadPool(concurrency);
+            for(boolean expand : new boolean[]{false, true}){
+                List<Future<Boolean>> results = new ArrayList<>();
+                long start = System.currentTimeMillis();
+                for(int i = 0; i < queryCount; i++){
+                    String poNumber = String.format("%010d", i);
+                    results.add(requesters.submit(()->{
+                        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+                        params.put("PO_ID_Input", poNumber);
+                        params.put("Query", "Query");
+                        String html = (expand)
+                            ? client.postAndExpand(stub.getQueryUrl(), params, EXPAND_PATH)
+                            : client.post(stub.getQueryUrl(), params);
+                        HtmlTable table = HtmlTable.fromPageSource(html, "border", "1");
+                        if(table == null){
+                            return false;
+                        }
+                        CsvFile rows = table.toCsvFile();
+                        int expected = (expand) ? getRowCount(params) : Math.min(getRowCount(params), PAGE_SIZE);
+                        return rows.getRowCount() == expected && rows.getBody().stream().allMatch((row)->poNumber.equals(row.get("PO_ID_Input")));
+                    }));
+                }
+                int correct = 0;
+                for(Future<Boolean> result : results){
+                    if(result.get()){
+                        correct++;
+                    }
+                }
+                System.out.printf("%d/%d queries read correctly %s in %dms, %d at a time%n", correct, queryCount, (expand) ? "with every row" : "with the first page", System.currentTimeMillis() - start, concurrency);
+            }
+            requesters.shutdown();
+            
+            try {
+                new HttpQueryClient(null, null).post(stub.getQueryUrl(), new HashMap<>());
+                System.out.println("Request without a session should have failed");
+            } catch(IOException ex){
+                System.out.println("Request without a session failed as expected: " + ex.getMessage());
+            }
+        } finally {
+            stub.stop();
+        }
+    }
+}
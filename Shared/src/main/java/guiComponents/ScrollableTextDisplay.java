@@ -2,31 +2,47 @@ package guiComponents;
 
 import java.awt.Color;
 import java.awt.GridLayout;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.swing.JPanel;
-import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import logging.MessageListener;
 
 /**
  * Not sure if I want this to implement MessageListener,
  since while is does need to report messages, it needn't store them.
  * 
+ * Text can be added from any thread. It is queued, then
+ * added to the text area in batches on the event dispatch
+ * thread, a few times per second, so logging many messages
+ * doesn't redraw the text area for each one.
+ * Only the last maxLines lines are kept.
+ * 
  * @author Matt Crow
  */
 public class ScrollableTextDisplay extends JPanel implements MessageListener{
+    public static final int DEFAULT_MAX_LINES = 5000;
+    private static final int FLUSH_INTERVAL = 50; // milliseconds
+    // queued in place of text to clear the display, so it happens in order with appends
+    private static final String CLEAR = new String("CLEAR");
+    
     private final JTextArea textArea;
     private final JScrollPane pane;
-    private final StringBuilder text;
+    private final ConcurrentLinkedQueue<String> pending;
+    private final Timer flushTimer;
+    private volatile int maxLines;
     
     public ScrollableTextDisplay(String displayText){
         super();
         setLayout(new GridLayout(1, 1));
-        text = new StringBuilder();
-        text.append(displayText);
+        pending = new ConcurrentLinkedQueue<>();
+        maxLines = DEFAULT_MAX_LINES;
         
-        textArea = new JTextArea(displayText);
+        textArea = new JTextArea();
         textArea.setEditable(false);
         textArea.setLineWrap(true);
         textArea.setWrapStyleWord(true);
@@ -35,32 +51,146 @@ public class ScrollableTextDisplay extends JPanel implements MessageListener{
         pane = new JScrollPane(textArea);
         pane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
         add(pane);
+        
+        flushTimer = new Timer(FLUSH_INTERVAL, (e)->flush());
+        flushTimer.setCoalesce(true);
+        appendText(displayText);
+        
         revalidate();
         repaint();
     }
-
+    
     public ScrollableTextDisplay() {
         this("");
     }
     
+    /**
+     * Sets how many lines this keeps.
+     * Once there are more, the oldest are removed.
+     * 
+     * @param lines the number of lines to keep. Must be at least 1.
+     * @return this, for chaining purposes
+     */
+    public ScrollableTextDisplay setMaxLines(int lines){
+        if(lines < 1){
+            throw new IllegalArgumentException("Max lines must be at least 1, not " + lines);
+        }
+        maxLines = lines;
+        return this;
+    }
+    
+    public int getMaxLines(){
+        return maxLines;
+    }
+    
+    // only flush while this is on screen, so hidden displays don't keep a timer running
+    @Override
+    public void addNotify(){
+        super.addNotify();
+        flushTimer.start();
+    }
+    
+    @Override
+    public void removeNotify(){
+        flushTimer.stop();
+        super.removeNotify();
+    }
+    
+    /**
+     * Queues text to be added to the end of the display.
+     * Safe to call from any thread.
+     * 
+     * @param newText the text to add
+     */
     public void appendText(String newText){
-        text.append(newText);
-        textArea.setText(text.toString());
-        repaint();
-        SwingUtilities.invokeLater(()->{
-            JScrollBar bar = pane.getVerticalScrollBar();
-            bar.setValue(bar.getMaximum());
-        });
+        if(!newText.isEmpty()){
+            pending.add(newText);
+        }
     }
+    
     public void setText(String newText){
         clear();
         appendText(newText);
     }
+    
+    /**
+     * Removes all text from the display, including
+     * text which is queued but not yet shown.
+     * Safe to call from any thread.
+     */
     public void clear(){
-        text.delete(0, text.length());
-        textArea.setText("");
+        pending.add(CLEAR);
     }
-
+    
+    /**
+     * Adds the queued text to the text area
+     * in one insert, then removes lines beyond maxLines.
+     * Runs on the event dispatch thread.
+     */
+    private void flush(){
+        if(pending.isEmpty()){
+            return;
+        }
+        Document doc = textArea.getDocument();
+        StringBuilder batch = new StringBuilder();
+        String next;
+        try {
+            while((next = pending.poll()) != null){
+                if(next == CLEAR){
+                    batch.setLength(0);
+                    doc.remove(0, doc.getLength());
+                } else {
+                    batch.append(next);
+                }
+            }
+            int keepFrom = startOfLastLines(batch, maxLines);
+            if(keepFrom > 0){
+                // the batch alone has more than maxLines, so none of the old text will be kept
+                doc.remove(0, doc.getLength());
+            }
+            doc.insertString(doc.getLength(), batch.substring(keepFrom), null);
+            trimLines(doc);
+        } catch (BadLocationException ex) {
+            // only happens if the offsets are wrong, which would be a bug in this class
+            ex.printStackTrace();
+        }
+        textArea.setCaretPosition(doc.getLength());
+    }
+    
+    /**
+     * 
+     * @param text some text
+     * @param lines the number of lines to keep
+     * @return the index in text where its last lines lines start,
+     * or 0 if text doesn't have more lines than that
+     */
+    private static int startOfLastLines(CharSequence text, int lines){
+        int newLines = 0;
+        // a trailing newline doesn't start a line
+        for(int i = text.length() - 2; i >= 0; i--){
+            if(text.charAt(i) == '\n'){
+                newLines++;
+                if(newLines == lines){
+                    return i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+    
+    private void trimLines(Document doc) throws BadLocationException{
+        Element root = doc.getDefaultRootElement();
+        int lines = root.getElementCount();
+        if(doc.getLength() > 0 && doc.getText(doc.getLength() - 1, 1).charAt(0) == '\n'){
+            // the empty line after a trailing newline doesn't count
+            lines--;
+        }
+        int excess = lines - maxLines;
+        if(excess > 0){
+            doc.remove(0, root.getElement(excess - 1).getEndOffset());
+        }
+    }
+    
     @Override
     public void messageLogged(String s) {
         appendText(s + '\n');
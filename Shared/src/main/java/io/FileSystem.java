@@ -2,6 +2,7 @@ package io;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -26,8 +27,16 @@ public final class FileSystem {
     public static final String APP_FOLDER_PATH = ARCDH_FOLDER_PATH + File.separator + "WebAutomator";
     public static final String LOG_FOLDER_PATH = APP_FOLDER_PATH + File.separator + "logs";
     public static final String JAR_FOLDER_PATH = APP_FOLDER_PATH + File.separator + "bin";
+    public static final String JOURNAL_FOLDER_PATH = APP_FOLDER_PATH + File.separator + "journals";
+    public static final String RESULT_CACHE_FOLDER_PATH = APP_FOLDER_PATH + File.separator + "cache";
+    
+    public static final long LOG_FILE_SIZE = 5 * 1024 * 1024;
+    public static final long LOG_FOLDER_CAP = 100 * 1024 * 1024;
+    public static final long RESULT_CACHE_CAP = 200 * 1024 * 1024;
     
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-uuuu_hh_mm_a");
+    // runs can finish within the same minute, so reports need a finer time than logs
+    private static final DateTimeFormatter REPORT_DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd_HH-mm-ss-SSS");
         
     public FileSystem(){
         
@@ -71,6 +80,8 @@ public final class FileSystem {
         createIfAbsent(APP_FOLDER_PATH);
         createIfAbsent(LOG_FOLDER_PATH);
         createIfAbsent(JAR_FOLDER_PATH);
+        createIfAbsent(JOURNAL_FOLDER_PATH);
+        createIfAbsent(RESULT_CACHE_FOLDER_PATH);
     }
     
     /**
@@ -87,9 +98,111 @@ public final class FileSystem {
         FileWriterUtil.writeToFile(newFile, contents);
     }
     
+    /**
+     * Gets the path to the progress journal with the given name,
+     * in the journal folder. Journals are used to resume
+     * long runs which did not finish.
+     * 
+     * @param journalName the name of the journal, such as the name of the automation it belongs to.
+     * Characters which aren't allowed in file names are replaced.
+     * @return the path to the journal file. The file may not exist yet.
+     * @throws IOException if the journal folder does not exist and cannot be created
+     */
+    public Path getJournalPath(String journalName) throws IOException{
+        createIfAbsent(JOURNAL_FOLDER_PATH);
+        return Paths.get(JOURNAL_FOLDER_PATH, journalName.replaceAll("[^a-zA-Z0-9_\\-]", "_") + ".journal");
+    }
+    
+    /**
+     * Gets the folder the result cache keeps its entries in,
+     * so later runs can reuse the results of queries earlier
+     * runs already ran. Every automation shares the folder.
+     * Unless told otherwise, the cache keeps it under RESULT_CACHE_CAP.
+     * 
+     * @return the path to the result cache folder
+     * @throws IOException if the cache folder does not exist and cannot be created
+     */
+    public Path getResultCacheFolder() throws IOException{
+        createIfAbsent(RESULT_CACHE_FOLDER_PATH);
+        return Paths.get(RESULT_CACHE_FOLDER_PATH);
+    }
+    
+    /**
+     * Gets the path to the file the job queue is saved in,
+     * so jobs submitted from the command line can be run by the GUI,
+     * and the other way around.
+     * 
+     * @return the path to the job file. The file may not exist yet.
+     * @throws IOException if the program folder does not exist and cannot be created
+     */
+    public Path getJobQueuePath() throws IOException{
+        createAbsentFolders();
+        return Paths.get(APP_FOLDER_PATH, "jobs.json");
+    }
+    
+    /**
+     * Creates the files for a new run report for the given automation,
+     * in the log folder, so it is saved next to the log of the run.
+     * The files are named after the automation and the time, down to
+     * the millisecond, and only differ by extension. If a report
+     * already has that name, such as one from a run of the same
+     * automation in another program which finished at the same time,
+     * a number is added, so reports never replace each other.
+     * 
+     * @param automationName the name of the automation the report is for.
+     * Characters which aren't allowed in file names are replaced.
+     * @param time when the run finished, which is put in the file name
+     * @param extensions the file extension of each format of the report, such as "csv", without the dot.
+     * @return the path to the report file for each extension, in the same order. The first file is created empty.
+     * @throws IOException if the log folder or first file cannot be created
+     */
+    public Path[] createRunReportFiles(String automationName, LocalDateTime time, String... extensions) throws IOException{
+        createIfAbsent(LOG_FOLDER_PATH);
+        String base = automationName.replaceAll("[^a-zA-Z0-9_\\-]", "_") + "_Report" + time.format(REPORT_DATE_FORMAT);
+        String name = base;
+        Path[] ret = new Path[extensions.length];
+        for(int i = 1; true; i++){
+            boolean taken = false;
+            for(int j = 0; j < extensions.length; j++){
+                ret[j] = Paths.get(LOG_FOLDER_PATH, name + "." + extensions[j]);
+                taken = taken || (j != 0 && Files.exists(ret[j]));
+            }
+            if(!taken){
+                try {
+                    // every report creates its first file before using the name, so only one can claim it
+                    Files.createFile(ret[0]);
+                    return ret;
+                } catch(FileAlreadyExistsException ex){
+                    // try the next name
+                }
+            }
+            name = base + "-" + i;
+        }
+    }
+    
+    /**
+     * Opens the rolling log file for the given program
+     * in the log folder. Once the file reaches LOG_FILE_SIZE,
+     * or at the start of each day, it is compressed and a new
+     * one is started. The oldest compressed logs are deleted once
+     * they take up more than LOG_FOLDER_CAP.
+     * 
+     * @param programName the name of the program which is logging,
+     * so programs running at the same time don't write to the same file.
+     * Characters which aren't allowed in file names are replaced.
+     * @return the log file, to pass to Logger.setOutput
+     * @throws IOException if the log folder or file cannot be created
+     */
+    public RollingLogFile openLogFile(String programName) throws IOException{
+        createIfAbsent(LOG_FOLDER_PATH);
+        return new RollingLogFile(Paths.get(LOG_FOLDER_PATH), programName.replaceAll("[^a-zA-Z0-9_\\-]", "_"), LOG_FILE_SIZE, LOG_FOLDER_CAP);
+    }
+    
     /**
      * Saves the output of the Logger class
-     * to the log output folder.
+     * to the log output folder. Only use this
+     * if the rolling log file could not be opened,
+     * since the Logger only keeps its most recent messages.
      * 
      * @throws IOException if any errors occur when writing the file 
      */
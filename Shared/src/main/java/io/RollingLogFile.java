@@ -0,0 +1,295 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The RollingLogFile is a Writer which appends to a log file,
+ * starting a new file once the current one gets too big,
+ * or at the start of each day. Old files are gzipped, and
+ * the oldest are deleted once the compressed files in the
+ * folder take up more than a set amount of space.
+ * 
+ * The file being written to is named baseName.log.
+ * When it is rolled, it is renamed to include the time it
+ * was rolled at, then compressed on a background thread.
+ * Files are only rolled at the end of a line, so each
+ * line is entirely in one file.
+ * 
+ * Text is encoded into a buffer, which is written to the
+ * file's channel when it fills up or the writer is flushed.
+ * Like most Writers, this isn't thread safe.
+ * 
+ * @see FileSystem#openLogFile(java.lang.String)
+ * @author Matt Crow
+ */
+public class RollingLogFile extends Writer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ACTIVE_EXTENSION = ".log";
+    private static final String ROLLED_EXTENSION = ".log.gz";
+    private static final DateTimeFormatter ROLL_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd_HH-mm-ss");
+    
+    // rolled files are compressed one at a time, off of the logging thread
+    private static final ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor((r)->{
+        Thread t = new Thread(r, "Log compressor");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    private final Path folder;
+    private final String baseName;
+    private final Path activeFile;
+    private final long maxFileSize;
+    private final long maxTotalSize;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private FileChannel channel;
+    private long size; // bytes in the active file, including those still in the buffer
+    private LocalDate openedOn;
+    private boolean closed;
+    
+    /**
+     * Opens the log file for the given base name,
+     * appending to it if it already exists.
+     * 
+     * @param folder the folder to keep the log files in
+     * @param baseName the name of the log file, without an extension
+     * @param maxFileSize roll the file once it has at least this many bytes
+     * @param maxTotalSize delete the oldest compressed files once they add up to more than this many bytes
+     * @throws IOException if the log file cannot be opened
+     */
+    public RollingLogFile(Path folder, String baseName, long maxFileSize, long maxTotalSize) throws IOException{
+        if(maxFileSize < 1 || maxTotalSize < 0){
+            throw new IllegalArgumentException(String.format("Invalid sizes: maxFileSize=%d maxTotalSize=%d", maxFileSize, maxTotalSize));
+        }
+        this.folder = folder;
+        this.baseName = baseName;
+        activeFile = folder.resolve(baseName + ACTIVE_EXTENSION);
+        this.maxFileSize = maxFileSize;
+        this.maxTotalSize = maxTotalSize;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        closed = false;
+        
+        open();
+        // a file left over from a previous day should be rolled before adding to it
+        if(size > 0 && shouldRoll()){
+            roll();
+        }
+    }
+    
+    private void open() throws IOException{
+        channel = FileChannel.open(activeFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        openedOn = (size == 0)
+            ? LocalDate.now()
+            : Files.getLastModifiedTime(activeFile).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+    
+    public Path getActiveFile(){
+        return activeFile;
+    }
+    
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException{
+        if(closed){
+            throw new IOException("Log file is closed");
+        }
+        CharBuffer chars = CharBuffer.wrap(cbuf, off, len);
+        int before;
+        while(chars.hasRemaining()){
+            before = buffer.position();
+            CoderResult result = encoder.encode(chars, buffer, false);
+            size += buffer.position() - before;
+            if(result.isOverflow()){
+                drainBuffer();
+            } else {
+                // underflow: everything which can be encoded has been
+                break;
+            }
+        }
+        if(len > 0 && cbuf[off + len - 1] == '\n' && shouldRoll()){
+            roll();
+        }
+    }
+    
+    private boolean shouldRoll(){
+        return size >= maxFileSize || !LocalDate.now().equals(openedOn);
+    }
+    
+    private void drainBuffer() throws IOException{
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Moves the current file out of the way, starts a new one,
+     * then compresses the old file in the background.
+     * 
+     * @throws IOException if the file cannot be moved, or the new file cannot be opened
+     */
+    private void roll() throws IOException{
+        drainBuffer();
+        channel.close();
+        
+        Path rolled = moveAside();
+        open();
+        
+        COMPRESSOR.submit(()->{
+            compress(rolled);
+            deleteOldest(folder, maxTotalSize);
+        });
+    }
+    
+    /**
+     * Renames the active file to include the current time.
+     * 
+     * @return the new path to the file
+     * @throws IOException if the file cannot be moved
+     */
+    private Path moveAside() throws IOException{
+        String stamp = baseName + "-" + LocalDateTime.now().format(ROLL_FORMAT);
+        Path rolled = folder.resolve(stamp + ACTIVE_EXTENSION);
+        for(int i = 1; Files.exists(rolled) || Files.exists(folder.resolve(rolled.getFileName() + ".gz")); i++){
+            rolled = folder.resolve(stamp + "-" + i + ACTIVE_EXTENSION);
+        }
+        Files.move(activeFile, rolled);
+        return rolled;
+    }
+    
+    /**
+     * Closes the file, then rolls and compresses it on this thread,
+     * so it is done before the program exits. Use this instead of
+     * close for files which won't be opened again, such as ones
+     * named after a process, so they are counted towards the folder's
+     * size limit instead of piling up.
+     * 
+     * @throws IOException if the file cannot be closed or moved
+     */
+    public void archive() throws IOException{
+        if(closed){
+            return;
+        }
+        close();
+        if(size == 0){
+            Files.deleteIfExists(activeFile);
+            return;
+        }
+        compress(moveAside());
+        deleteOldest(folder, maxTotalSize);
+    }
+    
+    /**
+     * Gzips the given file, then deletes the original.
+     * 
+     * @param file the file to compress
+     */
+    private static void compress(Path file){
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        try(
+            InputStream in = Files.newInputStream(file);
+            OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz), BUFFER_SIZE)
+        ){
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int read;
+            while((read = in.read(bytes)) != -1){
+                out.write(bytes, 0, read);
+            }
+        } catch(IOException ex){
+            // the Logger is probably the one writing to this file, so don't log it there
+            System.err.println("Failed to compress log file " + file + ":");
+            ex.printStackTrace();
+            return;
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException ex) {
+            System.err.println("Failed to delete log file " + file + " after compressing it:");
+            ex.printStackTrace();
+        }
+    }
+    
+    /**
+     * Deletes the oldest compressed log files in the given
+     * folder, until the rest add up to at most maxTotalSize bytes.
+     * 
+     * @param folder the folder containing the log files
+     * @param maxTotalSize the most space compressed log files may take up, in bytes
+     */
+    private static void deleteOldest(Path folder, long maxTotalSize){
+        List<Path> rolled = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + ROLLED_EXTENSION)){
+            files.forEach(rolled::add);
+        } catch(IOException ex){
+            System.err.println("Failed to list log files in " + folder + ":");
+            ex.printStackTrace();
+            return;
+        }
+        
+        long total = 0;
+        List<Long> sizes = new ArrayList<>();
+        rolled.sort(Comparator.comparingLong(RollingLogFile::lastModified));
+        for(Path p : rolled){
+            long s = p.toFile().length();
+            sizes.add(s);
+            total += s;
+        }
+        for(int i = 0; i < rolled.size() && total > maxTotalSize; i++){
+            try {
+                Files.delete(rolled.get(i));
+                total -= sizes.get(i);
+            } catch (IOException ex) {
+                System.err.println("Failed to delete old log file " + rolled.get(i) + ":");
+                ex.printStackTrace();
+            }
+        }
+    }
+    
+    private static long lastModified(Path p){
+        return p.toFile().lastModified();
+    }
+    
+    @Override
+    public void flush() throws IOException{
+        if(!closed){
+            drainBuffer();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException{
+        if(!closed){
+            drainBuffer();
+            channel.close();
+            closed = true;
+        }
+    }
+}
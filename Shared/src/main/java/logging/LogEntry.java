@@ -0,0 +1,85 @@
+package logging;
+
+/**
+ * A LogEntry is one message waiting in the Logger's
+ * queue to be written out by its writer thread.
+ * 
+ * Entries are formatted by the writer thread rather than
+ * the thread which logged them, so logging only costs
+ * the logging thread the time it takes to create an entry.
+ * 
+ * @author Matt Crow
+ */
+final class LogEntry {
+    private final Logger.Level level;
+    private final String source;
+    private final String msg;
+    private final long time;
+    
+    /**
+     * 
+     * @param level the level of the message, or null if this entry is
+     * a request to clear the Logger's flags, rather than a message
+     * @param source where the message came from
+     * @param msg the message
+     */
+    LogEntry(Logger.Level level, String source, String msg){
+        this.level = level;
+        this.source = source;
+        this.msg = msg;
+        time = System.currentTimeMillis();
+    }
+    
+    /**
+     * 
+     * @return an entry telling the writer thread to notify error
+     * listeners that the flags were cleared, so they are notified
+     * after every error logged before the flags were cleared.
+     */
+    static LogEntry clearFlags(){
+        return new LogEntry(null, null, null);
+    }
+    
+    boolean isClearFlags(){
+        return level == null;
+    }
+    
+    Logger.Level getLevel(){
+        return level;
+    }
+    
+    String getSource(){
+        return source;
+    }
+    
+    String getMessage(){
+        return msg;
+    }
+    
+    long getTime(){
+        return time;
+    }
+    
+    /**
+     * 
+     * @return the message as it appears in the log window and to listeners
+     */
+    String format(){
+        String ret;
+        switch(level){
+            case ERROR:
+                ret = String.format("[%s] Error: %s", source, msg);
+                break;
+            case WARN:
+                ret = String.format("[%s] Warning: %s", source, msg);
+                break;
+            case DEBUG:
+                ret = String.format("[%s] Debug: %s", source, msg);
+                break;
+            default:
+                ret = String.format("[%s] %s", source, msg);
+                break;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,86 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The LogRingBuffer is a fixed size queue which any number
+ * of threads can add LogEntries to, but only one thread,
+ * the Logger's writer thread, may take them from.
+ * 
+ * Adding doesn't lock: threads claim a slot by incrementing
+ * the tail with compare-and-set, then publish the entry
+ * into that slot. The reader takes entries in the order
+ * their slots were claimed, waiting for a claimed slot to
+ * be published before moving past it.
+ * 
+ * @author Matt Crow
+ */
+final class LogRingBuffer {
+    private final AtomicReferenceArray<LogEntry> slots;
+    private final int mask;
+    private final AtomicLong tail; // the next slot to claim
+    private volatile long head; // the next slot to read. Only written by the reader
+    
+    /**
+     * 
+     * @param capacity how many entries the buffer can hold. Must be a power of 2.
+     */
+    LogRingBuffer(int capacity){
+        if(capacity < 1 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("Capacity must be a power of 2, not " + capacity);
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        tail = new AtomicLong(0);
+        head = 0;
+    }
+    
+    /**
+     * Adds an entry to the end of the buffer,
+     * if there is room for it.
+     * 
+     * @param e the entry to add
+     * @return whether or not the entry was added. If not, the buffer is full.
+     */
+    boolean offer(LogEntry e){
+        long t;
+        do {
+            t = tail.get();
+            if(t - head >= slots.length()){
+                return false;
+            }
+        } while(!tail.compareAndSet(t, t + 1));
+        slots.set((int)(t & mask), e);
+        return true;
+    }
+    
+    /**
+     * Takes the first entry from the buffer.
+     * Only the reader thread may call this.
+     * 
+     * @return the first entry, or null if the buffer is empty, or
+     * the first entry's slot was claimed but not published yet
+     */
+    LogEntry poll(){
+        int i = (int)(head & mask);
+        LogEntry ret = slots.get(i);
+        if(ret != null){
+            slots.lazySet(i, null);
+            head = head + 1;
+        }
+        return ret;
+    }
+    
+    /**
+     * 
+     * @return the number of entries ever added to the buffer
+     */
+    long getAdded(){
+        return tail.get();
+    }
+    
+    boolean isEmpty(){
+        return head == tail.get();
+    }
+}
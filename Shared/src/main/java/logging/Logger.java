@@ -1,19 +1,80 @@
 package logging;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * The Logger class is a static class used to
  * provide a single place to send output, where
  * it will later be written to a file.
  * 
+ * Logging doesn't block: messages are added to a fixed size,
+ * lock-free queue, and a background writer thread formats
+ * them, adds them to the log window, sends them to listeners,
+ * and writes them to the output set with setOutput.
+ * This means listeners are notified on the writer thread,
+ * not the thread which logged the message.
+ * 
+ * Only the last windowSize messages are kept in memory,
+ * so long runs don't keep growing the log. To keep every
+ * message, give the Logger an output: see setOutput.
+ * 
+ * Messages below the Logger's level are ignored. To avoid
+ * building messages which would be ignored, pass a
+ * Supplier instead of a String.
+ * 
  * @author Matt Crow
  */
 public class Logger {
-    private static final StringBuilder LOG = new StringBuilder();
-    private static final ArrayList<MessageListener> MSG_LISTENERS = new ArrayList<>();
-    private static final ArrayList<ErrorListener> ERR_LISTENERS = new ArrayList<>();
-    private static boolean errorFlag = false;
+    /**
+     * How important a message is.
+     * Levels are listed from least to most important.
+     */
+    public static enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+    
+    public static final int DEFAULT_WINDOW_SIZE = 10000;
+    private static final int QUEUE_CAPACITY = 8192;
+    // if the queue stays full this long, the writer thread is stuck, so stop waiting for it
+    private static final long FULL_QUEUE_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+    private static final long FLUSH_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    
+    private static final LogRingBuffer QUEUE = new LogRingBuffer(QUEUE_CAPACITY);
+    private static final AtomicLong DROPPED = new AtomicLong(0);
+    private static volatile long handled = 0; // only written by the writer thread
+    private static volatile boolean writerWaiting = false;
+    
+    private static final ArrayDeque<String> WINDOW = new ArrayDeque<>();
+    private static int windowSize = DEFAULT_WINDOW_SIZE;
+    private static final Object OUTPUT_LOCK = new Object();
+    private static Writer output = null;
+    
+    private static final CopyOnWriteArrayList<MessageListener> MSG_LISTENERS = new CopyOnWriteArrayList<>();
+    private static final CopyOnWriteArrayList<ErrorListener> ERR_LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile boolean errorFlag = false;
+    private static volatile Level level = Level.INFO;
+    
+    private static final Thread WRITER = new Thread(Logger::writeEntries, "Logger writer");
+    
+    static {
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::close, "Logger shutdown"));
+    }
     
     public Logger(){
         throw new RuntimeException("Logger is a static class, so you needn't instantiate it");
@@ -21,8 +82,8 @@ public class Logger {
     
     /**
      * Registers the given object implementing MessageListener to
- receive messages from the Logger: any message the Logger logs
- will be sent to this MessageListener as well.
+     * receive messages from the Logger: any message the Logger logs
+     * will be sent to this MessageListener as well.
      * 
      * @param i the object to receive messages in addition to the Logger.
      */
@@ -58,11 +119,7 @@ public class Logger {
         if(i == null){
             throw new NullPointerException("Cannot remove null as a message listener");
         }
-        boolean ret = MSG_LISTENERS.contains(i);
-        if(ret){
-            MSG_LISTENERS.remove(i);
-        }
-        return ret;
+        return MSG_LISTENERS.remove(i);
     }
     
     /**
@@ -76,9 +133,70 @@ public class Logger {
         if(i == null){
             throw new NullPointerException("Cannot remove null as an error listener");
         }
-        boolean ret = ERR_LISTENERS.contains(i);
-        if(ret){
-            ERR_LISTENERS.remove(i);
+        return ERR_LISTENERS.remove(i);
+    }
+    
+    /**
+     * Messages below the given level are ignored.
+     * Errors are always logged.
+     * 
+     * @param newLevel the least important level to log
+     */
+    public static final void setLevel(Level newLevel){
+        if(newLevel == null){
+            throw new NullPointerException("Level cannot be null");
+        }
+        level = newLevel;
+    }
+    
+    public static final Level getLevel(){
+        return level;
+    }
+    
+    /**
+     * 
+     * @param l a level
+     * @return whether or not messages of the given level are logged
+     */
+    public static final boolean isEnabled(Level l){
+        return l.compareTo(level) >= 0;
+    }
+    
+    /**
+     * Sets how many messages the Logger keeps in memory.
+     * Once there are more, the oldest are dropped from
+     * the log window, though they are still written to the output.
+     * 
+     * @param size the number of messages to keep. Must be at least 1.
+     */
+    public static final void setWindowSize(int size){
+        if(size < 1){
+            throw new IllegalArgumentException("Window size must be at least 1, not " + size);
+        }
+        synchronized(WINDOW){
+            windowSize = size;
+            trimWindow();
+        }
+    }
+    
+    /**
+     * Sets where the writer thread writes each message, along with
+     * the time and level it was logged at. Messages are written
+     * as they are logged, and the output is flushed whenever the
+     * writer thread runs out of messages to write.
+     * 
+     * The old output is flushed, but not closed.
+     * 
+     * @param out the writer to write messages to, or null to not write messages anywhere
+     * @return the old output, or null if there wasn't one
+     */
+    public static final Writer setOutput(Writer out){
+        flush();
+        Writer ret;
+        synchronized(OUTPUT_LOCK){
+            ret = output;
+            output = out;
+            flushOutput(ret);
         }
         return ret;
     }
@@ -96,26 +214,99 @@ public class Logger {
      * @param msg the message to write.
      */
     public static final void log(String source, String msg){
+        log(Level.INFO, source, msg);
+    }
+    
+    /**
+     * Logs the message returned by the given supplier, if the
+     * Logger logs INFO messages. Otherwise, the supplier isn't called.
+     * 
+     * @param source where the message came from
+     * @param msg supplies the message to write.
+     */
+    public static final void log(String source, Supplier<String> msg){
+        log(Level.INFO, source, msg);
+    }
+    
+    /**
+     * Logs a message which is only useful for debugging.
+     * These are ignored unless the Logger's level is DEBUG.
+     * 
+     * @param source where the message came from
+     * @param msg the message to write.
+     */
+    public static final void debug(String source, String msg){
+        log(Level.DEBUG, source, msg);
+    }
+    
+    /**
+     * 
+     * @param source where the message came from
+     * @param msg supplies the message to write. Only called if the Logger's level is DEBUG.
+     */
+    public static final void debug(String source, Supplier<String> msg){
+        log(Level.DEBUG, source, msg);
+    }
+    
+    /**
+     * Logs a message about something which went wrong,
+     * but not badly enough to be an error. Warnings
+     * are sent to message listeners, not error listeners,
+     * and don't set the error flag.
+     * 
+     * @param source where the message came from
+     * @param msg the message to write.
+     */
+    public static final void warn(String source, String msg){
+        log(Level.WARN, source, msg);
+    }
+    
+    /**
+     * Logs the message returned by the given supplier,
+     * if messages of the given level are logged.
+     * Otherwise, the supplier isn't called.
+     * 
+     * @param l the level of the message
+     * @param source where the message came from
+     * @param msg supplies the message to write
+     */
+    public static final void log(Level l, String source, Supplier<String> msg){
+        if(msg == null){
+            throw new NullPointerException("Cannot log null message");
+        }
+        if(isEnabled(l)){
+            log(l, source, msg.get());
+        }
+    }
+    
+    /**
+     * 
+     * @param l the level of the message
+     * @param source where the message came from
+     * @param msg the message to write
+     */
+    public static final void log(Level l, String source, String msg){
+        if(l == null){
+            throw new NullPointerException("Level cannot be null");
+        }
         if(source == null){
             source = "UNKNOWN SOURCE";
         }
         if(msg == null){
             throw new NullPointerException("Cannot log null message");
         }
-        String formattedMsg = String.format("[%s] %s", source, msg);
-        LOG.append(formattedMsg).append('\n');
-        
-        if(MSG_LISTENERS.isEmpty()){
-            System.out.println(formattedMsg);
-        } else {
-            MSG_LISTENERS.forEach((MessageListener log)->log.messageLogged(formattedMsg));
+        if(l == Level.ERROR){
+            errorFlag = true;
+        }
+        if(isEnabled(l)){
+            enqueue(new LogEntry(l, source, msg));
         }
     }
     
     /**
      * Logs the given error message so it can later be written to a messageLogged file.
-     * This message is also send to each error listener attached to the Logger. 
-     * If no error message listeners are attached, 
+     * This message is also send to each error listener attached to the Logger.
+     * If no error message listeners are attached,
      * writes the message to standard error output.
      * Also sets the error flag of the Logger to true until Logger.clearFlags() is invoked.
      * 
@@ -126,28 +317,13 @@ public class Logger {
      * @param errMsg the message to write.
      */
     public static final void logError(String source, String errMsg){
-        if(source == null){
-            source = "UNKNOWN SOURCE";
-        }
-        if(errMsg == null){
-            throw new NullPointerException("Cannot log null message");
-        }
-        
-        errorFlag = true;
-        String formattedMsg = String.format("[%s] Error: %s", source, errMsg);
-        LOG.append(formattedMsg).append('\n');
-        
-        if(ERR_LISTENERS.isEmpty()){
-            System.err.println(formattedMsg);
-        } else {
-            ERR_LISTENERS.forEach((errList)->errList.errorLogged(errMsg));
-        }
+        log(Level.ERROR, source, errMsg);
     }
     
     /**
      * Logs the given exception's stack trace so it can later be written to a messageLogged file.
-     * This stack trace is also send to each error listener attached to the Logger. 
-     * If no error message listeners are attached, 
+     * This stack trace is also send to each error listener attached to the Logger.
+     * If no error message listeners are attached,
      * prints the exception's stack trace to standard error output.
      * Also sets the error flag of the Logger to true until Logger.clearFlags() is invoked.
      * 
@@ -178,33 +354,208 @@ public class Logger {
     /**
      * Clears the error flag for the Logger,
      * and notifies each error listener attached to the Logger.
+     * Listeners are notified on the writer thread, after
+     * every error logged before this was called.
      */
     public static final void clearFlags(){
         errorFlag = false;
-        ERR_LISTENERS.forEach((errList)->errList.logCleared());
+        enqueue(LogEntry.clearFlags());
     }
     
     /**
      * 
-     * @return whether or not the Logger has logged 
+     * @return whether or not the Logger has logged
      * an error since its flags have been cleared
      */
     public static final boolean hasLoggedError(){
         return errorFlag;
     }
     
+    /**
+     * Waits until every message logged so far
+     * has been written out, then flushes the output.
+     * Gives up waiting after a few seconds if the writer
+     * thread is stuck, such as on a slow listener.
+     */
+    public static final void flush(){
+        if(Thread.currentThread() == WRITER){
+            return;
+        }
+        long target = QUEUE.getAdded();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT;
+        while(handled < target && System.nanoTime() < deadline){
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        synchronized(OUTPUT_LOCK){
+            flushOutput(output);
+        }
+    }
+    
     /**
      * 
-     * @return gets the contents of the Logger
+     * @return gets the contents of the log window: the
+     * last windowSize messages logged
      */
     public static final String getLog(){
-        return LOG.toString();
+        flush();
+        StringBuilder ret = new StringBuilder();
+        synchronized(WINDOW){
+            WINDOW.forEach((msg)->ret.append(msg).append('\n'));
+        }
+        return ret.toString();
     }
     
     /**
-     * Deletes the contents of the Logger.
+     * Deletes the contents of the log window.
+     * Messages already written to the output are not affected.
      */
     public static final void clearLog(){
-        LOG.delete(0, LOG.length());
+        flush();
+        synchronized(WINDOW){
+            WINDOW.clear();
+        }
+    }
+    
+    /**
+     * Adds an entry to the queue. If the queue is full,
+     * waits for the writer thread to make room,
+     * dropping the entry if it takes too long.
+     * 
+     * @param e the entry to add
+     */
+    private static void enqueue(LogEntry e){
+        if(!QUEUE.offer(e)){
+            long deadline = System.nanoTime() + FULL_QUEUE_TIMEOUT;
+            boolean added = false;
+            while(!added && System.nanoTime() < deadline && Thread.currentThread() != WRITER){
+                LockSupport.unpark(WRITER);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                added = QUEUE.offer(e);
+            }
+            if(!added){
+                DROPPED.incrementAndGet();
+                return;
+            }
+        }
+        if(writerWaiting){
+            LockSupport.unpark(WRITER);
+        }
+    }
+    
+    /**
+     * The writer thread's loop. Takes entries from the queue
+     * and handles them, sleeping when there are none.
+     */
+    private static void writeEntries(){
+        while(true){
+            LogEntry e = QUEUE.poll();
+            if(e == null){
+                synchronized(OUTPUT_LOCK){
+                    flushOutput(output);
+                }
+                writerWaiting = true;
+                // check again, in case an entry was added before writerWaiting was set
+                if(QUEUE.isEmpty()){
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                writerWaiting = false;
+            } else {
+                long dropped = DROPPED.getAndSet(0);
+                if(dropped > 0){
+                    handle(new LogEntry(Level.WARN, "Logger", dropped + " messages were dropped because the log queue was full"));
+                }
+                try {
+                    handle(e);
+                } catch(RuntimeException ex){
+                    // don't let a bad listener stop the writer thread
+                    ex.printStackTrace();
+                }
+                handled++;
+            }
+        }
+    }
+    
+    private static void handle(LogEntry e){
+        if(e.isClearFlags()){
+            ERR_LISTENERS.forEach((errList)->errList.logCleared());
+            return;
+        }
+        String formattedMsg = e.format();
+        synchronized(WINDOW){
+            WINDOW.addLast(formattedMsg);
+            trimWindow();
+        }
+        writeOutput(e, formattedMsg);
+        
+        if(e.getLevel() == Level.ERROR){
+            if(ERR_LISTENERS.isEmpty()){
+                System.err.println(formattedMsg);
+            } else {
+                ERR_LISTENERS.forEach((errList)->errList.errorLogged(e.getMessage()));
+            }
+        } else {
+            if(MSG_LISTENERS.isEmpty()){
+                System.out.println(formattedMsg);
+            } else {
+                MSG_LISTENERS.forEach((MessageListener log)->log.messageLogged(formattedMsg));
+            }
+        }
+    }
+    
+    // only call while synchronized on WINDOW
+    private static void trimWindow(){
+        while(WINDOW.size() > windowSize){
+            WINDOW.removeFirst();
+        }
+    }
+    
+    private static void writeOutput(LogEntry e, String formattedMsg){
+        synchronized(OUTPUT_LOCK){
+            if(output != null){
+                try {
+                    output
+                        .append(TIME_FORMAT.format(Instant.ofEpochMilli(e.getTime())))
+                        .append(' ')
+                        .append(e.getLevel().toString())
+                        .append(' ')
+                        .append(formattedMsg)
+                        .append('\n');
+                } catch (IOException ex) {
+                    System.err.println("Unable to write log output, so no longer writing it:");
+                    ex.printStackTrace();
+                    output = null;
+                }
+            }
+        }
+    }
+    
+    private static void flushOutput(Writer out){
+        if(out != null){
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                System.err.println("Unable to flush log output:");
+                ex.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Called when the program exits, so messages
+     * which are still queued aren't lost.
+     */
+    private static void close(){
+        flush();
+        synchronized(OUTPUT_LOCK){
+            if(output != null){
+                try {
+                    output.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+                output = null;
+            }
+        }
     }
 }
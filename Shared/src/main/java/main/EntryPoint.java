@@ -1,6 +1,7 @@
 package main;
 
 import io.FileSystem;
+import io.RollingLogFile;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
@@ -21,9 +22,11 @@ import logging.Logger;
 public abstract class EntryPoint {
     private final FileSystem resources;
     private final WindowAdapter closeListener;
+    private RollingLogFile logFile;
     
     public EntryPoint(){
         resources = new FileSystem();
+        logFile = null;
         closeListener = new WindowAdapter(){
             // for some reason, windowClosed doesn't fire.
             @Override
@@ -57,12 +60,19 @@ public abstract class EntryPoint {
     }
     
     /**
-     * Saves the log of this program
-     * to the program resource folder.
+     * Makes sure the log of this program is saved
+     * to the program resource folder. If the log is
+     * being written to a rolling log file, this just
+     * writes out any messages which are still queued.
+     * Otherwise, saves the log window to a new file.
      */
     public void writeLog(){
         try {
-            resources.saveLog();
+            if(logFile == null){
+                resources.saveLog();
+            } else {
+                Logger.flush();
+            }
         } catch (IOException ex) {
             System.err.println("Unable to write application log:");
             ex.printStackTrace();
@@ -110,7 +120,7 @@ public abstract class EntryPoint {
      * method to run the program.
      * 
      * Initializes resources,
-     * checks for updates,
+     * starts writing the log to disk,
      * and invokes doRun()
      */
     public final void run(){
@@ -119,9 +129,49 @@ public abstract class EntryPoint {
         } catch (IOException ex) {
             Logger.logError("EntryPoint.run", ex);
         }
+        try {
+            logFile = resources.openLogFile(getLogName());
+            Logger.setOutput(logFile);
+            Logger.log("EntryPoint.run", "Logging to " + logFile.getActiveFile());
+        } catch (IOException ex) {
+            Logger.logError("EntryPoint.run", "Unable to open log file, so the log will be saved when the program closes:");
+            Logger.logError("EntryPoint.run", ex);
+        }
         doRun();
     }
     
+    /**
+     * Stops writing the log to disk, then compresses the log file.
+     * Programs which give each copy its own log file should
+     * call this once they are done, so the log files of
+     * finished copies don't pile up.
+     */
+    protected final void archiveLog(){
+        if(logFile == null){
+            return;
+        }
+        Logger.setOutput(null);
+        try {
+            logFile.archive();
+        } catch (IOException ex) {
+            // the log file is no longer the output, so this can't go there
+            System.err.println("Unable to compress log file " + logFile.getActiveFile() + ":");
+            ex.printStackTrace();
+        }
+        logFile = null;
+    }
+    
+    /**
+     * Programs which may run several copies at once
+     * should override this to give each copy its own log file,
+     * and call archiveLog once they are done.
+     * 
+     * @return the name of this program's log file, without an extension
+     */
+    protected String getLogName(){
+        return getClass().getSimpleName();
+    }
+    
     /**
      * This method is called immediately after run().
      * Subclasses should override this method to